@@ -0,0 +1,181 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.LocadoraApplication;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Teste de carga HTTP em malha fechada: compara o Tomcat com pool de threads de plataforma
+// e o perfil "virtual" (virtual threads + limitador de concorrência) com 1k e 10k clientes simultâneos.
+//
+// Uso: java -cp benchmarks/target/benchmarks.jar com.locadora.benchmark.CargaHttp [duracaoSegundos] [clientes...]
+//      (padrão: 20 segundos, 1000 e 10000 clientes)
+//
+// Cada cliente alterna entre a consulta de dívidas de um usuário e a disponibilidade de um item,
+// ambas indo ao banco (o cache de disponibilidade é desligado).
+public final class CargaHttp {
+
+    private static final int USUARIOS = 100;
+    private static final int ITENS = 100;
+    private static final Duration AQUECIMENTO = Duration.ofSeconds(5);
+
+    private CargaHttp() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Duration duracao = Duration.ofSeconds(args.length > 0 ? Long.parseLong(args[0]) : 20);
+        int[] clientes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000};
+
+        List<String> linhas = new ArrayList<>();
+        for (String modo : new String[]{"plataforma", "virtual"}) {
+            try (ConfigurableApplicationContext contexto = iniciar(modo)) {
+                int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+                long[] usuarioIds = new long[USUARIOS];
+                long[] itemIds = new long[ITENS];
+                for (int i = 0; i < USUARIOS; i++) {
+                    Usuario u = ContextoBenchmark.novoUsuario(contexto, "Cliente Carga " + i);
+                    usuarioIds[i] = u.getId();
+                }
+                for (int i = 0; i < ITENS; i++) {
+                    Item item = ContextoBenchmark.novoItem(contexto, 1_000);
+                    itemIds[i] = item.getId();
+                }
+
+                for (int n : clientes) {
+                    executar("http://localhost:" + porta, n, AQUECIMENTO, usuarioIds, itemIds);
+                    Resultado r = executar("http://localhost:" + porta, n, duracao, usuarioIds, itemIds);
+                    linhas.add(String.format("%-10s %8d %10.0f %9.1f %9.1f %9.1f %8d %8d",
+                            modo, n, r.vazao(), r.percentil(0.50), r.percentil(0.99), r.percentil(0.999),
+                            r.rejeitadas(), r.falhas()));
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %8s %10s %9s %9s %9s %8s %8s%n",
+                "modo", "clientes", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "503", "falhas");
+        linhas.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext iniciar(String modo) {
+        return new SpringApplicationBuilder(LocadoraApplication.class)
+                .profiles("virtual".equals(modo) ? new String[]{"virtual"} : new String[0])
+                .logStartupInfo(false)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:carga-" + modo + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--app.cache.disponibilidade.habilitado=false",
+                        // Todos os clientes da carga saem do mesmo IP: sem o limite por cliente
+                        "--app.limite.habilitado=false",
+                        "--logging.level.root=WARN");
+    }
+
+    private static Resultado executar(String base, int clientes, Duration duracao,
+                                      long[] usuarioIds, long[] itemIds) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        LongAdder rejeitadas = new LongAdder();
+        LongAdder falhas = new LongAdder();
+        List<long[]> latencias = new ArrayList<>(clientes);
+        int[] contagens = new int[clientes];
+        long fim = System.nanoTime() + duracao.toNanos();
+
+        // Um cliente por virtual thread: 10k clientes não exigem 10k threads de plataforma no gerador
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clientes; c++) {
+                long[] amostras = new long[4096];
+                latencias.add(amostras);
+                int cliente = c;
+                executor.submit(() -> {
+                    long[] minhas = amostras;
+                    int n = 0;
+                    // Alterna pelas tentativas (não pelas amostras): uma falha não prende o cliente no mesmo endpoint
+                    long tentativas = 0;
+                    ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                    while (System.nanoTime() < fim) {
+                        String caminho = (tentativas++ & 1) == 0
+                                ? "/api/v1/emprestimos/dividas/" + usuarioIds[aleatorio.nextInt(usuarioIds.length)]
+                                : "/itens/" + itemIds[aleatorio.nextInt(itemIds.length)] + "/disponibilidade";
+                        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(base + caminho))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long inicio = System.nanoTime();
+                        try {
+                            HttpResponse<Void> resposta = http.send(requisicao, HttpResponse.BodyHandlers.discarding());
+                            if (resposta.statusCode() == 503) {
+                                rejeitadas.increment();
+                                continue;
+                            }
+                            if (resposta.statusCode() >= 400) {
+                                falhas.increment();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            falhas.increment();
+                            continue;
+                        }
+                        if (n == minhas.length) {
+                            minhas = Arrays.copyOf(minhas, n * 2);
+                            latencias.set(cliente, minhas);
+                        }
+                        minhas[n++] = System.nanoTime() - inicio;
+                        contagens[cliente] = n;
+                    }
+                });
+            }
+        }
+
+        int total = Arrays.stream(contagens).sum();
+        if (total == 0) {
+            // Sem nenhuma resposta de sucesso não há vazão nem percentis a relatar
+            throw new IllegalStateException("Nenhuma requisição bem-sucedida com " + clientes + " clientes ("
+                    + rejeitadas.sum() + " rejeitadas, " + falhas.sum() + " falhas).");
+        }
+        long[] todas = new long[total];
+        int pos = 0;
+        for (int c = 0; c < clientes; c++) {
+            System.arraycopy(latencias.get(c), 0, todas, pos, contagens[c]);
+            pos += contagens[c];
+        }
+        Arrays.sort(todas);
+        return new Resultado(todas, duracao, rejeitadas.sum(), falhas.sum());
+    }
+
+    private record Resultado(long[] latenciasOrdenadas, Duration duracao, long rejeitadas, long falhas) {
+
+        double vazao() {
+            return latenciasOrdenadas.length / (duracao.toMillis() / 1000.0);
+        }
+
+        double percentil(double p) {
+            if (latenciasOrdenadas.length == 0) {
+                return Double.NaN;
+            }
+            int indice = (int) Math.min(latenciasOrdenadas.length - 1, Math.ceil(p * latenciasOrdenadas.length) - 1);
+            return latenciasOrdenadas[Math.max(indice, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.LocadoraApplication;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+
+// Sobe a aplicação sem camada web sobre um H2 em memória exclusivo do benchmark
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar(String banco) {
+        return new SpringApplicationBuilder(LocadoraApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(
+                        // Argumentos de linha de comando têm precedência sobre o application.properties
+                        "--spring.datasource.url=jdbc:h2:mem:" + banco + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+    }
+
+    static Usuario novoUsuario(ConfigurableApplicationContext contexto, String nome) {
+        return contexto.getBean(UsuarioRepository.class).save(Usuario.builder()
+                .nome(nome)
+                .email(nome.toLowerCase().replace(' ', '.') + "@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    static Item novoItem(ConfigurableApplicationContext contexto, int quantidade) {
+        return contexto.getBean(ItemRepository.class).save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(quantidade)
+                .emprestados(0)
+                .build());
+    }
+}
@@ -0,0 +1,83 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.model.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Montagem de GET /itens/disponibilidade em memória (sem banco):
+// agrupamento em Java dos empréstimos ativos (forma anterior) versus leitura dos contadores do item.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisponibilidadeGeralBenchmark {
+
+    @Param({"1000"})
+    int itens;
+
+    @Param({"1000", "50000"})
+    int emprestimosAtivos;
+
+    private List<Item> listaItens;
+    private List<Emprestimo> ativos;
+
+    @Setup
+    public void iniciar() {
+        listaItens = new ArrayList<>();
+        for (long i = 1; i <= itens; i++) {
+            listaItens.add(Item.builder().id(i).nome("Item " + i).quantidade(100).emprestados(0).build());
+        }
+        ativos = new ArrayList<>();
+        for (int i = 0; i < emprestimosAtivos; i++) {
+            Item item = listaItens.get(i % itens);
+            item.setEmprestados(item.getEmprestados() + 1);
+            ativos.add(Emprestimo.builder().id((long) i).item(item).quantidade(1)
+                    .status(StatusEmprestimo.ACTIVE).build());
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> agrupamentoDosEmprestimos() {
+        Map<Long, Integer> emprestadosPorItem = ativos.stream()
+                .collect(Collectors.groupingBy(
+                        e -> e.getItem().getId(),
+                        Collectors.summingInt(Emprestimo::getQuantidade)
+                ));
+
+        List<Map<String, Object>> resposta = new ArrayList<>();
+        for (Item item : listaItens) {
+            int emprestados = emprestadosPorItem.getOrDefault(item.getId(), 0);
+            resposta.add(linha(item, emprestados, item.getQuantidade() - emprestados));
+        }
+        return resposta;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> contadoresDoItem() {
+        List<Map<String, Object>> resposta = new ArrayList<>();
+        for (Item item : listaItens) {
+            resposta.add(linha(item, item.getEmprestados(), item.getDisponivel()));
+        }
+        return resposta;
+    }
+
+    private static Map<String, Object> linha(Item item, int emprestados, int disponivel) {
+        Map<String, Object> dados = new LinkedHashMap<>();
+        dados.put("id", item.getId());
+        dados.put("item", item.getNome());
+        dados.put("quantidade_total", item.getQuantidade());
+        dados.put("emprestados", emprestados);
+        dados.put("disponivel", disponivel);
+        return dados;
+    }
+}
@@ -0,0 +1,100 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.service.EmprestimoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Consulta de dívidas de um usuário com 10 mil empréstimos:
+// consulta única paginada por cursor versus as duas consultas + mescla com List.contains de antes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DividasUsuarioBenchmark {
+
+    private static final int EMPRESTIMOS = 10_000;
+    private static final long BASE_ID = 1_000_000L;
+
+    private ConfigurableApplicationContext contexto;
+    private EmprestimoService service;
+    private EmprestimoRepository emprestimoRepository;
+    private TransactionTemplate transacao;
+    private Long usuarioId;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("bench-dividas");
+        service = contexto.getBean(EmprestimoService.class);
+        emprestimoRepository = contexto.getBean(EmprestimoRepository.class);
+        transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        usuarioId = ContextoBenchmark.novoUsuario(contexto, "Cliente Historico").getId();
+        Long itemId = ContextoBenchmark.novoItem(contexto, 1_000_000).getId();
+
+        // 10% em aberto, ~5% devolvidos com multa, o restante devolvido sem pendência
+        contexto.getBean(JdbcTemplate.class).update(
+                "INSERT INTO EMPRESTIMO (id, usuario_id, item_id, quantidade, data_emprestimo, " +
+                        "data_prevista_devolucao, data_devolucao, renovacoes, status, multa) " +
+                        "SELECT " + BASE_ID + " + X, ?, ?, 1, DATE '2024-01-01', DATE '2024-01-08', " +
+                        "CASE WHEN MOD(X, 10) = 0 THEN NULL ELSE DATE '2024-01-10' END, 0, " +
+                        "CASE WHEN MOD(X, 10) = 0 THEN 'ACTIVE' WHEN MOD(X, 20) = 1 THEN 'LATE' ELSE 'RETURNED' END, " +
+                        "CASE WHEN MOD(X, 20) = 1 THEN 5 ELSE 0 END " +
+                        "FROM SYSTEM_RANGE(1, " + EMPRESTIMOS + ")",
+                usuarioId, itemId);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public PaginaCursor<DividaEmprestimo> primeiraPagina() {
+        return service.consultarDividasUsuario(usuarioId, null, PaginaCursor.LIMITE_PADRAO);
+    }
+
+    @Benchmark
+    public int todasAsPaginas() {
+        int total = 0;
+        Long cursor = null;
+        do {
+            PaginaCursor<DividaEmprestimo> pagina =
+                    service.consultarDividasUsuario(usuarioId, cursor, PaginaCursor.LIMITE_MAXIMO);
+            total += pagina.itens().size();
+            cursor = pagina.proximoCursor();
+        } while (cursor != null);
+        return total;
+    }
+
+    // Forma anterior: duas consultas de entidades e mescla O(n²) com List.contains
+    @Benchmark
+    public int duasConsultasComMescla() {
+        return transacao.execute(status -> {
+            List<Emprestimo> pendentes = new ArrayList<>();
+            for (Emprestimo e : emprestimoRepository.findByUsuarioId(usuarioId)) {
+                if (e.getStatus() == StatusEmprestimo.ACTIVE || e.getStatus() == StatusEmprestimo.LATE) {
+                    pendentes.add(e);
+                }
+            }
+            for (Emprestimo e : emprestimoRepository.findByUsuarioIdAndMultaGreaterThan(usuarioId, 0.0)) {
+                if (!pendentes.contains(e)) {
+                    pendentes.add(e);
+                }
+            }
+            return pendentes.size();
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.dto.EmprestimoRequest;
+import com.locadora.api.dto.ResultadoLoteEmprestimo;
+import com.locadora.api.service.EmprestimoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Empréstimo em lote (POST /lote) versus o mesmo número de chamadas individuais.
+// O contador auxiliar 'linhas' dá a vazão em empréstimos gravados por segundo.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmprestimoLoteBenchmark {
+
+    @Param({"10", "50"})
+    int tamanhoLote;
+
+    private ConfigurableApplicationContext contexto;
+    private EmprestimoService service;
+    private Long usuarioId;
+    private Long itemId;
+    private List<EmprestimoRequest> requests;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Linhas {
+        public long linhas;
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("bench-lote-" + tamanhoLote);
+        service = contexto.getBean(EmprestimoService.class);
+        usuarioId = ContextoBenchmark.novoUsuario(contexto, "Cliente Lote").getId();
+        itemId = ContextoBenchmark.novoItem(contexto, Integer.MAX_VALUE / 2).getId();
+
+        String dataPrevista = LocalDate.now().plusDays(14).toString();
+        requests = new ArrayList<>();
+        for (int i = 0; i < tamanhoLote; i++) {
+            EmprestimoRequest r = new EmprestimoRequest();
+            r.setUsuarioId(usuarioId);
+            r.setItemId(itemId);
+            r.setQuantidade(1);
+            r.setDataPrevistaDevolucao(dataPrevista);
+            requests.add(r);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ResultadoLoteEmprestimo> lote(Linhas contador) {
+        List<ResultadoLoteEmprestimo> resultados = service.emprestarEmLote(requests);
+        contador.linhas += resultados.size();
+        return resultados;
+    }
+
+    @Benchmark
+    public long individual(Linhas contador) {
+        long ultimoId = 0;
+        for (EmprestimoRequest r : requests) {
+            ultimoId = service.emprestar(r.getUsuarioId(), r.getItemId(), r.getQuantidade(),
+                    LocalDate.parse(r.getDataPrevistaDevolucao())).getId();
+        }
+        contador.linhas += requests.size();
+        return ultimoId;
+    }
+}
@@ -0,0 +1,105 @@
+package com.locadora.benchmark;
+
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.service.EmprestimoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Ciclo de vida do empréstimo (emprestar / renovar / devolver) via EmprestimoService, com H2 em memória.
+// Cada operação devolve o que emprestou, então o estoque do item não se esgota durante a medição.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmprestimoServiceBenchmark {
+
+    private ConfigurableApplicationContext contexto;
+    private EmprestimoService service;
+    private ItemRepository itemRepository;
+    private TransactionTemplate transacao;
+    private Long usuarioId;
+    private Long itemId;
+    private LocalDate dataPrevista;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("bench-ciclo");
+        service = contexto.getBean(EmprestimoService.class);
+        itemRepository = contexto.getBean(ItemRepository.class);
+        transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        usuarioId = ContextoBenchmark.novoUsuario(contexto, "Cliente Benchmark").getId();
+        itemId = ContextoBenchmark.novoItem(contexto, 1_000_000).getId();
+        dataPrevista = LocalDate.now().plusDays(14);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Emprestimo emprestarDevolver() {
+        Emprestimo emprestimo = service.emprestar(usuarioId, itemId, 1, dataPrevista);
+        return service.devolver(emprestimo.getId());
+    }
+
+    @Benchmark
+    public Emprestimo emprestarRenovarDevolver() {
+        Emprestimo emprestimo = service.emprestar(usuarioId, itemId, 1, dataPrevista);
+        service.renovar(emprestimo.getId(), 7);
+        return service.devolver(emprestimo.getId());
+    }
+
+    // Mesmo item disputado por várias threads: mede a reserva atômica de estoque sob contenção
+    @Benchmark
+    @Threads(8)
+    public Emprestimo emprestarDevolverItemDisputado() {
+        Emprestimo emprestimo = service.emprestar(usuarioId, itemId, 1, dataPrevista);
+        return service.devolver(emprestimo.getId());
+    }
+
+    // 🔹 Só o passo de estoque, reservando e devolvendo uma unidade do item disputado. A reserva atômica
+    // (UPDATE condicional, usada pelo emprestar) fica ao lado do caminho anterior, que lê, confere e grava.
+    @Benchmark
+    @Threads(8)
+    public int reservaAtomicaItemDisputado() {
+        return transacao.execute(status -> itemRepository.reservarEstoque(itemId, 1))
+                + transacao.execute(status -> itemRepository.devolverEstoque(itemId, 1));
+    }
+
+    // Caminho anterior: find / confere em Java / save. Com a versão otimista do item, a gravação concorrente
+    // falha em vez de perder a atualização; a operação é repetida até passar, como faria o cliente
+    @Benchmark
+    @Threads(8)
+    public int lerModificarGravarItemDisputado() {
+        return repetirAtePassar(1) + repetirAtePassar(-1);
+    }
+
+    private int repetirAtePassar(int unidades) {
+        while (true) {
+            try {
+                transacao.executeWithoutResult(status -> {
+                    Item item = itemRepository.findById(itemId).orElseThrow();
+                    if (unidades > item.getDisponivel()) {
+                        throw new IllegalStateException("Estoque insuficiente");
+                    }
+                    item.setEmprestados(item.getEmprestados() + unidades);
+                    itemRepository.save(item);
+                });
+                return 1;
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // Outra thread gravou o item entre a leitura e a gravação
+            }
+        }
+    }
+}
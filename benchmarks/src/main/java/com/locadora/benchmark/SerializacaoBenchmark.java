@@ -0,0 +1,133 @@
+package com.locadora.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.locadora.api.dto.DividaAtiva;
+import com.locadora.api.dto.EmprestimoDetalhe;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Serialização Jackson de um Emprestimo com usuário e item (como em POST /emprestimos e /devolver),
+// do HashMap que era montado por requisição em EmprestimoController.consultarEmprestimo e do
+// registro EmprestimoDetalhe com ObjectWriter pré-resolvido que o substituiu; o mesmo para as
+// 500 linhas de GET /usuarios/dividas (HashMap por linha x DividaAtiva).
+// SampleTime reporta p99/p99.9; rode com "-prof gc" para ver a taxa de alocação (gc.alloc.rate.norm).
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    private static final int LINHAS_DIVIDAS = 500;
+
+    private ObjectMapper mapper;
+    private ObjectWriter escritorDetalhe;
+    private ObjectWriter escritorDividas;
+    private Emprestimo emprestimo;
+    private List<Emprestimo> emprestimosComMulta;
+
+    @Setup
+    public void iniciar() {
+        mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        Usuario usuario = Usuario.builder()
+                .id(1L).nome("João da Silva").email("joao@email.com").telefone("51999999999")
+                .divida(BigDecimal.ZERO)
+                .build();
+        Item item = Item.builder()
+                .id(2L).nome("Cortador de Grama").descricao("Equipamento de jardim").categoria("Jardinagem")
+                .quantidade(5).emprestados(1)
+                .build();
+        emprestimo = Emprestimo.builder()
+                .id(3L).usuario(usuario).item(item).quantidade(1)
+                .dataEmprestimo(LocalDate.of(2024, 1, 1))
+                .dataPrevistaDevolucao(LocalDate.of(2024, 1, 8))
+                .renovacoes(0).status(StatusEmprestimo.ACTIVE).multa(0.0)
+                .build();
+
+        emprestimosComMulta = new ArrayList<>(LINHAS_DIVIDAS);
+        for (int i = 0; i < LINHAS_DIVIDAS; i++) {
+            emprestimosComMulta.add(Emprestimo.builder()
+                    .id((long) i).usuario(usuario).item(item).quantidade(1)
+                    .dataEmprestimo(LocalDate.of(2024, 1, 1))
+                    .dataPrevistaDevolucao(LocalDate.of(2024, 1, 8))
+                    .renovacoes(0).status(StatusEmprestimo.LATE).multa(2.5 * (i + 1))
+                    .build());
+        }
+
+        escritorDetalhe = mapper.writerFor(EmprestimoDetalhe.class);
+        escritorDividas = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, DividaAtiva.class));
+    }
+
+    @Benchmark
+    public byte[] entidadeComAssociacoes() throws Exception {
+        return mapper.writeValueAsBytes(emprestimo);
+    }
+
+    @Benchmark
+    public byte[] mapaPorRequisicao() throws Exception {
+        Map<String, Object> response = new HashMap<String, Object>();
+        response.put("id", emprestimo.getId());
+        response.put("status", emprestimo.getStatus().getLabel());
+        response.put("multa", emprestimo.getMulta());
+        response.put("dataEmprestimo", emprestimo.getDataEmprestimo());
+        response.put("dataPrevistaDevolucao", emprestimo.getDataPrevistaDevolucao());
+        response.put("dataDevolucao", emprestimo.getDataDevolucao());
+        response.put("usuario", emprestimo.getUsuario().getNome());
+        response.put("item", emprestimo.getItem().getNome());
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] registroTipado() throws Exception {
+        return escritorDetalhe.writeValueAsBytes(EmprestimoDetalhe.de(emprestimo));
+    }
+
+    @Benchmark
+    public byte[] dividasMapaPorLinha() throws Exception {
+        List<Map<String, Object>> resposta = new ArrayList<>();
+        for (Emprestimo e : emprestimosComMulta) {
+            Map<String, Object> dados = new HashMap<>();
+            dados.put("emprestimoId", e.getId());
+            dados.put("usuarioId", e.getUsuario().getId());
+            dados.put("nome", e.getUsuario().getNome());
+            dados.put("email", e.getUsuario().getEmail());
+            dados.put("divida", e.getMulta());
+            dados.put("statusEmprestimo", e.getStatus().name());
+            dados.put("dataPrevista", e.getDataPrevistaDevolucao());
+            dados.put("dataDevolucao", e.getDataDevolucao());
+            resposta.add(dados);
+        }
+        return mapper.writeValueAsBytes(resposta);
+    }
+
+    @Benchmark
+    public byte[] dividasRegistros() throws Exception {
+        List<DividaAtiva> resposta = new ArrayList<>(emprestimosComMulta.size());
+        for (Emprestimo e : emprestimosComMulta) {
+            resposta.add(new DividaAtiva(e.getId(), e.getUsuario().getId(), e.getUsuario().getNome(),
+                    e.getUsuario().getEmail(), e.getMulta(), e.getStatus(),
+                    e.getDataPrevistaDevolucao(), e.getDataDevolucao()));
+        }
+        return escritorDividas.writeValueAsBytes(resposta);
+    }
+}
@@ -0,0 +1,33 @@
+package com.locadora.api.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Balde de tokens sem trava (algoritmo GCRA): o estado é um único instante teórico de chegada,
+// atualizado por compare-and-set. Permite rajadas de 'rajada' requisições e repõe 'taxa' por segundo.
+final class BaldeTokens {
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final AtomicLong chegadaTeorica;
+
+    BaldeTokens(double taxaPorSegundo, int rajada, long agora) {
+        this.intervaloNanos = (long) (1_000_000_000L / taxaPorSegundo);
+        this.toleranciaNanos = intervaloNanos * rajada;
+        this.chegadaTeorica = new AtomicLong(agora);
+    }
+
+    // 🔹 Consome um token; retorna 0 se permitido ou quantos nanos faltam para o próximo token
+    long tentar(long agora) {
+        while (true) {
+            long atual = chegadaTeorica.get();
+            long proxima = Math.max(atual, agora) + intervaloNanos;
+            long espera = proxima - agora - toleranciaNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (chegadaTeorica.compareAndSet(atual, proxima)) {
+                return 0;
+            }
+        }
+    }
+}
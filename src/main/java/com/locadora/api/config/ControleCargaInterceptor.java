@@ -0,0 +1,116 @@
+package com.locadora.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Na frente das APIs de empréstimo e usuário:
+//  1) descarte de carga — 503 com Retry-After quando há requisições demais em andamento
+//     ou threads demais esperando conexão do Hikari (o pool já está saturado);
+//  2) limite de taxa por cliente (IdentidadeCliente) e, nas rotas com {usuarioId} ou /usuarios/{id}, por usuário (429 com Retry-After).
+// O limite por usuarioId dos POSTs de empréstimo (id no corpo) é aplicado no EmprestimoController.
+@Component
+public class ControleCargaInterceptor implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_CONTADO = ControleCargaInterceptor.class.getName() + ".contado";
+
+    private final LimitadorTaxa limitador;
+    private final IdentidadeCliente identidade;
+    private final MeterRegistry meterRegistry;
+    private final HikariDataSource hikari;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final int maximoEmAndamento;
+    private final int maximoAguardandoConexao;
+
+    public ControleCargaInterceptor(LimitadorTaxa limitador, IdentidadeCliente identidade,
+                                    MeterRegistry meterRegistry, DataSource dataSource,
+                                    @Value("${app.carga.max-em-andamento:200}") int maximoEmAndamento,
+                                    @Value("${app.carga.max-aguardando-conexao:20}") int maximoAguardandoConexao) {
+        this.limitador = limitador;
+        this.identidade = identidade;
+        this.meterRegistry = meterRegistry;
+        this.hikari = hikari(dataSource);
+        this.maximoEmAndamento = maximoEmAndamento;
+        this.maximoAguardandoConexao = maximoAguardandoConexao;
+        Gauge.builder("locadora.requisicoes.em_andamento", emAndamento, AtomicInteger::get)
+                .description("Requisições em andamento nas APIs de empréstimo e usuário")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (emAndamento.incrementAndGet() > maximoEmAndamento) {
+            emAndamento.decrementAndGet();
+            throw descartar("em_andamento");
+        }
+        // 🔹 Se preHandle lança, o afterCompletion deste interceptor não roda: libera aqui
+        try {
+            verificar(request);
+        } catch (RuntimeException e) {
+            emAndamento.decrementAndGet();
+            throw e;
+        }
+        request.setAttribute(ATRIBUTO_CONTADO, Boolean.TRUE);
+        return true;
+    }
+
+    private void verificar(HttpServletRequest request) {
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool != null && pool.getThreadsAwaitingConnection() > maximoAguardandoConexao) {
+            throw descartar("pool");
+        }
+
+        limitador.verificarCliente(identidade.de(request));
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variaveis = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String usuarioId = variaveis == null ? null
+                : variaveis.containsKey("usuarioId") ? variaveis.get("usuarioId")
+                : request.getRequestURI().startsWith("/usuarios/") ? variaveis.get("id")
+                : null;
+        if (usuarioId != null) {
+            try {
+                limitador.verificarUsuario(Long.valueOf(usuarioId));
+            } catch (NumberFormatException e) {
+                // id inválido: o próprio controller responde
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO_CONTADO) != null) {
+            emAndamento.decrementAndGet();
+        }
+    }
+
+    private LimiteExcedidoException descartar(String motivo) {
+        meterRegistry.counter("locadora.requisicoes.rejeitadas", "motivo", motivo).increment();
+        return new LimiteExcedidoException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Servidor sobrecarregado. Tente novamente.", 1);
+    }
+
+    // 🔹 O MXBean só existe depois que o pool inicia, por isso é consultado a cada requisição
+    private static HikariDataSource hikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class)
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.locadora.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Suporte ao cabeçalho Idempotency-Key nos POSTs de /api/v1/emprestimos (criar, lote, devolver, renovar).
+//
+// A primeira requisição com uma chave registra um CompletableFuture no mapa (putIfAbsent, sem trava global)
+// e executa normalmente; a resposta 2xx fica guardada e é repetida byte a byte para as duplicatas.
+// Uma duplicata que chega com a original ainda em andamento espera apenas por aquele futuro.
+// Respostas de erro não são guardadas: a transação foi desfeita, então a chave é liberada para nova tentativa.
+// Reusar a chave com outro método/caminho/corpo resulta em 422. As chaves valem por cliente (IdentidadeCliente):
+// a mesma chave enviada por outro cliente é outra operação e nunca recebe a resposta guardada de ninguém.
+//
+// O armazenamento é um cache Caffeine limitado pelo tamanho das respostas guardadas e com expiração (TTL);
+// sob pressão de memória as chaves mais antigas são descartadas primeiro. Ele fica na memória do processo:
+// cada instância tem o seu e tudo se perde num restart. Com mais de uma instância, a garantia só vale se
+// o balanceador mandar o mesmo cliente sempre para a mesma instância (afinidade por IP/usuário).
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO = "Idempotency-Key";
+    private static final String PREFIXO = "/api/v1/emprestimos";
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    private final IdentidadeCliente identidade;
+    private final Cache<String, CompletableFuture<RespostaGravada>> respostas;
+    private final long esperaMillis;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotenciaFilter(MeterRegistry meterRegistry, IdentidadeCliente identidade,
+                              @Value("${app.idempotencia.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotencia.memoria-maxima:64MB}") DataSize memoriaMaxima,
+                              @Value("${app.idempotencia.espera:30s}") Duration espera) {
+        this.meterRegistry = meterRegistry;
+        this.identidade = identidade;
+        this.esperaMillis = espera.toMillis();
+        this.respostas = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(memoriaMaxima.toBytes())
+                .weigher((String chave, CompletableFuture<RespostaGravada> futuro) -> chave.length() + peso(futuro))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(PREFIXO)
+                || request.getHeader(CABECALHO) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String enviada = request.getHeader(CABECALHO).trim();
+        if (enviada.isEmpty() || enviada.length() > TAMANHO_MAXIMO_CHAVE) {
+            responderErro(response, HttpStatus.BAD_REQUEST,
+                    "O cabeçalho " + CABECALHO + " deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+            return;
+        }
+        String chave = identidade.de(request) + "\n" + enviada;
+
+        CorpoEmCache requisicao = new CorpoEmCache(request);
+        String assinatura = assinatura(requisicao);
+
+        while (true) {
+            CompletableFuture<RespostaGravada> meu = new CompletableFuture<>();
+            CompletableFuture<RespostaGravada> existente = respostas.asMap().putIfAbsent(chave, meu);
+
+            if (existente == null) {
+                executar(chave, assinatura, meu, requisicao, response, chain);
+                return;
+            }
+
+            RespostaGravada anterior;
+            try {
+                anterior = existente.get(esperaMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                responderErro(response, HttpStatus.CONFLICT,
+                        "Uma requisição com esta " + CABECALHO + " ainda está em processamento.");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                anterior = null;
+            }
+
+            if (anterior == null) {
+                // A original falhou e liberou a chave: esta requisição tenta de novo
+                respostas.asMap().remove(chave, existente);
+                continue;
+            }
+            if (!anterior.assinatura().equals(assinatura)) {
+                contar("conflito");
+                responderErro(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Esta " + CABECALHO + " já foi usada em outra requisição.");
+                return;
+            }
+
+            contar("repetida");
+            response.setStatus(anterior.status());
+            if (anterior.contentType() != null) {
+                response.setContentType(anterior.contentType());
+            }
+            response.setHeader("Idempotent-Replayed", "true");
+            response.setContentLength(anterior.corpo().length);
+            response.getOutputStream().write(anterior.corpo());
+            return;
+        }
+    }
+
+    private void executar(String chave, String assinatura, CompletableFuture<RespostaGravada> meu,
+                          HttpServletRequest requisicao, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper capturada = new ContentCachingResponseWrapper(response);
+        RespostaGravada gravada = null;
+        try {
+            chain.doFilter(requisicao, capturada);
+            int status = capturada.getStatus();
+            if (status >= 200 && status < 300) {
+                gravada = new RespostaGravada(assinatura, status, capturada.getContentType(),
+                        capturada.getContentAsByteArray());
+            }
+        } finally {
+            if (gravada != null) {
+                meu.complete(gravada);
+                // Reinsere para o Caffeine recalcular o peso com o corpo já conhecido
+                respostas.asMap().replace(chave, meu, meu);
+                contar("executada");
+            } else {
+                respostas.asMap().remove(chave, meu);
+                meu.complete(null);
+            }
+            capturada.copyBodyToResponse();
+        }
+    }
+
+    // Em andamento: peso estimado; concluída: tamanho do corpo guardado
+    private static int peso(CompletableFuture<RespostaGravada> futuro) {
+        RespostaGravada resposta = futuro.getNow(null);
+        return resposta != null ? resposta.tamanho() : 256;
+    }
+
+    private void contar(String resultado) {
+        meterRegistry.counter("locadora.idempotencia", "resultado", resultado).increment();
+    }
+
+    private static void responderErro(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"erro\":\"" + mensagem.replace("\"", "'") + "\"}");
+    }
+
+    private static String assinatura(CorpoEmCache requisicao) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update((requisicao.getMethod() + " " + requisicao.getRequestURI() + "?"
+                    + (requisicao.getQueryString() == null ? "" : requisicao.getQueryString()) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            sha.update(requisicao.corpo);
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record RespostaGravada(String assinatura, int status, String contentType, byte[] corpo) {
+
+        int tamanho() {
+            return corpo.length + 128;
+        }
+    }
+
+    // Lê o corpo uma vez (para a assinatura) e o entrega de novo ao controller
+    private static final class CorpoEmCache extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoEmCache(HttpServletRequest request) throws IOException {
+            super(request);
+            this.corpo = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream dados = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return dados.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // 🔹 O corpo já está todo em memória: avisa o leitor assíncrono na hora
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return dados.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return dados.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(charset)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return corpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return corpo.length;
+        }
+    }
+}
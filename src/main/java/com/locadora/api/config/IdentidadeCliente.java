@@ -0,0 +1,59 @@
+package com.locadora.api.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+
+// Identidade do cliente usada como chave do limite de taxa e do escopo das chaves de idempotência.
+// Nada que o cliente escreve livremente entra na chave:
+//  1) usuário autenticado (Principal do container), quando houver;
+//  2) senão, o endereço de origem. Atrás de proxies confiáveis (app.limite.proxies-confiaveis, endereços
+//     exatos) vale o X-Forwarded-For, lido da direita para a esquerda até o primeiro endereço que não é
+//     de um proxy da lista. Requisições que não vêm de um proxy da lista usam o endereço da conexão.
+@Component
+public class IdentidadeCliente {
+
+    private static final String ENCAMINHADO_PARA = "X-Forwarded-For";
+
+    private final Set<String> proxiesConfiaveis;
+
+    public IdentidadeCliente(@Value("${app.limite.proxies-confiaveis:}") List<String> proxiesConfiaveis) {
+        this.proxiesConfiaveis = Set.copyOf(proxiesConfiaveis.stream()
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .toList());
+    }
+
+    public String de(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && principal.getName() != null) {
+            return "usuario:" + principal.getName();
+        }
+        return "ip:" + endereco(request);
+    }
+
+    private String endereco(HttpServletRequest request) {
+        String remoto = request.getRemoteAddr();
+        String encaminhado = request.getHeader(ENCAMINHADO_PARA);
+        if (encaminhado == null || !proxiesConfiaveis.contains(remoto)) {
+            return remoto;
+        }
+        // 🔹 Cada proxy acrescenta à direita o endereço de quem o chamou; o que está à esquerda do
+        // primeiro proxy desconhecido pode ter sido forjado pelo cliente
+        String[] saltos = encaminhado.split(",");
+        for (int i = saltos.length - 1; i >= 0; i--) {
+            String salto = saltos[i].trim();
+            if (salto.isEmpty()) {
+                break;
+            }
+            if (!proxiesConfiaveis.contains(salto)) {
+                return salto;
+            }
+        }
+        return remoto;
+    }
+}
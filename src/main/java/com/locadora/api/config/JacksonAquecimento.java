@@ -0,0 +1,39 @@
+package com.locadora.api.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.locadora.api.dto.DisponibilidadeGeralItem;
+import com.locadora.api.dto.DisponibilidadeResposta;
+import com.locadora.api.dto.DividaAtiva;
+import com.locadora.api.dto.EmprestimoDetalhe;
+import com.locadora.api.dto.RenovacaoEmprestimo;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Só aquece o cache de serializadores do ObjectMapper na subida: writerFor já resolve o serializador do tipo
+// (EAGER_SERIALIZER_FETCH) e o guarda no cache do mapper; os writers são descartados e as respostas seguem
+// pelo conversor do Spring MVC, que encontra o serializador pronto.
+@Component
+public class JacksonAquecimento {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonAquecimento(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aquecer() {
+        for (Class<?> tipo : List.of(EmprestimoDetalhe.class, RenovacaoEmprestimo.class,
+                DisponibilidadeResposta.class)) {
+            objectMapper.writerFor(tipo);
+        }
+        for (Class<?> tipo : List.of(DisponibilidadeGeralItem.class, DividaAtiva.class)) {
+            JavaType lista = objectMapper.getTypeFactory().constructCollectionType(List.class, tipo);
+            objectMapper.writerFor(lista);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.locadora.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Limite de requisições por cliente (usuário autenticado ou IP, ver IdentidadeCliente) e por usuarioId, com um BaldeTokens por chave.
+// Os baldes ficam num cache Caffeine que descarta os ociosos (um balde ocioso está cheio, então
+// removê-lo não altera o limite) e limita a quantidade de chaves em memória.
+@Component
+public class LimitadorTaxa {
+
+    public enum Escopo {
+        CLIENTE("cliente"),
+        USUARIO("usuario");
+
+        private final String tag;
+
+        Escopo(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final boolean habilitado;
+    private final double taxaCliente;
+    private final int rajadaCliente;
+    private final double taxaUsuario;
+    private final int rajadaUsuario;
+    private final Cache<String, BaldeTokens> baldes;
+    private final MeterRegistry meterRegistry;
+
+    public LimitadorTaxa(MeterRegistry meterRegistry,
+                         @Value("${app.limite.habilitado:true}") boolean habilitado,
+                         @Value("${app.limite.cliente.taxa:20}") double taxaCliente,
+                         @Value("${app.limite.cliente.rajada:40}") int rajadaCliente,
+                         @Value("${app.limite.usuario.taxa:5}") double taxaUsuario,
+                         @Value("${app.limite.usuario.rajada:10}") int rajadaUsuario,
+                         @Value("${app.limite.inatividade:10m}") Duration inatividade,
+                         @Value("${app.limite.maximo-chaves:100000}") long maximoChaves) {
+        this.meterRegistry = meterRegistry;
+        this.habilitado = habilitado;
+        this.taxaCliente = taxaCliente;
+        this.rajadaCliente = rajadaCliente;
+        this.taxaUsuario = taxaUsuario;
+        this.rajadaUsuario = rajadaUsuario;
+        this.baldes = Caffeine.newBuilder()
+                .expireAfterAccess(inatividade)
+                .maximumSize(maximoChaves)
+                .build();
+    }
+
+    public void verificarCliente(String cliente) {
+        verificar(Escopo.CLIENTE, cliente);
+    }
+
+    public void verificarUsuario(Long usuarioId) {
+        if (usuarioId != null) {
+            verificar(Escopo.USUARIO, usuarioId.toString());
+        }
+    }
+
+    private void verificar(Escopo escopo, String chave) {
+        if (!habilitado) {
+            return;
+        }
+        long agora = System.nanoTime();
+        BaldeTokens balde = baldes.get(escopo.tag + ":" + chave, k -> escopo == Escopo.CLIENTE
+                ? new BaldeTokens(taxaCliente, rajadaCliente, agora)
+                : new BaldeTokens(taxaUsuario, rajadaUsuario, agora));
+
+        long espera = balde.tentar(agora);
+        if (espera > 0) {
+            meterRegistry.counter("locadora.requisicoes.rejeitadas", "motivo", escopo.tag).increment();
+            throw new LimiteExcedidoException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Limite de requisições excedido. Tente novamente em instantes.",
+                    TimeUnit.NANOSECONDS.toSeconds(espera) + 1);
+        }
+    }
+}
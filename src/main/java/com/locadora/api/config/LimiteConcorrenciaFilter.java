@@ -0,0 +1,65 @@
+package com.locadora.api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Limita quantas requisições entram na aplicação ao mesmo tempo.
+// Com virtual threads o Tomcat deixa de impor esse teto, e milhares de requisições
+// disputariam as poucas conexões do Hikari; aqui elas esperam na fila do semáforo
+// e, passado o tempo de espera, recebem 503 em vez de estourar o timeout do pool.
+@Component
+@ConditionalOnProperty(name = "app.concorrencia.habilitado", havingValue = "true")
+public class LimiteConcorrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permissoes;
+    private final long esperaMillis;
+
+    public LimiteConcorrenciaFilter(@Value("${app.concorrencia.maximo:200}") int maximo,
+                                    @Value("${app.concorrencia.espera:2s}") Duration espera) {
+        this.permissoes = new Semaphore(maximo, true);
+        this.esperaMillis = espera.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean obtida;
+        try {
+            obtida = permissoes.tryAcquire(esperaMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            obtida = false;
+        }
+
+        if (!obtida) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write("{\"erro\":\"Servidor sobrecarregado. Tente novamente.\"}");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permissoes.release();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.locadora.api.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// 429/503 com o cabeçalho Retry-After (em segundos)
+public class LimiteExcedidoException extends ResponseStatusException {
+
+    private final long retryAfterSegundos;
+
+    public LimiteExcedidoException(HttpStatus status, String mensagem, long retryAfterSegundos) {
+        super(status, mensagem);
+        this.retryAfterSegundos = Math.max(1, retryAfterSegundos);
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos));
+        return headers;
+    }
+}
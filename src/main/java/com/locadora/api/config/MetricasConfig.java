@@ -0,0 +1,38 @@
+package com.locadora.api.config;
+
+import com.locadora.api.metrics.ContadorStatements;
+import com.locadora.api.metrics.StatementsPorRequisicaoInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Instrumentação de persistência: contagem de SQL por requisição; controle de carga nas APIs de empréstimo e usuário.
+// Latência por endpoint (http.server.requests) e espera por conexão (hikaricp.connections.acquire)
+// vêm da auto-configuração do Actuator.
+@Configuration
+public class MetricasConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry registry;
+    private final ControleCargaInterceptor controleCarga;
+
+    public MetricasConfig(MeterRegistry registry, ControleCargaInterceptor controleCarga) {
+        this.registry = registry;
+        this.controleCarga = controleCarga;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorStatementsCustomizer() {
+        return propriedades -> propriedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorStatements());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new StatementsPorRequisicaoInterceptor(registry));
+        interceptors.addInterceptor(controleCarga)
+                .addPathPatterns("/api/v1/emprestimos", "/api/v1/emprestimos/**", "/usuarios", "/usuarios/**");
+    }
+}
@@ -1,13 +1,36 @@
 package com.locadora.api.controller;
 
+import com.locadora.api.config.LimitadorTaxa;
 import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.EmprestimoDetalhe;
 import com.locadora.api.dto.EmprestimoRequest;
+import com.locadora.api.dto.EmprestimoResumo;
+import com.locadora.api.dto.FiltroExportacao;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.dto.RenovacaoEmprestimo;
+import com.locadora.api.dto.ReservaEsperaDetalhe;
+import com.locadora.api.dto.ReservaRequest;
+import com.locadora.api.dto.ResultadoLoteEmprestimo;
 import com.locadora.api.service.EmprestimoService;
+import com.locadora.api.service.ExportacaoEmprestimoService;
+import com.locadora.api.service.ReservaEsperaService;
+import com.locadora.api.service.VarreduraAtrasoService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -16,18 +39,31 @@ import java.util.Map;
 public class EmprestimoController {
 
     private final EmprestimoService service;
-
-    public EmprestimoController(EmprestimoService service) {
+    private final VarreduraAtrasoService varreduraAtrasoService;
+    private final ExportacaoEmprestimoService exportacaoService;
+    private final ReservaEsperaService reservaService;
+    private final LimitadorTaxa limitador;
+
+    public EmprestimoController(EmprestimoService service, VarreduraAtrasoService varreduraAtrasoService,
+                                ExportacaoEmprestimoService exportacaoService, ReservaEsperaService reservaService,
+                                LimitadorTaxa limitador) {
         this.service = service;
+        this.varreduraAtrasoService = varreduraAtrasoService;
+        this.exportacaoService = exportacaoService;
+        this.reservaService = reservaService;
+        this.limitador = limitador;
     }
 
     @GetMapping
-    public List<Emprestimo> listar() {
-        return service.listar();
+    public PaginaCursor<EmprestimoResumo> listar(@RequestParam(value = "after", required = false) Long after,
+                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                 @RequestParam(value = "total", defaultValue = "false") boolean total) {
+        return service.listar(after, limit, total);
     }
 
     @PostMapping
     public Emprestimo criar(@RequestBody EmprestimoRequest request) {
+        limitador.verificarUsuario(request.getUsuarioId());
         return service.emprestar(
                 request.getUsuarioId(),
                 request.getItemId(),
@@ -36,47 +72,111 @@ public class EmprestimoController {
         );
     }
 
+    // Vários empréstimos (de um ou mais usuários) em uma única chamada, com resultado por linha
+    @PostMapping("/lote")
+    public List<ResultadoLoteEmprestimo> criarEmLote(@RequestBody List<EmprestimoRequest> requests) {
+        // 🔹 Um token por usuário distinto do lote (o lote já conta como uma requisição do cliente)
+        requests.stream().map(EmprestimoRequest::getUsuarioId).distinct().forEach(limitador::verificarUsuario);
+        return service.emprestarEmLote(requests);
+    }
+
     @PostMapping("/{id}/devolver")
     public Emprestimo devolver(@PathVariable("id") Long id) {
-        return service.devolver(id);
+        try {
+            return service.devolver(id);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Empréstimo alterado por outra operação. Tente novamente.");
+        }
     }
 
     @PostMapping("/{id}/renovar")
-    public Map<String, Object> renovar(@PathVariable("id") Long id,
+    public RenovacaoEmprestimo renovar(@PathVariable("id") Long id,
                                        @RequestParam(value = "diasExtra", required = false) Integer diasExtra) {
+        return RenovacaoEmprestimo.de(service.renovar(id, diasExtra));
+    }
 
-        Emprestimo emprestimo = service.renovar(id, diasExtra);
+    // Entrada na fila de espera de um item esgotado; na devolução as unidades são separadas
+    // para o primeiro da fila, que tem até 'app.reservas.janela' para fazer o empréstimo
+    @PostMapping("/reservas")
+    public ReservaEsperaDetalhe reservar(@RequestBody ReservaRequest request) {
+        limitador.verificarUsuario(request.getUsuarioId());
+        return reservaService.entrar(request.getUsuarioId(), request.getItemId(), request.getQuantidade());
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("id", emprestimo.getId());
-        response.put("status", emprestimo.getStatus().name());
-        response.put("renovacoes", emprestimo.getRenovacoes());
-        response.put("novaDataPrevistaDevolucao", emprestimo.getDataPrevistaDevolucao());
-        response.put("mensagem", "Renovação realizada com sucesso.");
+    // Situação da reserva e posição na fila
+    @GetMapping("/reservas/{id}")
+    public ReservaEsperaDetalhe consultarReserva(@PathVariable("id") Long id) {
+        return reservaService.consultar(id);
+    }
 
-        return response;
+    @DeleteMapping("/reservas/{id}")
+    public ReservaEsperaDetalhe cancelarReserva(@PathVariable("id") Long id) {
+        return reservaService.cancelar(id);
     }
 
+    // Executa a varredura de atrasos do dia sob demanda (idempotente)
+    @PostMapping("/atrasos/varrer")
+    public Map<String, Object> varrerAtrasos() {
+        int atualizados = varreduraAtrasoService.varrer(LocalDate.now());
+        return Collections.singletonMap("emprestimosAtualizados", atualizados);
+    }
 
     @GetMapping("/dividas/{usuarioId}")
-    public List<Emprestimo> consultarDividas(@PathVariable("usuarioId") Long usuarioId) {
-        return service.consultarDividasUsuario(usuarioId);
+    public PaginaCursor<DividaEmprestimo> consultarDividas(@PathVariable("usuarioId") Long usuarioId,
+                                                           @RequestParam(value = "after", required = false) Long after,
+                                                           @RequestParam(value = "limit", required = false) Integer limit) {
+        return service.consultarDividasUsuario(usuarioId, after, limit);
+    }
+
+    // Histórico completo do usuário (empréstimos em aberto e arquivados)
+    @GetMapping("/historico/{usuarioId}")
+    public PaginaCursor<EmprestimoResumo> historico(@PathVariable("usuarioId") Long usuarioId,
+                                                    @RequestParam(value = "after", required = false) Long after,
+                                                    @RequestParam(value = "limit", required = false) Integer limit) {
+        return service.historicoUsuario(usuarioId, after, limit);
+    }
+
+    // Histórico completo para auditoria, escrito em streaming (NDJSON ou CSV) direto do cursor do banco
+    @GetMapping("/exportacao")
+    public void exportar(@RequestParam(value = "formato", defaultValue = "ndjson") String formato,
+                         @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                         @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                         @RequestParam(value = "status", required = false) String status,
+                         @RequestParam(value = "usuarioId", required = false) Long usuarioId,
+                         HttpServletResponse response) throws IOException {
+        ExportacaoEmprestimoService.Formato tipo;
+        try {
+            tipo = ExportacaoEmprestimoService.Formato.valueOf(formato.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato inválido: use ndjson ou csv.");
+        }
+        FiltroExportacao filtro = new FiltroExportacao(de, ate, status == null ? null : statusExportacao(status), usuarioId);
+
+        response.setContentType(tipo == ExportacaoEmprestimoService.Formato.CSV
+                ? "text/csv;charset=UTF-8"
+                : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"emprestimos." + tipo.name().toLowerCase(Locale.ROOT) + "\"");
+        exportacaoService.exportar(filtro, tipo, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
-    public Object consultarEmprestimo(@PathVariable("id") Long id) {
-        Emprestimo emprestimo = service.consultarEmprestimo(id);
-
-        Map<String, Object> response = new HashMap<String, Object>();
-        response.put("id", emprestimo.getId());
-        response.put("status", emprestimo.getStatus().getLabel());
-        response.put("multa", emprestimo.getMulta());
-        response.put("dataEmprestimo", emprestimo.getDataEmprestimo());
-        response.put("dataPrevistaDevolucao", emprestimo.getDataPrevistaDevolucao());
-        response.put("dataDevolucao", emprestimo.getDataDevolucao());
-        response.put("usuario", emprestimo.getUsuario().getNome());
-        response.put("item", emprestimo.getItem().getNome());
-
-        return response;
+    public EmprestimoDetalhe consultarEmprestimo(@PathVariable("id") Long id) {
+        return EmprestimoDetalhe.de(service.consultarEmprestimo(id));
+    }
+
+    // Aceita o nome (RETURNED) ou o rótulo (DEVOLVIDO) do status
+    private static StatusEmprestimo statusExportacao(String status) {
+        for (StatusEmprestimo s : StatusEmprestimo.values()) {
+            if (s.name().equalsIgnoreCase(status)) {
+                return s;
+            }
+        }
+        try {
+            return StatusEmprestimo.fromLabel(status);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 }
@@ -0,0 +1,54 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.dto.VersaoRegistro;
+
+import java.util.List;
+
+// ETags fortes derivados das colunas 'versao' (nenhum corpo precisa ser carregado ou serializado)
+final class Etags {
+
+    private Etags() {
+    }
+
+    // "item-12-v7"
+    static String recurso(String tipo, Long id, Long versao) {
+        return "\"" + tipo + "-" + id + "-v" + (versao == null ? 0 : versao) + "\"";
+    }
+
+    // Versão de uma página da coleção: hash dos pares (id, versão) das linhas e, se pedido, do total.
+    // Incluir, alterar ou excluir qualquer linha da página muda o ETag.
+    static String colecao(String tipo, List<VersaoRegistro> linhas, Long total) {
+        long hash = 1125899906842597L;
+        for (VersaoRegistro v : linhas) {
+            hash = 31 * hash + v.id();
+            hash = 31 * hash + (v.versao() == null ? 0 : v.versao());
+        }
+        if (total != null) {
+            hash = 31 * hash + total;
+        }
+        return "\"" + tipo + "-" + linhas.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    // If-None-Match (comparação fraca) / If-Match (comparação forte): lista separada por vírgulas ou "*"
+    static boolean corresponde(String cabecalho, String etag, boolean forte) {
+        if (cabecalho == null) {
+            return false;
+        }
+        for (String candidato : cabecalho.split(",")) {
+            String c = candidato.trim();
+            if (c.equals("*")) {
+                return true;
+            }
+            if (c.startsWith("W/")) {
+                if (forte) {
+                    continue;
+                }
+                c = c.substring(2);
+            }
+            if (c.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,51 +1,144 @@
 package com.locadora.api.controller;
 
-import com.locadora.api.model.Emprestimo;
+import com.locadora.api.dto.DisponibilidadeGeralItem;
+import com.locadora.api.dto.DisponibilidadeItem;
+import com.locadora.api.dto.DisponibilidadeResposta;
+import com.locadora.api.dto.DivergenciaDisponibilidade;
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.dto.ItemResumo;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.dto.ResultadoBusca;
+import com.locadora.api.dto.ResultadoImportacao;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.metrics.EmprestimoMetricas;
 import com.locadora.api.model.Item;
+import com.locadora.api.model.ReservaEspera;
 import com.locadora.api.repository.ItemRepository;
 import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.EmprestimoHistoricoRepository;
+import com.locadora.api.repository.ReservaEsperaRepository;
+import com.locadora.api.service.BuscaItemService;
+import com.locadora.api.service.CategoriaFacetaService;
+import com.locadora.api.service.CategoriaFacetaService.Contagem;
+import com.locadora.api.service.DisponibilidadeReconciliacaoService;
+import com.locadora.api.service.DisponibilidadeService;
+import com.locadora.api.service.ImportacaoItemService;
+import com.locadora.api.service.ReservaEsperaService;
+import com.locadora.api.service.ValidacaoItem;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/itens")
 public class ItemController {
 
+    // Tentativas ao colidir com reservas/devoluções concorrentes (controle de versão do Item)
+    private static final int MAX_TENTATIVAS_ATUALIZACAO = 3;
+
     @Autowired
     private ItemRepository itemRepository;
 
     @Autowired
     private EmprestimoRepository emprestimoRepository;
 
-    // LISTAR TODOS
+    @Autowired
+    private EmprestimoHistoricoRepository historicoRepository;
+
+    @Autowired
+    private ReservaEsperaRepository reservaEsperaRepository;
+
+    @Autowired
+    private ReservaEsperaService reservaEsperaService;
+
+    @Autowired
+    private DisponibilidadeReconciliacaoService reconciliacaoService;
+
+    @Autowired
+    private DisponibilidadeService disponibilidadeService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EmprestimoMetricas metricas;
+
+    @Autowired
+    private BuscaItemService buscaItemService;
+
+    @Autowired
+    private CategoriaFacetaService categoriaFacetaService;
+
+    @Autowired
+    private ImportacaoItemService importacaoItemService;
+
+    // LISTAR TODOS (paginado por cursor; ETag da página calculado só com id/versão)
     @GetMapping
-    public List<Item> listar() {
-        List<Item> itens = itemRepository.findAll();
-        for (Item item : itens) {
-            if (item.getEmprestados() == null) {
-                item.setEmprestados(0);
-            }
+    public ResponseEntity<PaginaCursor<ItemResumo>> listar(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "total", defaultValue = "false") boolean total,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int limite = PaginaCursor.normalizarLimite(limit);
+        long cursor = PaginaCursor.cursorInicial(after);
+        Long quantidade = total ? itemRepository.count() : null;
+        String etag = Etags.colecao("itens", itemRepository.listarVersoes(cursor, Limit.of(limite + 1)), quantidade);
+        if (Etags.corresponde(ifNoneMatch, etag, false)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
         }
-        return itens;
+
+        List<ItemResumo> linhas = itemRepository.listarResumos(cursor, Limit.of(limite + 1));
+        return ResponseEntity.ok().eTag(etag).body(PaginaCursor.of(linhas, limite, ItemResumo::id, quantidade));
+    }
+
+    // BUSCA NO CATÁLOGO (nome, categoria e descrição; sem acento e por prefixo, ordenada por relevância)
+    @GetMapping("/busca")
+    public ResultadoBusca buscar(@RequestParam("q") String q,
+                                 @RequestParam(value = "disponivel", defaultValue = "false") boolean disponivel,
+                                 @RequestParam(value = "pagina", required = false) Integer pagina,
+                                 @RequestParam(value = "tamanho", required = false) Integer tamanho) {
+        return buscaItemService.buscar(q, disponivel, pagina, tamanho);
+    }
+
+    @GetMapping("/busca/indice")
+    public Map<String, Object> estatisticasBusca() {
+        return buscaItemService.estatisticas();
     }
 
     // BUSCAR POR ID
     @GetMapping("/{id}")
-    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id) {
+    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 304 consultando apenas a versão, sem carregar nem serializar o item
+        if (ifNoneMatch != null) {
+            Optional<Long> versao = itemRepository.buscarVersao(id);
+            if (versao.isPresent()) {
+                String etag = Etags.recurso("item", id, versao.get());
+                if (Etags.corresponde(ifNoneMatch, etag, false)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+        }
+
         Optional<Item> itemOpt = itemRepository.findById(id);
         if (itemOpt.isPresent()) {
             Item item = itemOpt.get();
             if (item.getEmprestados() == null) {
                 item.setEmprestados(0);
             }
-            return ResponseEntity.ok(item);
+            return ResponseEntity.ok().eTag(Etags.recurso("item", id, item.getVersao())).body(item);
         } else {
             return ResponseEntity.status(404)
                     .body(Collections.singletonMap("erro", "Item não encontrado"));
@@ -58,20 +151,7 @@ public class ItemController {
     public ResponseEntity<?> criarItem(@RequestBody Item item) {
 
         // 🔴 VALIDAÇÃO DE CAMPOS OBRIGATÓRIOS
-        List<String> erros = new ArrayList<>();
-
-        if (item.getNome() == null || item.getNome().trim().isEmpty()) {
-            erros.add("O campo 'nome' é obrigatório.");
-        }
-        if (item.getDescricao() == null || item.getDescricao().trim().isEmpty()) {
-            erros.add("O campo 'descricao' é obrigatório.");
-        }
-        if (item.getCategoria() == null || item.getCategoria().trim().isEmpty()) {
-            erros.add("O campo 'categoria' é obrigatório.");
-        }
-        if (item.getQuantidade() == null) {
-            erros.add("O campo 'quantidade' é obrigatório.");
-        }
+        List<String> erros = ValidacaoItem.camposObrigatorios(item);
 
         if (!erros.isEmpty()) {
             Map<String, Object> respostaErro = new HashMap<>();
@@ -81,20 +161,33 @@ public class ItemController {
             return ResponseEntity.badRequest().body(respostaErro);
         }
 
-        // Aqui você provavelmente deve salvar o item:
-        itemRepository.save(item);
+        // Salva o item e soma sua contribuição nos totais da categoria
+        item = categoriaFacetaService.salvarItem(item, null);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(item.getId()));
 
         URI uri = ServletUriComponentsBuilder.fromCurrentRequest()
                 .path("/{id}")
                 .buildAndExpand(item.getId())
                 .toUri();
 
-        return ResponseEntity.created(uri).body(item);
+        return ResponseEntity.created(uri).eTag(Etags.recurso("item", item.getId(), item.getVersao())).body(item);
+    }
+
+    // IMPORTAR ITENS EM MASSA (CSV com cabeçalho ou NDJSON, um item por linha)
+    // O corpo é lido em streaming, sem ser carregado inteiro em memória
+    @PostMapping(value = "/importacao", consumes = {"text/csv", "application/x-ndjson"})
+    public ResultadoImportacao importar(HttpServletRequest request) throws IOException {
+        ImportacaoItemService.Formato formato = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ImportacaoItemService.Formato.NDJSON
+                : ImportacaoItemService.Formato.CSV;
+        return importacaoItemService.importar(request.getInputStream(), formato);
     }
 
     // ATUALIZAR ITEM
     @PutMapping("/{id}")
-    public ResponseEntity<?> atualizar(@PathVariable("id") Long id, @RequestBody Item novoItem) {
+    public ResponseEntity<?> atualizar(@PathVariable("id") Long id, @RequestBody Item novoItem,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Optional<Item> existente = itemRepository.findById(id);
 
         if (!existente.isPresent()) {
@@ -132,19 +225,60 @@ public class ItemController {
             return ResponseEntity.badRequest().body(resposta);
         }
 
-        Item item = existente.get();
-        item.setNome(novoItem.getNome());
-        item.setDescricao(novoItem.getDescricao());
-        item.setCategoria(novoItem.getCategoria());
-        item.setQuantidade(novoItem.getQuantidade());
+        for (int tentativa = 1; ; tentativa++) {
+            Item item = existente.get();
+
+            // Com If-Match o cliente só aceita gravar sobre a versão que leu: nada de reaplicar em outra
+            if (ifMatch != null && !Etags.corresponde(ifMatch, Etags.recurso("item", id, item.getVersao()), true)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .eTag(Etags.recurso("item", id, item.getVersao()))
+                        .body(Collections.singletonMap("erro",
+                                "O item foi alterado desde a última leitura (If-Match não confere)."));
+            }
+
+            if (novoItem.getQuantidade() < item.getEmprestados() + item.getReservados()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Collections.singletonMap("erro",
+                                "A quantidade total não pode ser menor que a quantidade emprestada ("
+                                        + item.getEmprestados() + ") mais a separada para a fila de espera ("
+                                        + item.getReservados() + ")."));
+            }
 
-        itemRepository.save(item);
-        return ResponseEntity.ok(item);
+            Contagem antes = Contagem.de(item);
+            item.setNome(novoItem.getNome());
+            item.setDescricao(novoItem.getDescricao());
+            item.setCategoria(novoItem.getCategoria());
+            item.setQuantidade(novoItem.getQuantidade());
+
+            try {
+                item = categoriaFacetaService.salvarItem(item, antes);
+                eventPublisher.publishEvent(new ItemAlteradoEvent(id));
+                // Unidades acrescentadas atendem primeiro a fila de espera
+                if (item.getQuantidade() > antes.copias() && reservaEsperaService.atenderFila(id) > 0) {
+                    item = itemRepository.findById(id).orElse(item);
+                }
+                return ResponseEntity.ok().eTag(Etags.recurso("item", id, item.getVersao())).body(item);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // Um empréstimo/devolução alterou o item entre a leitura e a gravação: relê e reaplica
+                metricas.conflitoVersao("item");
+                if (tentativa >= MAX_TENTATIVAS_ATUALIZACAO) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(Collections.singletonMap("erro",
+                                    "O item foi alterado por outra operação. Tente novamente."));
+                }
+                existente = itemRepository.findById(id);
+                if (!existente.isPresent()) {
+                    return ResponseEntity.status(404)
+                            .body(Collections.singletonMap("erro", "Item não encontrado"));
+                }
+            }
+        }
     }
 
     // DELETAR ITEM
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deletarItem(@PathVariable("id") Long id) {
+    public ResponseEntity<?> deletarItem(@PathVariable("id") Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         Optional<Item> itemOpt = itemRepository.findById(id);
 
@@ -156,89 +290,73 @@ public class ItemController {
 
         Item item = itemOpt.get();
 
-        boolean itemEmprestado = emprestimoRepository.existsByItemId(item.getId());
+        if (ifMatch != null && !Etags.corresponde(ifMatch, Etags.recurso("item", id, item.getVersao()), true)) {
+            return ResponseEntity
+                    .status(HttpStatus.PRECONDITION_FAILED)
+                    .body("O item foi alterado desde a última leitura (If-Match não confere).");
+        }
+
+        boolean itemEmprestado = emprestimoRepository.existsByItemId(item.getId())
+                || historicoRepository.existsByItemId(item.getId());
         if (itemEmprestado) {
             return ResponseEntity
                     .status(HttpStatus.CONFLICT)
                     .body("O item '" + item.getNome() + "' não pode ser excluído pois está emprestado.");
         }
 
-        itemRepository.delete(item);
+        if (reservaEsperaRepository.existsByItemIdAndStatusIn(item.getId(), ReservaEspera.ATIVAS)) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body("O item '" + item.getNome() + "' não pode ser excluído pois tem fila de espera.");
+        }
+
+        categoriaFacetaService.removerItem(item);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(id));
 
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body("Item '" + item.getNome() + "' excluído com sucesso.");
     }
 
-    // DISPONIBILIDADE + PARA QUEM ESTÁ EMPRESTADO
+    // TOTAIS POR CATEGORIA (títulos, cópias, emprestadas e disponíveis)
+    @GetMapping("/categorias")
+    public List<FacetaCategoria> listarFacetasCategoria() {
+        return categoriaFacetaService.listar();
+    }
+
+    // RECONSTRUIR OS TOTAIS POR CATEGORIA A PARTIR DOS ITENS
+    @PostMapping("/categorias/reconstruir")
+    public List<FacetaCategoria> reconstruirFacetasCategoria() {
+        return categoriaFacetaService.reconstruir();
+    }
+
+    // DISPONIBILIDADE + PARA QUEM ESTÁ EMPRESTADO (servida pelo cache de disponibilidade)
     @GetMapping("/{id}/disponibilidade")
     public ResponseEntity<?> verificarDisponibilidade(@PathVariable("id") Long id) {
-        Optional<Item> itemOpt = itemRepository.findById(id);
-        if (!itemOpt.isPresent()) {
+        Optional<DisponibilidadeItem> disponibilidadeOpt = disponibilidadeService.consultar(id);
+        if (!disponibilidadeOpt.isPresent()) {
             return ResponseEntity.status(404)
                     .body(Collections.singletonMap("erro", "Item não encontrado"));
         }
 
-        Item item = itemOpt.get();
-        if (item.getEmprestados() == null) {
-            item.setEmprestados(0);
-        }
-
-        List<Emprestimo> emprestimosAtivos = emprestimoRepository.findByItemId(id)
-                .stream()
-                .filter(e -> e.getStatus() == Emprestimo.StatusEmprestimo.ACTIVE)
-                .collect(Collectors.toList());
-
-        List<String> usuariosComItem = emprestimosAtivos.stream()
-                .map(e -> e.getUsuario().getNome())
-                .collect(Collectors.toList());
-
-        int disponivel = item.getQuantidade() - item.getEmprestados();
-
-        Map<String, Object> resposta = new LinkedHashMap<>();
-        resposta.put("item", item.getNome());
-        resposta.put("quantidade_total", item.getQuantidade());
-        resposta.put("emprestado_para", usuariosComItem);
-        resposta.put("empréstimos_ativos", emprestimosAtivos.size());
-        resposta.put("disponivel", disponivel);
-        resposta.put("mensagem", disponivel > 0 ?
-                "Item disponível para empréstimo" :
-                "Item indisponível no momento");
+        return ResponseEntity.ok(DisponibilidadeResposta.de(disponibilidadeOpt.get()));
+    }
 
-        return ResponseEntity.ok(resposta);
+    // ESTATÍSTICAS DO CACHE DE DISPONIBILIDADE
+    @GetMapping("/disponibilidade/cache")
+    public Map<String, Object> estatisticasCacheDisponibilidade() {
+        return disponibilidadeService.estatisticas();
     }
 
     // LISTAR DISPONIBILIDADE DE TODOS OS ITENS
     @GetMapping("/disponibilidade")
-    public ResponseEntity<?> listarDisponibilidadeGeral() {
-
-        List<Item> itens = itemRepository.findAll();
-
-        List<Emprestimo> emprestimosAtivos =
-                emprestimoRepository.findByStatus(Emprestimo.StatusEmprestimo.ACTIVE);
-
-        Map<Long, Integer> emprestadosPorItem = emprestimosAtivos.stream()
-                .collect(Collectors.groupingBy(
-                        e -> e.getItem().getId(),
-                        Collectors.summingInt(Emprestimo::getQuantidade)
-                ));
-
-        List<Map<String, Object>> resposta = new ArrayList<>();
-
-        for (Item item : itens) {
-            int emprestados = emprestadosPorItem.getOrDefault(item.getId(), 0);
-            int disponivel = item.getQuantidade() - emprestados;
-
-            Map<String, Object> dados = new LinkedHashMap<>();
-            dados.put("id", item.getId());
-            dados.put("item", item.getNome());
-            dados.put("quantidade_total", item.getQuantidade());
-            dados.put("emprestados", emprestados);
-            dados.put("disponivel", disponivel);
-
-            resposta.add(dados);
-        }
+    public ResponseEntity<List<DisponibilidadeGeralItem>> listarDisponibilidadeGeral() {
+        return ResponseEntity.ok(itemRepository.listarDisponibilidadeGeral());
+    }
 
-        return ResponseEntity.ok(resposta);
+    // RECONCILIAR CONTADORES COM OS EMPRÉSTIMOS EM ABERTO
+    @PostMapping("/disponibilidade/reconciliar")
+    public List<DivergenciaDisponibilidade> reconciliarDisponibilidade() {
+        return reconciliacaoService.reconciliar();
     }
 }
@@ -0,0 +1,68 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.dto.ReceitaMultasMes;
+import com.locadora.api.dto.RelatorioCategoria;
+import com.locadora.api.dto.RelatorioItem;
+import com.locadora.api.model.RollupItemDia;
+import com.locadora.api.service.RollupEmprestimoService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Relatórios gerenciais respondidos pelas tabelas de totais diários (sem varrer EMPRESTIMO).
+// Períodos inclusivos; sem 'de'/'ate' vale os últimos 30 dias (12 meses para as multas).
+@RestController
+@RequestMapping("/api/v1/relatorios")
+@CrossOrigin(origins = "http://localhost:3000")
+public class RelatorioController {
+
+    private final RollupEmprestimoService rollupService;
+
+    public RelatorioController(RollupEmprestimoService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    // Itens mais emprestados no período
+    @GetMapping("/itens")
+    public List<RelatorioItem> itens(@RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                     @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                     @RequestParam(value = "limit", required = false) Integer limit) {
+        LocalDate fim = ate != null ? ate : LocalDate.now();
+        return rollupService.totaisPorItem(de != null ? de : fim.minusDays(29), fim, limit);
+    }
+
+    // Empréstimos por dia de um item
+    @GetMapping("/itens/{itemId}/diario")
+    public List<RollupItemDia> diarioItem(@PathVariable("itemId") Long itemId,
+                                          @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                          @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        LocalDate fim = ate != null ? ate : LocalDate.now();
+        return rollupService.serieDiaria(itemId, de != null ? de : fim.minusDays(29), fim);
+    }
+
+    // Totais e taxa de devolução em atraso por categoria
+    @GetMapping("/categorias")
+    public List<RelatorioCategoria> categorias(@RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                               @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        LocalDate fim = ate != null ? ate : LocalDate.now();
+        return rollupService.totaisPorCategoria(de != null ? de : fim.minusDays(29), fim);
+    }
+
+    // Receita de multas por mês
+    @GetMapping("/multas")
+    public List<ReceitaMultasMes> multas(@RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                         @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        LocalDate fim = ate != null ? ate : LocalDate.now();
+        return rollupService.multasPorMes(de != null ? de : fim.minusMonths(11).withDayOfMonth(1), fim);
+    }
+
+    // Recalcula os totais a partir do histórico (todo o histórico sem 'de'/'ate')
+    @PostMapping("/reconstruir")
+    public RollupEmprestimoService.Reconstrucao reconstruir(
+            @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        return rollupService.reconstruir(de, ate);
+    }
+}
@@ -1,12 +1,22 @@
 package com.locadora.api.controller;
 
+import com.locadora.api.dto.DividaAtiva;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.dto.QuitacaoLote;
+import com.locadora.api.dto.UsuarioResumo;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.model.ReservaEspera;
 import com.locadora.api.model.Usuario;
-import com.locadora.api.model.Emprestimo;
 import com.locadora.api.repository.UsuarioRepository;
 import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ReservaEsperaRepository;
 import com.locadora.api.service.UsuarioService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,22 +34,55 @@ public class UsuarioController {
     @Autowired
     private EmprestimoRepository emprestimoRepository;
 
+    @Autowired
+    private ReservaEsperaRepository reservaEsperaRepository;
+
     @Autowired
     private UsuarioService usuarioService;
 
-    // Listar todos
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Listar todos (paginado por cursor; ETag da página calculado só com id/versão)
     @GetMapping
-    public List<Usuario> listar() {
-        return usuarioRepository.findAll();
+    public ResponseEntity<PaginaCursor<UsuarioResumo>> listar(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "total", defaultValue = "false") boolean total,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int limite = PaginaCursor.normalizarLimite(limit);
+        long cursor = PaginaCursor.cursorInicial(after);
+        Long quantidade = total ? usuarioRepository.count() : null;
+        String etag = Etags.colecao("usuarios", usuarioRepository.listarVersoes(cursor, Limit.of(limite + 1)), quantidade);
+        if (Etags.corresponde(ifNoneMatch, etag, false)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        List<UsuarioResumo> linhas = usuarioRepository.listarResumos(cursor, Limit.of(limite + 1));
+        return ResponseEntity.ok().eTag(etag).body(PaginaCursor.of(linhas, limite, UsuarioResumo::id, quantidade));
     }
 
     // Buscar por ID
     @GetMapping("/{id}")
-    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id) {
+    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 304 consultando apenas a versão, sem carregar nem serializar o usuário
+        if (ifNoneMatch != null) {
+            Optional<Long> versao = usuarioRepository.buscarVersao(id);
+            if (versao.isPresent()) {
+                String etag = Etags.recurso("usuario", id, versao.get());
+                if (Etags.corresponde(ifNoneMatch, etag, false)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+        }
+
         Optional<Usuario> usuario = usuarioRepository.findById(id);
 
         if (usuario.isPresent()) {
-            return ResponseEntity.ok(usuario.get());
+            return ResponseEntity.ok()
+                    .eTag(Etags.recurso("usuario", id, usuario.get().getVersao()))
+                    .body(usuario.get());
         } else {
             return ResponseEntity.status(404)
                     .body(Collections.singletonMap("erro", "Usuário não encontrado"));
@@ -75,7 +118,9 @@ public class UsuarioController {
         }
 
         Usuario salvo = usuarioRepository.save(usuario);
-        return new ResponseEntity<>(salvo, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(Etags.recurso("usuario", salvo.getId(), salvo.getVersao()))
+                .body(salvo);
     }
 
     // QUITAR TODAS AS DÍVIDAS (via service)
@@ -91,9 +136,22 @@ public class UsuarioController {
         return ResponseEntity.ok("Dívidas quitadas com sucesso!");
     }
 
+    // QUITAR DÍVIDAS DE VÁRIOS USUÁRIOS (importação de pagamentos)
+    @PostMapping("/quitar-dividas")
+    public ResponseEntity<?> quitarDividasEmLote(@RequestBody List<Long> usuarioIds) {
+        if (usuarioIds == null || usuarioIds.isEmpty() || usuarioIds.contains(null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Collections.singletonMap("erro", "Informe a lista de ids de usuários."));
+        }
+
+        QuitacaoLote resultado = usuarioService.quitarDividas(usuarioIds);
+        return ResponseEntity.ok(resultado);
+    }
+
     // Atualizar usuário
     @PutMapping("/{id}")
-    public ResponseEntity<?> atualizar(@PathVariable("id") Long id, @RequestBody Usuario usuarioAtualizado) {
+    public ResponseEntity<?> atualizar(@PathVariable("id") Long id, @RequestBody Usuario usuarioAtualizado,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         Optional<Usuario> usuarioExistente = usuarioRepository.findById(id);
 
@@ -104,6 +162,12 @@ public class UsuarioController {
 
         Usuario usuario = usuarioExistente.get();
 
+        if (ifMatch != null && !Etags.corresponde(ifMatch, Etags.recurso("usuario", id, usuario.getVersao()), true)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .eTag(Etags.recurso("usuario", id, usuario.getVersao()))
+                    .body("Usuário alterado desde a última leitura (If-Match não confere).");
+        }
+
         if (usuarioAtualizado.getDivida() != null &&
                 !usuarioAtualizado.getDivida().equals(usuario.getDivida())) {
 
@@ -111,18 +175,32 @@ public class UsuarioController {
                     .body("Campo 'divida' não pode ser alterado manualmente.");
         }
 
+        boolean nomeAlterado = !Objects.equals(usuario.getNome(), usuarioAtualizado.getNome());
         usuario.setNome(usuarioAtualizado.getNome());
         usuario.setEmail(usuarioAtualizado.getEmail());
         usuario.setTelefone(usuarioAtualizado.getTelefone());
 
-        usuarioRepository.save(usuario);
+        // A versão lida acima é conferida na gravação: uma alteração concorrente resulta em 409
+        Usuario salvo;
+        try {
+            salvo = usuarioRepository.save(usuario);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Usuário alterado por outra operação. Tente novamente.");
+        }
+        if (nomeAlterado) {
+            invalidarDisponibilidade(emprestimoRepository.findItensEmAbertoDoUsuario(id));
+        }
 
-        return ResponseEntity.ok("Usuário atualizado com sucesso!");
+        return ResponseEntity.ok()
+                .eTag(Etags.recurso("usuario", id, salvo.getVersao()))
+                .body("Usuário atualizado com sucesso!");
     }
 
     // Excluir usuário
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deletar(@PathVariable("id") Long id) {
+    public ResponseEntity<?> deletar(@PathVariable("id") Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Optional<Usuario> usuarioOpt = usuarioRepository.findById(id);
 
         if (!usuarioOpt.isPresent()) {
@@ -132,12 +210,25 @@ public class UsuarioController {
 
         Usuario usuario = usuarioOpt.get();
 
+        if (ifMatch != null && !Etags.corresponde(ifMatch, Etags.recurso("usuario", id, usuario.getVersao()), true)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Collections.singletonMap("erro", "Usuário alterado desde a última leitura (If-Match não confere)."));
+        }
+
         if (usuario.getDivida() != null && usuario.getDivida().compareTo(BigDecimal.ZERO) > 0) {
             return ResponseEntity.status(400)
                     .body(Collections.singletonMap("erro", "Usuário não pode ser excluído com dívidas."));
         }
 
+        // Reservas encerradas são apagadas junto; as ativas precisam ser canceladas antes (liberam a fila)
+        if (reservaEsperaRepository.existsByUsuarioIdAndStatusIn(id, ReservaEspera.ATIVAS)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("erro", "Usuário não pode ser excluído com reservas na fila de espera."));
+        }
+
+        List<Long> itensEmAberto = emprestimoRepository.findItensEmAbertoDoUsuario(id);
         usuarioRepository.deleteById(id);
+        invalidarDisponibilidade(itensEmAberto);
 
         return ResponseEntity.ok(Collections.singletonMap(
                 "mensagem",
@@ -167,28 +258,14 @@ public class UsuarioController {
 
     // LISTAR TODAS AS DÍVIDAS ATIVAS
     @GetMapping("/dividas")
-    public ResponseEntity<?> listarDividasAtivas() {
-
-        // ⚠️ Esse método PRECISA EXISTIR NO EmprestimoRepository
-        List<Emprestimo> emprestimosComMulta = emprestimoRepository.findByMultaGreaterThan(0.0);
-
-        List<Map<String, Object>> resposta = new ArrayList<>();
-
-        for (Emprestimo e : emprestimosComMulta) {
+    public ResponseEntity<List<DividaAtiva>> listarDividasAtivas() {
 
-            Map<String, Object> dados = new HashMap<>();
-            dados.put("emprestimoId", e.getId());
-            dados.put("usuarioId", e.getUsuario().getId());
-            dados.put("nome", e.getUsuario().getNome());
-            dados.put("email", e.getUsuario().getEmail());
-            dados.put("divida", e.getMulta());
-            dados.put("statusEmprestimo", e.getStatus().name());
-            dados.put("dataPrevista", e.getDataPrevistaDevolucao());
-            dados.put("dataDevolucao", e.getDataDevolucao());
-
-            resposta.add(dados);
-        }
+        // Usuário vem no mesmo SELECT (join), projetado direto no registro de resposta
+        return ResponseEntity.ok(emprestimoRepository.listarDividasAtivas(0.0));
+    }
 
-        return ResponseEntity.ok(resposta);
+    // 🔹 O cache de disponibilidade guarda o nome de quem está com o item: descarta as entradas afetadas
+    private void invalidarDisponibilidade(List<Long> itemIds) {
+        itemIds.forEach(itemId -> eventPublisher.publishEvent(new ItemAlteradoEvent(itemId)));
     }
 }
@@ -0,0 +1,19 @@
+package com.locadora.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Linha de GET /itens/disponibilidade, projetada direto da consulta (sem carregar as entidades)
+public record DisponibilidadeGeralItem(Long id,
+                                       String item,
+                                       @JsonProperty("quantidade_total") Integer quantidadeTotal,
+                                       Integer emprestados,
+                                       Integer reservados) {
+
+    @JsonProperty("disponivel")
+    public int disponivel() {
+        int total = (quantidadeTotal == null ? 0 : quantidadeTotal);
+        int emp = (emprestados == null ? 0 : emprestados);
+        int res = (reservados == null ? 0 : reservados);
+        return Math.max(total - emp - res, 0);
+    }
+}
@@ -0,0 +1,15 @@
+package com.locadora.api.dto;
+
+import java.util.List;
+
+// Retrato da disponibilidade de um item, guardado no cache de leitura
+public record DisponibilidadeItem(Long id,
+                                  String item,
+                                  Integer quantidadeTotal,
+                                  List<String> emprestadoPara,
+                                  int disponivel) {
+
+    public int emprestimosAtivos() {
+        return emprestadoPara.size();
+    }
+}
@@ -0,0 +1,20 @@
+package com.locadora.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Resposta de GET /itens/{id}/disponibilidade (nomes de campo mantidos, inclusive os com '_' e acento)
+public record DisponibilidadeResposta(String item,
+                                      @JsonProperty("quantidade_total") Integer quantidadeTotal,
+                                      @JsonProperty("emprestado_para") List<String> emprestadoPara,
+                                      @JsonProperty("empréstimos_ativos") int emprestimosAtivos,
+                                      int disponivel,
+                                      String mensagem) {
+
+    public static DisponibilidadeResposta de(DisponibilidadeItem d) {
+        return new DisponibilidadeResposta(d.item(), d.quantidadeTotal(), d.emprestadoPara(),
+                d.emprestimosAtivos(), d.disponivel(),
+                d.disponivel() > 0 ? "Item disponível para empréstimo" : "Item indisponível no momento");
+    }
+}
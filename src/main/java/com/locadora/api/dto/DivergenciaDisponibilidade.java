@@ -0,0 +1,8 @@
+package com.locadora.api.dto;
+
+// Diferença encontrada pela reconciliação entre o contador do item e os empréstimos em aberto
+public record DivergenciaDisponibilidade(Long itemId,
+                                         String item,
+                                         Integer emprestadosRegistrados,
+                                         Long emprestadosCalculados) {
+}
@@ -0,0 +1,16 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+
+import java.time.LocalDate;
+
+// Linha de GET /usuarios/dividas: empréstimo com multa e os dados de contato do usuário
+public record DividaAtiva(Long emprestimoId,
+                          Long usuarioId,
+                          String nome,
+                          String email,
+                          Double divida,
+                          StatusEmprestimo statusEmprestimo,
+                          LocalDate dataPrevista,
+                          LocalDate dataDevolucao) {
+}
@@ -0,0 +1,17 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+
+import java.time.LocalDate;
+
+// Projeção de um empréstimo pendente ou com multa, para a consulta de dívidas do usuário
+public record DividaEmprestimo(Long id,
+                               Long itemId,
+                               String item,
+                               Integer quantidade,
+                               LocalDate dataEmprestimo,
+                               LocalDate dataPrevistaDevolucao,
+                               LocalDate dataDevolucao,
+                               StatusEmprestimo status,
+                               Double multa) {
+}
@@ -0,0 +1,22 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo;
+
+import java.time.LocalDate;
+
+// Resposta de GET /api/v1/emprestimos/{id} (status pelo rótulo, usuário e item pelo nome)
+public record EmprestimoDetalhe(Long id,
+                                String status,
+                                Double multa,
+                                LocalDate dataEmprestimo,
+                                LocalDate dataPrevistaDevolucao,
+                                LocalDate dataDevolucao,
+                                String usuario,
+                                String item) {
+
+    public static EmprestimoDetalhe de(Emprestimo e) {
+        return new EmprestimoDetalhe(e.getId(), e.getStatus().getLabel(), e.getMulta(),
+                e.getDataEmprestimo(), e.getDataPrevistaDevolucao(), e.getDataDevolucao(),
+                e.getUsuario().getNome(), e.getItem().getNome());
+    }
+}
@@ -0,0 +1,20 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+
+import java.time.LocalDate;
+
+// Projeção de Emprestimo para listagens: usuário e item viram colunas, sem hidratar as associações
+public record EmprestimoResumo(Long id,
+                               Long usuarioId,
+                               String usuario,
+                               Long itemId,
+                               String item,
+                               Integer quantidade,
+                               LocalDate dataEmprestimo,
+                               LocalDate dataPrevistaDevolucao,
+                               LocalDate dataDevolucao,
+                               Integer renovacoes,
+                               StatusEmprestimo status,
+                               Double multa) {
+}
@@ -0,0 +1,9 @@
+package com.locadora.api.dto;
+
+// Totais de uma categoria: títulos (itens), cópias, cópias emprestadas e disponíveis
+public record FacetaCategoria(String categoria,
+                              Long titulos,
+                              Long copias,
+                              Long emprestadas,
+                              Long disponiveis) {
+}
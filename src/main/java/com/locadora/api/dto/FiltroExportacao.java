@@ -0,0 +1,12 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+
+import java.time.LocalDate;
+
+// Filtros opcionais da exportação de empréstimos (null = sem filtro); período sobre dataEmprestimo, inclusivo
+public record FiltroExportacao(LocalDate de,
+                               LocalDate ate,
+                               StatusEmprestimo status,
+                               Long usuarioId) {
+}
@@ -0,0 +1,21 @@
+package com.locadora.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Projeção de Item para listagens (não carrega a entidade)
+public record ItemResumo(Long id,
+                         String nome,
+                         String descricao,
+                         String categoria,
+                         Integer quantidade,
+                         Integer emprestados,
+                         Integer reservados) {
+
+    @JsonProperty("disponivel")
+    public int disponivel() {
+        int total = (quantidade == null ? 0 : quantidade);
+        int emp = (emprestados == null ? 0 : emprestados);
+        int res = (reservados == null ? 0 : reservados);
+        return Math.max(total - emp - res, 0);
+    }
+}
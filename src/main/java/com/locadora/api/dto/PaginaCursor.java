@@ -0,0 +1,53 @@
+package com.locadora.api.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Página de uma listagem por cursor (keyset): ?after=<último id recebido>&limit=<tamanho>
+public record PaginaCursor<T>(List<T> itens, Long proximoCursor, Long total) {
+
+    public static final int LIMITE_PADRAO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+
+    public static long cursorInicial(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    public static int normalizarLimite(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return LIMITE_PADRAO;
+        }
+        return Math.min(limit, LIMITE_MAXIMO);
+    }
+
+    // 'linhas' deve vir com até limite + 1 registros: o excedente indica que há próxima página
+    public static <T> PaginaCursor<T> of(List<T> linhas, int limite, Function<T, Long> id, Long total) {
+        if (linhas.size() <= limite) {
+            return new PaginaCursor<>(linhas, null, total);
+        }
+        List<T> pagina = linhas.subList(0, limite);
+        return new PaginaCursor<>(pagina, id.apply(pagina.get(limite - 1)), total);
+    }
+
+    // Junta duas listas já ordenadas por id (ex.: tabela viva + histórico) mantendo a ordem
+    public static <T> List<T> intercalar(List<T> a, List<T> b, Function<T, Long> id) {
+        if (b.isEmpty()) {
+            return a;
+        }
+        if (a.isEmpty()) {
+            return b;
+        }
+        List<T> resultado = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j >= b.size() || (i < a.size() && id.apply(a.get(i)) < id.apply(b.get(j)))) {
+                resultado.add(a.get(i++));
+            } else {
+                resultado.add(b.get(j++));
+            }
+        }
+        return resultado;
+    }
+}
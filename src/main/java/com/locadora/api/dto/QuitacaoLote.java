@@ -0,0 +1,5 @@
+package com.locadora.api.dto;
+
+// Resumo da quitação em lote: usuários encontrados e empréstimos cuja multa foi zerada
+public record QuitacaoLote(int usuariosQuitados, int emprestimosZerados) {
+}
@@ -0,0 +1,8 @@
+package com.locadora.api.dto;
+
+// Multas dos empréstimos devolvidos no mês
+public record ReceitaMultasMes(Integer ano,
+                               Integer mes,
+                               Long devolucoes,
+                               Double multas) {
+}
@@ -0,0 +1,15 @@
+package com.locadora.api.dto;
+
+// Totais de uma categoria no período; taxaAtraso = devoluções em atraso / devoluções
+public record RelatorioCategoria(String categoria,
+                                 Long emprestimos,
+                                 Long unidades,
+                                 Long renovacoes,
+                                 Long devolucoes,
+                                 Long devolucoesAtrasadas,
+                                 Double multas) {
+
+    public double getTaxaAtraso() {
+        return devolucoes == null || devolucoes == 0 ? 0.0 : (double) devolucoesAtrasadas / devolucoes;
+    }
+}
@@ -0,0 +1,12 @@
+package com.locadora.api.dto;
+
+// Totais de um item no período, somados a partir de ROLLUP_ITEM_DIA
+public record RelatorioItem(Long itemId,
+                            String nome,
+                            Long emprestimos,
+                            Long unidades,
+                            Long renovacoes,
+                            Long devolucoes,
+                            Long devolucoesAtrasadas,
+                            Double multas) {
+}
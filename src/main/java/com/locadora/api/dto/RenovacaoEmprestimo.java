@@ -0,0 +1,18 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.Emprestimo;
+
+import java.time.LocalDate;
+
+// Resposta de POST /api/v1/emprestimos/{id}/renovar
+public record RenovacaoEmprestimo(Long id,
+                                  String status,
+                                  Integer renovacoes,
+                                  LocalDate novaDataPrevistaDevolucao,
+                                  String mensagem) {
+
+    public static RenovacaoEmprestimo de(Emprestimo e) {
+        return new RenovacaoEmprestimo(e.getId(), e.getStatus().name(), e.getRenovacoes(),
+                e.getDataPrevistaDevolucao(), "Renovação realizada com sucesso.");
+    }
+}
@@ -0,0 +1,21 @@
+package com.locadora.api.dto;
+
+import com.locadora.api.model.ReservaEspera;
+
+import java.time.LocalDateTime;
+
+// Reserva na fila de espera; 'posicao' só vem preenchida enquanto a reserva aguarda (1 = próxima)
+public record ReservaEsperaDetalhe(Long id,
+                                   Long usuarioId,
+                                   Long itemId,
+                                   Integer quantidade,
+                                   String status,
+                                   Long posicao,
+                                   LocalDateTime criadaEm,
+                                   LocalDateTime expiraEm) {
+
+    public static ReservaEsperaDetalhe de(ReservaEspera r, Long posicao) {
+        return new ReservaEsperaDetalhe(r.getId(), r.getUsuario().getId(), r.getItem().getId(), r.getQuantidade(),
+                r.getStatus().name(), posicao, r.getCriadaEm(), r.getExpiraEm());
+    }
+}
@@ -0,0 +1,12 @@
+package com.locadora.api.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Corpo de POST /api/v1/emprestimos/reservas (entrada na fila de espera do item)
+@Getter @Setter
+public class ReservaRequest {
+    private Long usuarioId;
+    private Long itemId;
+    private Integer quantidade;
+}
@@ -0,0 +1,10 @@
+package com.locadora.api.dto;
+
+import java.util.List;
+
+// Página de resultados da busca no catálogo, em ordem de relevância
+public record ResultadoBusca(List<ItemResumo> itens,
+                             int pagina,
+                             int tamanho,
+                             long total) {
+}
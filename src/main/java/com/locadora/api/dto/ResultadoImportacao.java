@@ -0,0 +1,15 @@
+package com.locadora.api.dto;
+
+import java.util.List;
+
+// Resumo da importação de itens. 'erros' traz no máximo app.importacao.maximo-erros linhas
+// (linha = número da linha no arquivo, a partir de 1); 'errosOmitidos' conta as demais.
+public record ResultadoImportacao(long linhasLidas,
+                                  long importados,
+                                  long rejeitados,
+                                  List<ErroLinha> erros,
+                                  long errosOmitidos) {
+
+    public record ErroLinha(long linha, List<String> mensagens) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.locadora.api.dto;
+
+// Resultado de uma linha do empréstimo em lote (linha = posição na lista enviada, a partir de 0)
+public record ResultadoLoteEmprestimo(int linha, boolean sucesso, Long emprestimoId, String erro) {
+
+    public static ResultadoLoteEmprestimo ok(int linha, Long emprestimoId) {
+        return new ResultadoLoteEmprestimo(linha, true, emprestimoId, null);
+    }
+
+    public static ResultadoLoteEmprestimo falha(int linha, String erro) {
+        return new ResultadoLoteEmprestimo(linha, false, null, erro);
+    }
+}
@@ -0,0 +1,11 @@
+package com.locadora.api.dto;
+
+import java.math.BigDecimal;
+
+// Projeção de Usuario para listagens (não carrega a entidade)
+public record UsuarioResumo(Long id,
+                            String nome,
+                            String email,
+                            String telefone,
+                            BigDecimal divida) {
+}
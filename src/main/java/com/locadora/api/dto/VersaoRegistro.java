@@ -0,0 +1,5 @@
+package com.locadora.api.dto;
+
+// Id e versão de uma linha (cálculo de ETag sem carregar a entidade)
+public record VersaoRegistro(Long id, Long versao) {
+}
@@ -0,0 +1,11 @@
+package com.locadora.api.event;
+
+// Ponto de extensão do pipeline de eventos: todo bean que implementa esta interface
+// recebe, de forma assíncrona, cada evento gravado no outbox.
+// Eventos de um mesmo usuário chegam em ordem e nunca em paralelo entre si; uma exceção
+// faz o evento (e os seguintes do mesmo usuário) serem reentregues no próximo ciclo,
+// por isso o processamento deve ser idempotente pelo id do evento.
+public interface ConsumidorEventos {
+
+    void consumir(EventoEmprestimo evento) throws Exception;
+}
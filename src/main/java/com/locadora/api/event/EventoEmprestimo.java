@@ -0,0 +1,17 @@
+package com.locadora.api.event;
+
+import com.locadora.api.model.EventoOutbox;
+import com.locadora.api.model.EventoOutbox.TipoEvento;
+
+import java.time.LocalDateTime;
+
+// Cópia imutável de um evento do outbox entregue aos consumidores (fora da transação que o gravou).
+// A entrega é "pelo menos uma vez": o mesmo id pode chegar mais de uma vez após falhas.
+public record EventoEmprestimo(Long id, TipoEvento tipo, Long usuarioId, Long emprestimoId,
+                               String payload, LocalDateTime criadoEm) {
+
+    public static EventoEmprestimo de(EventoOutbox evento) {
+        return new EventoEmprestimo(evento.getId(), evento.getTipo(), evento.getUsuarioId(),
+                evento.getEmprestimoId(), evento.getPayload(), evento.getCriadoEm());
+    }
+}
@@ -0,0 +1,6 @@
+package com.locadora.api.event;
+
+// Publicado quando estoque, empréstimos ou dados de um item mudam.
+// Os ouvintes reagem após o commit (ou imediatamente, fora de transação).
+public record ItemAlteradoEvent(Long itemId) {
+}
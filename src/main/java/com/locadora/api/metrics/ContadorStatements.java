@@ -0,0 +1,44 @@
+package com.locadora.api.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Conta os comandos SQL preparados pelo Hibernate na thread atual (uma requisição por thread).
+// Sob demanda também guarda o texto dos comandos (capturar), para conferir o plano do SQL realmente gerado.
+public class ContadorStatements implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTADOR = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<List<String>> CAPTURADOS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        List<String> capturados = CAPTURADOS.get();
+        if (capturados != null) {
+            capturados.add(sql);
+        }
+        return sql;
+    }
+
+    // 🔹 Executa a ação e devolve os comandos SQL que o Hibernate preparou para ela nesta thread
+    public static List<String> capturar(Runnable acao) {
+        List<String> capturados = new ArrayList<>();
+        CAPTURADOS.set(capturados);
+        try {
+            acao.run();
+        } finally {
+            CAPTURADOS.remove();
+        }
+        return capturados;
+    }
+
+    public static void zerar() {
+        CONTADOR.get()[0] = 0;
+    }
+
+    public static int total() {
+        return CONTADOR.get()[0];
+    }
+}
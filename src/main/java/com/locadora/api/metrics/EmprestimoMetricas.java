@@ -0,0 +1,89 @@
+package com.locadora.api.metrics;
+
+import com.locadora.api.model.ReservaEspera;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// Contadores de negócio do ciclo de empréstimo (expostos em /actuator/prometheus)
+@Component
+public class EmprestimoMetricas {
+
+    public enum MotivoRejeicao {
+        DIVIDA("divida"),
+        ESTOQUE("estoque"),
+        LIMITE_RENOVACAO("limite_renovacao");
+
+        private final String tag;
+
+        MotivoRejeicao(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Counter criados;
+    private final Counter devolvidos;
+    private final Counter renovados;
+
+    public EmprestimoMetricas(MeterRegistry registry) {
+        this.registry = registry;
+        this.criados = Counter.builder("locadora.emprestimos.criados")
+                .description("Empréstimos criados")
+                .register(registry);
+        this.devolvidos = Counter.builder("locadora.emprestimos.devolvidos")
+                .description("Empréstimos devolvidos")
+                .register(registry);
+        this.renovados = Counter.builder("locadora.emprestimos.renovados")
+                .description("Empréstimos renovados")
+                .register(registry);
+    }
+
+    public void criados(int quantidade) {
+        criados.increment(quantidade);
+    }
+
+    public void devolvido() {
+        devolvidos.increment();
+    }
+
+    public void renovado() {
+        renovados.increment();
+    }
+
+    public void rejeitado(MotivoRejeicao motivo) {
+        Counter.builder("locadora.emprestimos.rejeitados")
+                .description("Empréstimos ou renovações recusados, por motivo")
+                .tag("motivo", motivo.tag)
+                .register(registry)
+                .increment();
+    }
+
+    // Transições da fila de espera (entrada, separação na devolução, empréstimo, expiração, cancelamento)
+    public void reservas(ReservaEspera.StatusReserva status, int quantidade) {
+        Counter.builder("locadora.reservas")
+                .description("Reservas da fila de espera, por status alcançado")
+                .tag("status", status.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment(quantidade);
+    }
+
+    // Reserva de estoque que falhou porque outra transação consumiu as unidades depois da leitura
+    public void contencaoEstoque() {
+        Counter.builder("locadora.estoque.contencao")
+                .description("Reservas de estoque perdidas para transações concorrentes")
+                .register(registry)
+                .increment();
+    }
+
+    // Nova tentativa após conflito de versão (controle otimista) em uma entidade
+    public void conflitoVersao(String entidade) {
+        Counter.builder("locadora.concorrencia.conflitos")
+                .description("Conflitos de versão que exigiram nova tentativa")
+                .tag("entidade", entidade)
+                .register(registry)
+                .increment();
+    }
+}
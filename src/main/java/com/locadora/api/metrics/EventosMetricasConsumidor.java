@@ -0,0 +1,27 @@
+package com.locadora.api.metrics;
+
+import com.locadora.api.event.ConsumidorEventos;
+import com.locadora.api.event.EventoEmprestimo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+// Consumidor de análise: contabiliza os eventos de domínio entregues pelo outbox, por tipo
+@Component
+public class EventosMetricasConsumidor implements ConsumidorEventos {
+
+    private final MeterRegistry registry;
+
+    public EventosMetricasConsumidor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void consumir(EventoEmprestimo evento) {
+        Counter.builder("locadora.eventos")
+                .description("Eventos de domínio processados pelo pipeline assíncrono")
+                .tag("tipo", evento.tipo().name())
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,36 @@
+package com.locadora.api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Registra quantos comandos SQL cada requisição executou, por método e rota
+public class StatementsPorRequisicaoInterceptor implements HandlerInterceptor {
+
+    private final MeterRegistry registry;
+
+    public StatementsPorRequisicaoInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ContadorStatements.zerar();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("locadora.hibernate.statements")
+                .description("Comandos SQL executados pelo Hibernate por requisição")
+                .tag("method", request.getMethod())
+                .tag("uri", rota != null ? rota.toString() : "UNKNOWN")
+                .register(registry)
+                .record(ContadorStatements.total());
+    }
+}
@@ -0,0 +1,40 @@
+package com.locadora.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+// Fatia dos totais de uma categoria (a soma das fatias dá o total da categoria).
+// Atualizada por CategoriaFacetaRepository.ajustar na mesma transação de cada alteração.
+@Entity
+@Table(name = "categoria_faceta")
+@IdClass(CategoriaFaceta.Chave.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoriaFaceta {
+
+    public static final int FATIAS = 8;
+
+    @Id
+    @Column(length = 100)
+    private String categoria;
+
+    @Id
+    private Integer fatia;
+
+    private Long titulos;
+    private Long copias;
+    private Long emprestadas;
+    private Long disponiveis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private String categoria;
+        private Integer fatia;
+    }
+}
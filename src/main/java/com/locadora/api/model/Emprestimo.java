@@ -1,5 +1,6 @@
 package com.locadora.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -12,14 +13,17 @@ import java.time.LocalDate;
 @Builder
 public class Emprestimo {
 
+    // Sequência com alocação em blocos (pooled): permite inserts em lote via JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emprestimo_seq")
+    @SequenceGenerator(name = "emprestimo_seq", sequenceName = "emprestimo_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(optional = false)
+    // Associações carregadas sob demanda; as consultas que precisam delas usam fetch join / entity graph
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Usuario usuario;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Item item;
 
     private Integer quantidade;
@@ -38,6 +42,21 @@ public class Emprestimo {
     @Column(nullable = false)
     private Double multa = 0.0;
 
+    // Total de multa já lançado no empréstimo; não é zerado na quitação (base dos relatórios de receita)
+    @Builder.Default
+    @JsonIgnore
+    @Column(nullable = false)
+    private Double multaApurada = 0.0;
+
+    // Último dia até o qual a multa por atraso já foi lançada (varredura diária / devolução)
+    private LocalDate multaCalculadaEm;
+
+    // Controle de concorrência otimista (também incrementado pela varredura de atrasos)
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long versao;
+
     public enum StatusEmprestimo {
 
         ACTIVE("ATIVO"),
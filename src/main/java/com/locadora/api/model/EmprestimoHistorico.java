@@ -0,0 +1,68 @@
+package com.locadora.api.model;
+
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Empréstimo encerrado movido da tabela viva pelo arquivamento (somente leitura; mesmo id do original)
+@Entity
+@Immutable
+@Table(name = "emprestimo_historico")
+@Getter
+@NoArgsConstructor
+public class EmprestimoHistorico {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Usuario usuario;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Item item;
+
+    private Integer quantidade;
+
+    private LocalDate dataEmprestimo;
+    private LocalDate dataPrevistaDevolucao;
+    private LocalDate dataDevolucao;
+
+    private Integer renovacoes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 15)
+    private StatusEmprestimo status;
+
+    private Double multa;
+
+    private Double multaApurada;
+
+    private LocalDate multaCalculadaEm;
+
+    private Long versao;
+
+    private LocalDateTime arquivadoEm;
+
+    // 🔹 Cópia desanexada no formato do empréstimo vivo, para as respostas que já usam Emprestimo
+    public Emprestimo paraEmprestimo() {
+        return Emprestimo.builder()
+                .id(id)
+                .usuario(usuario)
+                .item(item)
+                .quantidade(quantidade)
+                .dataEmprestimo(dataEmprestimo)
+                .dataPrevistaDevolucao(dataPrevistaDevolucao)
+                .dataDevolucao(dataDevolucao)
+                .renovacoes(renovacoes)
+                .status(status)
+                .multa(multa)
+                .multaApurada(multaApurada)
+                .multaCalculadaEm(multaCalculadaEm)
+                .versao(versao)
+                .build();
+    }
+}
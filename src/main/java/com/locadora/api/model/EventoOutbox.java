@@ -0,0 +1,72 @@
+package com.locadora.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Evento de domínio pendente de entrega (padrão transactional outbox):
+// gravado na mesma transação da alteração e despachado depois pelo DespachanteEventos
+@Entity
+@Table(name = "evento_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoOutbox {
+
+    // Só identifica o evento: alocado em blocos, não segue a ordem de commit
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evento_outbox_seq")
+    @SequenceGenerator(name = "evento_outbox_seq", sequenceName = "evento_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoEvento tipo;
+
+    // Eventos do mesmo usuário são entregues em ordem de 'sequencia'
+    @Column(nullable = false)
+    private Long usuarioId;
+
+    // Posição do evento entre os do usuário, na ordem de commit (contador USUARIO.eventos_outbox)
+    @Column(nullable = false)
+    private Long sequencia;
+
+    @Column(nullable = false)
+    private Long emprestimoId;
+
+    // Dados específicos do evento, em JSON
+    @Column(length = 1000)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime criadoEm;
+
+    private LocalDateTime processadoEm;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer tentativas = 0;
+
+    @Column(length = 500)
+    private String erro;
+
+    public enum TipoEvento {
+
+        LOAN_CREATED("EMPRÉSTIMO CRIADO"),
+        LOAN_RETURNED("EMPRÉSTIMO DEVOLVIDO"),
+        LOAN_RENEWED("EMPRÉSTIMO RENOVADO"),
+        FINE_ACCRUED("MULTA LANÇADA");
+
+        private final String label;
+
+        TipoEvento(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+}
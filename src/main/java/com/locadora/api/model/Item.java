@@ -1,9 +1,13 @@
 package com.locadora.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -12,7 +16,9 @@ import lombok.*;
 public class Item {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência com alocação em blocos (pooled): permite inserts em lote via JDBC batch na importação
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
     private Long id;
 
     private String nome;
@@ -21,22 +27,34 @@ public class Item {
 
     private Integer quantidade; // Quantidade total cadastrada
 
-    @Column(nullable = false, columnDefinition = "int default 0")
+    @Column(nullable = false)
     private Integer emprestados; // Quantos estão emprestados
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false)
+    private Integer reservados; // Separados para a fila de espera (fora da disponibilidade)
+
+    // Controle de concorrência otimista (também incrementado pelas reservas atômicas de estoque)
+    @Version
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long versao;
+
     // Garante que valores nulos não causem erro
     @PrePersist
     @PreUpdate
     public void validarCampos() {
         if (quantidade == null) quantidade = 0;
         if (emprestados == null) emprestados = 0;
+        if (reservados == null) reservados = 0;
     }
 
     // Retorna a quantidade disponível
     public Integer getDisponivel() {
         int total = (quantidade == null ? 0 : quantidade);
         int emp = (emprestados == null ? 0 : emprestados);
-        return Math.max(total - emp, 0);
+        int res = (reservados == null ? 0 : reservados);
+        return Math.max(total - emp - res, 0);
     }
 
     // Indica se o item está disponível
@@ -0,0 +1,57 @@
+package com.locadora.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Entrada na fila de espera de um item esgotado. A ordem da fila é (criadaEm, id): ambos são atribuídos com
+// a linha do item bloqueada, e a sequência sem alocação em blocos mantém o id crescente entre instâncias.
+@Entity
+@Table(name = "reserva_espera")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservaEspera {
+
+    // Reservas que ainda ocupam a fila ou unidades do item
+    public static final List<StatusReserva> ATIVAS = List.of(StatusReserva.AGUARDANDO, StatusReserva.SEPARADA);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reserva_espera_seq")
+    @SequenceGenerator(name = "reserva_espera_seq", sequenceName = "reserva_espera_seq", allocationSize = 1)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Usuario usuario;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Item item;
+
+    private Integer quantidade;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 15, nullable = false)
+    private StatusReserva status;
+
+    private LocalDateTime criadaEm;
+
+    // Preenchidos quando as unidades são separadas para o usuário
+    private LocalDateTime separadaEm;
+    private LocalDateTime expiraEm;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long versao;
+
+    public enum StatusReserva {
+        AGUARDANDO,  // na fila
+        SEPARADA,    // unidades separadas, aguardando o empréstimo até expiraEm
+        ATENDIDA,    // virou empréstimo
+        EXPIRADA,    // janela de retirada encerrada sem empréstimo
+        CANCELADA
+    }
+}
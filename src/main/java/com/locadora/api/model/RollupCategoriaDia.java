@@ -0,0 +1,44 @@
+package com.locadora.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Fatia dos totais de uma categoria em um dia (a soma das fatias dá o total da categoria no dia)
+@Entity
+@Table(name = "rollup_categoria_dia")
+@IdClass(RollupCategoriaDia.Chave.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupCategoriaDia {
+
+    @Id
+    private LocalDate dia;
+
+    @Id
+    @Column(length = 100)
+    private String categoria;
+
+    @Id
+    private Integer fatia;
+
+    private Long emprestimos;
+    private Long unidades;
+    private Long renovacoes;
+    private Long devolucoes;
+    private Long devolucoesAtrasadas;
+    private Double multas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private LocalDate dia;
+        private String categoria;
+        private Integer fatia;
+    }
+}
@@ -0,0 +1,40 @@
+package com.locadora.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Totais de um item em um dia (ver changeset 012 para o dia em que cada métrica é contada).
+// Atualizado por RollupEmprestimoRepository.ajustarItem na mesma transação do empréstimo.
+@Entity
+@Table(name = "rollup_item_dia")
+@IdClass(RollupItemDia.Chave.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupItemDia {
+
+    @Id
+    private LocalDate dia;
+
+    @Id
+    private Long itemId;
+
+    private Long emprestimos;
+    private Long unidades;
+    private Long renovacoes;
+    private Long devolucoes;
+    private Long devolucoesAtrasadas;
+    private Double multas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private LocalDate dia;
+        private Long itemId;
+    }
+}
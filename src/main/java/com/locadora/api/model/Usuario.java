@@ -1,10 +1,13 @@
 package com.locadora.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Usuario {
 
@@ -17,4 +20,10 @@ public class Usuario {
     private String telefone;
     private BigDecimal divida = BigDecimal.ZERO;
 
+    // Controle de concorrência otimista e base do ETag (também incrementado pelos UPDATEs de dívida)
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long versao;
+
 }
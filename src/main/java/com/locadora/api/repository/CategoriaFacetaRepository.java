@@ -0,0 +1,60 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.model.CategoriaFaceta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CategoriaFacetaRepository extends JpaRepository<CategoriaFaceta, CategoriaFaceta.Chave> {
+
+    // 🔹 Totais por categoria somando as fatias (no máximo 8 linhas por categoria, sem varrer itens)
+    @Query("SELECT new com.locadora.api.dto.FacetaCategoria(" +
+            "f.categoria, SUM(f.titulos), SUM(f.copias), SUM(f.emprestadas), SUM(f.disponiveis)) " +
+            "FROM CategoriaFaceta f GROUP BY f.categoria HAVING SUM(f.titulos) > 0 ORDER BY f.categoria")
+    List<FacetaCategoria> listarTotais();
+
+    // 🔹 Soma (ou subtrai) deltas na fatia; cria a linha na primeira ocorrência
+    @Modifying
+    @Query(value = "MERGE INTO categoria_faceta f " +
+            "USING (VALUES (CAST(:categoria AS VARCHAR(100)), CAST(:fatia AS INT))) AS s(categoria, fatia) " +
+            "ON f.categoria = s.categoria AND f.fatia = s.fatia " +
+            "WHEN MATCHED THEN UPDATE SET titulos = f.titulos + :titulos, copias = f.copias + :copias, " +
+            "emprestadas = f.emprestadas + :emprestadas, disponiveis = f.disponiveis + :disponiveis " +
+            "WHEN NOT MATCHED THEN INSERT (categoria, fatia, titulos, copias, emprestadas, disponiveis) " +
+            "VALUES (s.categoria, s.fatia, :titulos, :copias, :emprestadas, :disponiveis)", nativeQuery = true)
+    int ajustar(@Param("categoria") String categoria,
+                @Param("fatia") int fatia,
+                @Param("titulos") long titulos,
+                @Param("copias") long copias,
+                @Param("emprestadas") long emprestadas,
+                @Param("disponiveis") long disponiveis);
+
+    // 🔹 Reconstrução: bloqueia as fatias existentes (espera os ajustes em andamento)...
+    @Query(value = "SELECT fatia FROM categoria_faceta FOR UPDATE", nativeQuery = true)
+    List<Integer> bloquearFatias();
+
+    // ...grava os valores absolutos calculados a partir dos itens...
+    @Modifying
+    @Query(value = "MERGE INTO categoria_faceta f USING (" +
+            "SELECT COALESCE(categoria, '') AS categoria, MOD(id, 8) AS fatia, COUNT(*) AS titulos, " +
+            "SUM(COALESCE(quantidade, 0)) AS copias, SUM(emprestados) AS emprestadas, " +
+            "SUM(GREATEST(COALESCE(quantidade, 0) - emprestados - reservados, 0)) AS disponiveis " +
+            "FROM item GROUP BY COALESCE(categoria, ''), MOD(id, 8)) s " +
+            "ON f.categoria = s.categoria AND f.fatia = s.fatia " +
+            "WHEN MATCHED THEN UPDATE SET titulos = s.titulos, copias = s.copias, " +
+            "emprestadas = s.emprestadas, disponiveis = s.disponiveis " +
+            "WHEN NOT MATCHED THEN INSERT (categoria, fatia, titulos, copias, emprestadas, disponiveis) " +
+            "VALUES (s.categoria, s.fatia, s.titulos, s.copias, s.emprestadas, s.disponiveis)", nativeQuery = true)
+    int recalcularFatias();
+
+    // ...e remove as fatias que não têm mais itens
+    @Modifying
+    @Query(value = "DELETE FROM categoria_faceta f WHERE NOT EXISTS (" +
+            "SELECT 1 FROM item i WHERE COALESCE(i.categoria, '') = f.categoria AND MOD(i.id, 8) = f.fatia)",
+            nativeQuery = true)
+    int removerFatiasVazias();
+}
@@ -0,0 +1,82 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.EmprestimoResumo;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.EmprestimoHistorico;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Empréstimos arquivados. As consultas espelham as do EmprestimoRepository que precisam
+// enxergar também os encerrados (histórico do usuário, dívidas, detalhe, exportação)
+@Repository
+public interface EmprestimoHistoricoRepository extends JpaRepository<EmprestimoHistorico, Long> {
+
+    @EntityGraph(attributePaths = {"usuario", "item"})
+    Optional<EmprestimoHistorico> findComDetalhesById(Long id);
+
+    // 🔹 Item com empréstimos arquivados não pode ser excluído (chave estrangeira)
+    boolean existsByItemId(Long itemId);
+
+    @Query("SELECT new com.locadora.api.dto.EmprestimoResumo(" +
+            "e.id, u.id, u.nome, i.id, i.nome, e.quantidade, e.dataEmprestimo, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao, e.renovacoes, e.status, e.multa) " +
+            "FROM EmprestimoHistorico e JOIN e.usuario u JOIN e.item i " +
+            "WHERE u.id = :usuarioId AND e.id > :after ORDER BY e.id")
+    List<EmprestimoResumo> listarPorUsuario(@Param("usuarioId") Long usuarioId,
+                                            @Param("after") long after,
+                                            Limit limit);
+
+    @Query("SELECT new com.locadora.api.dto.DividaEmprestimo(" +
+            "e.id, i.id, i.nome, e.quantidade, e.dataEmprestimo, e.dataPrevistaDevolucao, " +
+            "e.dataDevolucao, e.status, e.multa) " +
+            "FROM EmprestimoHistorico e JOIN e.item i " +
+            "WHERE e.usuario.id = :usuarioId AND e.id > :after " +
+            "AND (e.status IN :status OR e.multa > 0) ORDER BY e.id")
+    List<DividaEmprestimo> buscarDividas(@Param("usuarioId") Long usuarioId,
+                                         @Param("after") long after,
+                                         @Param("status") Collection<Emprestimo.StatusEmprestimo> status,
+                                         Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.locadora.api.dto.EmprestimoResumo(" +
+            "e.id, u.id, u.nome, i.id, i.nome, e.quantidade, e.dataEmprestimo, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao, e.renovacoes, e.status, e.multa) " +
+            "FROM EmprestimoHistorico e JOIN e.usuario u JOIN e.item i " +
+            "WHERE (:de IS NULL OR e.dataEmprestimo >= :de) " +
+            "AND (:ate IS NULL OR e.dataEmprestimo <= :ate) " +
+            "AND (:status IS NULL OR e.status = :status) " +
+            "AND (:usuarioId IS NULL OR u.id = :usuarioId) " +
+            "ORDER BY e.id")
+    Stream<EmprestimoResumo> exportar(@Param("de") LocalDate de,
+                                      @Param("ate") LocalDate ate,
+                                      @Param("status") Emprestimo.StatusEmprestimo status,
+                                      @Param("usuarioId") Long usuarioId);
+
+    // 🔹 Arquivamento: copia o lote da tabela viva (o EmprestimoRepository.apagarLote remove em seguida)
+    @Modifying
+    @Query(value = "INSERT INTO emprestimo_historico (id, usuario_id, item_id, quantidade, data_emprestimo, " +
+            "data_prevista_devolucao, data_devolucao, renovacoes, status, multa, multa_apurada, multa_calculada_em, " +
+            "versao, arquivado_em) " +
+            "SELECT id, usuario_id, item_id, quantidade, data_emprestimo, data_prevista_devolucao, " +
+            "data_devolucao, renovacoes, status, multa, multa_apurada, multa_calculada_em, versao, CURRENT_TIMESTAMP " +
+            "FROM emprestimo WHERE id IN (:ids)", nativeQuery = true)
+    int copiarLote(@Param("ids") List<Long> ids);
+}
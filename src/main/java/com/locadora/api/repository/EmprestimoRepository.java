@@ -1,18 +1,62 @@
 package com.locadora.api.repository;
 
+import com.locadora.api.dto.DividaAtiva;
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.EmprestimoResumo;
 import com.locadora.api.model.Emprestimo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface EmprestimoRepository extends JpaRepository<Emprestimo, Long> {
 
+    // 🔹 Listagem por cursor (keyset) usando projeção: usuário e item entram só com id e nome
+    @Query("SELECT new com.locadora.api.dto.EmprestimoResumo(" +
+            "e.id, u.id, u.nome, i.id, i.nome, e.quantidade, e.dataEmprestimo, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao, e.renovacoes, e.status, e.multa) " +
+            "FROM Emprestimo e JOIN e.usuario u JOIN e.item i " +
+            "WHERE e.id > :after ORDER BY e.id")
+    List<EmprestimoResumo> listarResumos(@Param("after") long after, Limit limit);
+
+    // 🔹 Exportação completa: cursor somente-leitura (forward-only) lido em blocos de 1000 linhas.
+    // A projeção não é gerenciada, então o contexto de persistência não cresce durante a leitura.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.locadora.api.dto.EmprestimoResumo(" +
+            "e.id, u.id, u.nome, i.id, i.nome, e.quantidade, e.dataEmprestimo, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao, e.renovacoes, e.status, e.multa) " +
+            "FROM Emprestimo e JOIN e.usuario u JOIN e.item i " +
+            "WHERE (:de IS NULL OR e.dataEmprestimo >= :de) " +
+            "AND (:ate IS NULL OR e.dataEmprestimo <= :ate) " +
+            "AND (:status IS NULL OR e.status = :status) " +
+            "AND (:usuarioId IS NULL OR u.id = :usuarioId) " +
+            "ORDER BY e.id")
+    Stream<EmprestimoResumo> exportar(@Param("de") LocalDate de,
+                                      @Param("ate") LocalDate ate,
+                                      @Param("status") Emprestimo.StatusEmprestimo status,
+                                      @Param("usuarioId") Long usuarioId);
+
     // 🔹 Verifica se existe empréstimo ativo vinculado a um item específico
     boolean existsByItemId(Long itemId);
 
     // 🔹 Busca todos os empréstimos de um usuário com determinados status
+    @EntityGraph(attributePaths = {"usuario", "item"})
     List<Emprestimo> findByUsuarioIdAndStatusIn(Long usuarioId, List<String> status);
 
     // 🔹 Busca todos os empréstimos associados a um item específico
@@ -25,14 +69,121 @@ public interface EmprestimoRepository extends JpaRepository<Emprestimo, Long> {
     List<Emprestimo> findByStatus(Emprestimo.StatusEmprestimo status);
 
     // 🔹 Buscar empréstimos com multa > 0 para impedir exclusão/PUT
+    @EntityGraph(attributePaths = {"usuario", "item"})
     List<Emprestimo> findByUsuarioIdAndMultaGreaterThan(Long usuarioId, double valor);
 
     // 🔹 Buscar empréstimos com multa > 0
     List<Emprestimo> findByMultaGreaterThan(Double multa);
 
+    // 🔹 Empréstimos com multa > 0 e os dados do usuário, projetados em um único SELECT com join
+    @Query("SELECT new com.locadora.api.dto.DividaAtiva(e.id, u.id, u.nome, u.email, e.multa, e.status, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao) " +
+            "FROM Emprestimo e JOIN e.usuario u WHERE e.multa > :multa")
+    List<DividaAtiva> listarDividasAtivas(@Param("multa") Double multa);
+
+    // 🔹 Bloqueia a linha do empréstimo (SELECT ... FOR UPDATE), na mesma ordem da varredura de atrasos
+    @Query(value = "SELECT id FROM emprestimo WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> bloquear(@Param("id") Long id);
+
+    // 🔹 Empréstimo com usuário e item carregados no mesmo SELECT
+    @EntityGraph(attributePaths = {"usuario", "item"})
+    Optional<Emprestimo> findComDetalhesById(Long id);
+
+    // 🔹 Empréstimo com o usuário carregado no mesmo SELECT
+    @EntityGraph(attributePaths = "usuario")
+    Optional<Emprestimo> findComUsuarioById(Long id);
+
     // 🔹 Correção: mantido apenas UMA versão compatível com o service
     List<Emprestimo> findByUsuarioIdAndMultaGreaterThan(Long usuarioId, Double multa);
 
     // 🔹 Novo método necessário para o UsuarioService
     List<Emprestimo> findByUsuarioId(Long usuarioId);
+
+    // 🔹 Nomes dos usuários com o item ainda não devolvido (sem carregar entidades)
+    @Query("SELECT u.nome FROM Emprestimo e JOIN e.usuario u " +
+            "WHERE e.item.id = :itemId AND e.dataDevolucao IS NULL ORDER BY e.id")
+    List<String> findNomesUsuariosComItemEmAberto(@Param("itemId") Long itemId);
+
+    // 🔹 Itens com empréstimo em aberto do usuário (o nome dele aparece na disponibilidade desses itens)
+    @Query("SELECT DISTINCT e.item.id FROM Emprestimo e WHERE e.usuario.id = :usuarioId AND e.dataDevolucao IS NULL")
+    List<Long> findItensEmAbertoDoUsuario(@Param("usuarioId") Long usuarioId);
+
+    // 🔹 Empréstimos do usuário na tabela viva (o histórico completo junta EmprestimoHistoricoRepository)
+    @Query("SELECT new com.locadora.api.dto.EmprestimoResumo(" +
+            "e.id, u.id, u.nome, i.id, i.nome, e.quantidade, e.dataEmprestimo, " +
+            "e.dataPrevistaDevolucao, e.dataDevolucao, e.renovacoes, e.status, e.multa) " +
+            "FROM Emprestimo e JOIN e.usuario u JOIN e.item i " +
+            "WHERE u.id = :usuarioId AND e.id > :after ORDER BY e.id")
+    List<EmprestimoResumo> listarPorUsuario(@Param("usuarioId") Long usuarioId,
+                                            @Param("after") long after,
+                                            Limit limit);
+
+    // 🔹 Dívidas do usuário (status pendente OU multa > 0) em uma única consulta paginada por cursor
+    @Query("SELECT new com.locadora.api.dto.DividaEmprestimo(" +
+            "e.id, i.id, i.nome, e.quantidade, e.dataEmprestimo, e.dataPrevistaDevolucao, " +
+            "e.dataDevolucao, e.status, e.multa) " +
+            "FROM Emprestimo e JOIN e.item i " +
+            "WHERE e.usuario.id = :usuarioId AND e.id > :after " +
+            "AND (e.status IN :status OR e.multa > 0) ORDER BY e.id")
+    List<DividaEmprestimo> buscarDividas(@Param("usuarioId") Long usuarioId,
+                                         @Param("after") long after,
+                                         @Param("status") Collection<Emprestimo.StatusEmprestimo> status,
+                                         Limit limit);
+
+    // 🔹 Quitação: zera em um único UPDATE as multas pendentes dos usuários informados
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Emprestimo e SET e.multa = 0, e.versao = e.versao + 1 " +
+            "WHERE e.usuario.id IN :usuarioIds AND e.multa > 0")
+    int zerarMultas(@Param("usuarioIds") Collection<Long> usuarioIds);
+
+    // ========== Varredura diária de atrasos (SQL nativo, em lotes) ==========
+
+    // 🔹 Próximo lote de empréstimos vencidos ainda sem a multa do dia, bloqueados para a varredura
+    @Query(value = "SELECT id FROM emprestimo " +
+            "WHERE data_devolucao IS NULL AND data_prevista_devolucao < :hoje " +
+            "AND (multa_calculada_em IS NULL OR multa_calculada_em < :hoje) AND id > :after " +
+            "ORDER BY id LIMIT :limite FOR UPDATE", nativeQuery = true)
+    List<Long> buscarLoteAtrasados(@Param("hoje") LocalDate hoje,
+                                   @Param("after") long after,
+                                   @Param("limite") int limite);
+
+    // 🔹 Lança na dívida de cada usuário a soma das multas do lote (um único UPDATE agregado).
+    // Deve rodar antes de aplicarMultaLote, que marca os empréstimos como calculados.
+    @Modifying
+    @Query(value = "UPDATE usuario u SET versao = u.versao + 1, divida = COALESCE(u.divida, 0) + COALESCE((" +
+            "SELECT SUM(DATEDIFF('DAY', GREATEST(e.data_prevista_devolucao, " +
+            "COALESCE(e.multa_calculada_em, e.data_prevista_devolucao)), :hoje) * CAST(:taxa AS DECIMAL(10,2))) " +
+            "FROM emprestimo e WHERE e.usuario_id = u.id AND e.id IN (:ids) " +
+            "AND (e.multa_calculada_em IS NULL OR e.multa_calculada_em < :hoje)), 0) " +
+            "WHERE u.id IN (SELECT e.usuario_id FROM emprestimo e WHERE e.id IN (:ids))", nativeQuery = true)
+    int acrescentarDividaLote(@Param("ids") List<Long> ids,
+                              @Param("hoje") LocalDate hoje,
+                              @Param("taxa") double taxa);
+
+    // 🔹 Marca o lote como atrasado e acumula a multa dos dias ainda não lançados
+    @Modifying
+    @Query(value = "UPDATE emprestimo SET status = 'LATE', " +
+            "multa = multa + DATEDIFF('DAY', GREATEST(data_prevista_devolucao, " +
+            "COALESCE(multa_calculada_em, data_prevista_devolucao)), :hoje) * CAST(:taxa AS DECIMAL(10,2)), " +
+            "multa_apurada = multa_apurada + DATEDIFF('DAY', GREATEST(data_prevista_devolucao, " +
+            "COALESCE(multa_calculada_em, data_prevista_devolucao)), :hoje) * CAST(:taxa AS DECIMAL(10,2)), " +
+            "multa_calculada_em = :hoje, versao = versao + 1 " +
+            "WHERE id IN (:ids) AND (multa_calculada_em IS NULL OR multa_calculada_em < :hoje)", nativeQuery = true)
+    int aplicarMultaLote(@Param("ids") List<Long> ids,
+                         @Param("hoje") LocalDate hoje,
+                         @Param("taxa") double taxa);
+
+    // ========== Arquivamento de encerrados (SQL nativo, em lotes) ==========
+
+    // 🔹 Próximo lote de empréstimos devolvidos antes de 'devolvidoAntes' e sem multa pendente, bloqueados
+    @Query(value = "SELECT id FROM emprestimo " +
+            "WHERE data_devolucao < :devolvidoAntes AND COALESCE(multa, 0) = 0 AND id > :after " +
+            "ORDER BY id LIMIT :limite FOR UPDATE", nativeQuery = true)
+    List<Long> buscarLoteEncerrados(@Param("devolvidoAntes") LocalDate devolvidoAntes,
+                                    @Param("after") long after,
+                                    @Param("limite") int limite);
+
+    @Modifying
+    @Query(value = "DELETE FROM emprestimo WHERE id IN (:ids)", nativeQuery = true)
+    int apagarLote(@Param("ids") List<Long> ids);
 }
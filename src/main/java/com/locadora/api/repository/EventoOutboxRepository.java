@@ -0,0 +1,99 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.model.EventoOutbox;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    // 🔹 Avança o contador de eventos do usuário; o UPDATE bloqueia a linha do usuário até o commit,
+    // então transações concorrentes do mesmo usuário recebem números na ordem em que confirmam
+    @Modifying
+    @Query(value = "UPDATE usuario SET eventos_outbox = eventos_outbox + :quantidade WHERE id = :usuarioId",
+            nativeQuery = true)
+    int avancarSequencia(@Param("usuarioId") Long usuarioId, @Param("quantidade") int quantidade);
+
+    @Query(value = "SELECT eventos_outbox FROM usuario WHERE id = :usuarioId", nativeQuery = true)
+    long ultimaSequencia(@Param("usuarioId") Long usuarioId);
+
+    // 🔹 Concede à instância ('reserva') os usuários com eventos pendentes mais antigos que não estejam
+    // concedidos a outra; o UPDATE condicional garante um único dono por usuário entre instâncias
+    @Modifying
+    @Query(value = "UPDATE usuario u SET outbox_reserva = :reserva, outbox_reservado_ate = :ate " +
+            "WHERE u.id IN (SELECT e.usuario_id FROM evento_outbox e JOIN usuario p ON p.id = e.usuario_id " +
+            "WHERE e.processado_em IS NULL AND (p.outbox_reservado_ate IS NULL OR p.outbox_reservado_ate < :agora) " +
+            "GROUP BY e.usuario_id ORDER BY MIN(e.id) LIMIT :usuarios) " +
+            "AND (u.outbox_reservado_ate IS NULL OR u.outbox_reservado_ate < :agora)", nativeQuery = true)
+    int reservarUsuarios(@Param("reserva") String reserva,
+                         @Param("agora") LocalDateTime agora,
+                         @Param("ate") LocalDateTime ate,
+                         @Param("usuarios") int usuarios);
+
+    // 🔹 Pendentes dos usuários concedidos, em ordem de sequência por usuário (um corte pelo limite
+    // só deixa de fora os eventos mais recentes de um usuário, nunca um anterior)
+    @Query(value = "SELECT e.* FROM evento_outbox e JOIN usuario u ON u.id = e.usuario_id " +
+            "WHERE u.outbox_reserva = :reserva AND e.processado_em IS NULL " +
+            "ORDER BY e.usuario_id, e.sequencia LIMIT :limite", nativeQuery = true)
+    List<EventoOutbox> buscarReservados(@Param("reserva") String reserva, @Param("limite") int limite);
+
+    @Modifying
+    @Query(value = "UPDATE usuario SET outbox_reserva = NULL, outbox_reservado_ate = NULL " +
+            "WHERE outbox_reserva = :reserva", nativeQuery = true)
+    int liberarUsuarios(@Param("reserva") String reserva);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventoOutbox e SET e.processadoEm = :agora WHERE e.id IN :ids")
+    int marcarProcessados(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventoOutbox e SET e.tentativas = e.tentativas + 1, e.erro = :erro WHERE e.id = :id")
+    int registrarFalha(@Param("id") Long id, @Param("erro") String erro);
+
+    // 🔹 Descarta (marca como processado) o evento que esgotou as tentativas, preservando o erro
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventoOutbox e SET e.processadoEm = :agora WHERE e.id = :id AND e.tentativas >= :maximo")
+    int descartarEsgotado(@Param("id") Long id, @Param("maximo") int maximo, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.processadoEm < :limite AND e.erro IS NULL")
+    int apagarProcessadosAntes(@Param("limite") LocalDateTime limite);
+
+    // 🔹 Reserva no contador de cada usuário um número por evento de multa do lote (ver registrarMultasLote)
+    @Modifying
+    @Query(value = "UPDATE usuario u SET eventos_outbox = eventos_outbox + (" +
+            "SELECT COUNT(*) FROM emprestimo e WHERE e.id IN (:ids) AND e.usuario_id = u.id " +
+            "AND (e.multa_calculada_em IS NULL OR e.multa_calculada_em < :hoje)) " +
+            "WHERE u.id IN (SELECT e.usuario_id FROM emprestimo e WHERE e.id IN (:ids) " +
+            "AND (e.multa_calculada_em IS NULL OR e.multa_calculada_em < :hoje))", nativeQuery = true)
+    int avancarSequenciaMultasLote(@Param("ids") List<Long> ids, @Param("hoje") LocalDate hoje);
+
+    // 🔹 Um FINE_ACCRUED por empréstimo do lote da varredura de atrasos, com o valor lançado no dia.
+    // Roda depois de avancarSequenciaMultasLote (os eventos ocupam os últimos números reservados de
+    // cada usuário) e antes de aplicarMultaLote, que marca os empréstimos como calculados.
+    // As funções de janela ficam na subconsulta: no mesmo SELECT delas, o H2 repete o NEXT VALUE FOR entre linhas.
+    @Modifying
+    @Query(value = "INSERT INTO evento_outbox (id, tipo, usuario_id, sequencia, emprestimo_id, payload, criado_em, tentativas) " +
+            "SELECT NEXT VALUE FOR evento_outbox_seq, 'FINE_ACCRUED', m.usuario_id, m.sequencia, m.emprestimo_id, " +
+            "m.payload, CURRENT_TIMESTAMP, 0 FROM (" +
+            "SELECT e.usuario_id, u.eventos_outbox - COUNT(*) OVER (PARTITION BY e.usuario_id) " +
+            "+ ROW_NUMBER() OVER (PARTITION BY e.usuario_id ORDER BY e.id) AS sequencia, e.id AS emprestimo_id, " +
+            "'{\"valor\":' || CAST(DATEDIFF('DAY', GREATEST(e.data_prevista_devolucao, " +
+            "COALESCE(e.multa_calculada_em, e.data_prevista_devolucao)), :hoje) * CAST(:taxa AS DECIMAL(10,2)) AS VARCHAR) || " +
+            "',\"origem\":\"varredura\",\"data\":\"' || CAST(:hoje AS VARCHAR) || '\"}' AS payload " +
+            "FROM emprestimo e JOIN usuario u ON u.id = e.usuario_id " +
+            "WHERE e.id IN (:ids) AND (e.multa_calculada_em IS NULL OR e.multa_calculada_em < :hoje)) m",
+            nativeQuery = true)
+    int registrarMultasLote(@Param("ids") List<Long> ids,
+                            @Param("hoje") LocalDate hoje,
+                            @Param("taxa") double taxa);
+}
@@ -1,7 +1,106 @@
 package com.locadora.api.repository;
 
+import com.locadora.api.dto.DisponibilidadeGeralItem;
+import com.locadora.api.dto.DivergenciaDisponibilidade;
+import com.locadora.api.dto.ItemResumo;
+import com.locadora.api.dto.VersaoRegistro;
 import com.locadora.api.model.Item;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
+
+    // 🔹 Listagem por cursor (keyset) usando projeção
+    @Query("SELECT new com.locadora.api.dto.ItemResumo(" +
+            "i.id, i.nome, i.descricao, i.categoria, i.quantidade, i.emprestados, i.reservados) " +
+            "FROM Item i WHERE i.id > :after ORDER BY i.id")
+    List<ItemResumo> listarResumos(@Param("after") long after, Limit limit);
+
+    // 🔹 Versões da mesma página da listagem (ETag da coleção sem carregar as linhas)
+    @Query("SELECT new com.locadora.api.dto.VersaoRegistro(i.id, i.versao) " +
+            "FROM Item i WHERE i.id > :after ORDER BY i.id")
+    List<VersaoRegistro> listarVersoes(@Param("after") long after, Limit limit);
+
+    @Query("SELECT i.versao FROM Item i WHERE i.id = :id")
+    Optional<Long> buscarVersao(@Param("id") Long id);
+
+    // 🔹 Disponibilidade de todos os itens (projeção, sem carregar as entidades)
+    @Query("SELECT new com.locadora.api.dto.DisponibilidadeGeralItem(i.id, i.nome, i.quantidade, i.emprestados, i.reservados) " +
+            "FROM Item i ORDER BY i.id")
+    List<DisponibilidadeGeralItem> listarDisponibilidadeGeral();
+
+    // 🔹 Projeção de vários itens por id (resultados de busca / atualização do índice)
+    @Query("SELECT new com.locadora.api.dto.ItemResumo(" +
+            "i.id, i.nome, i.descricao, i.categoria, i.quantidade, i.emprestados, i.reservados) " +
+            "FROM Item i WHERE i.id IN :ids")
+    List<ItemResumo> buscarResumosPorIds(@Param("ids") Collection<Long> ids);
+
+    // 🔹 Reserva atômica de estoque: verifica a disponibilidade e incrementa 'emprestados' em um único UPDATE.
+    // Retorna 0 quando o item não existe ou não há unidades disponíveis suficientes.
+    // Unidades separadas para a fila de espera ('reservados') não contam como disponíveis.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.emprestados = i.emprestados + :quantidade, i.versao = i.versao + 1 " +
+            "WHERE i.id = :id AND i.quantidade - i.emprestados - i.reservados >= :quantidade")
+    int reservarEstoque(@Param("id") Long id, @Param("quantidade") int quantidade);
+
+    // 🔹 Empréstimo de quem tem unidades separadas pela fila: as 'separados' saem de 'reservados'
+    // e 'quantidade' entra em 'emprestados' (o que faltar vem das unidades livres) no mesmo UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.emprestados = i.emprestados + :quantidade, " +
+            "i.reservados = i.reservados - :separados, i.versao = i.versao + 1 " +
+            "WHERE i.id = :id AND i.reservados >= :separados " +
+            "AND i.quantidade - i.emprestados - i.reservados + :separados >= :quantidade")
+    int resgatarSeparados(@Param("id") Long id, @Param("separados") int separados,
+                          @Param("quantidade") int quantidade);
+
+    // 🔹 Fila de espera: separa unidades livres (ou devolve as separadas com quantidade negativa)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.reservados = i.reservados + :quantidade, i.versao = i.versao + 1 " +
+            "WHERE i.id = :id AND i.reservados + :quantidade >= 0 " +
+            "AND i.quantidade - i.emprestados - i.reservados >= :quantidade")
+    int separarEstoque(@Param("id") Long id, @Param("quantidade") int quantidade);
+
+    // 🔹 Unidades livres lidas do banco (fora do contexto de persistência)
+    @Query("SELECT i.quantidade - i.emprestados - i.reservados FROM Item i WHERE i.id = :id")
+    Optional<Integer> buscarLivres(@Param("id") Long id);
+
+    // 🔹 Bloqueia todos os itens em ordem de id (reconstrução das facetas)
+    @Query(value = "SELECT id FROM item ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> bloquearTodos();
+
+    // 🔹 Bloqueia a linha do item (SELECT ... FOR UPDATE): serializa entrada na fila, separação e expiração
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Item i WHERE i.id = :id")
+    Optional<Item> bloquearPorId(@Param("id") Long id);
+
+    // 🔹 Devolve unidades ao estoque de forma atômica
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.emprestados = i.emprestados - :quantidade, i.versao = i.versao + 1 " +
+            "WHERE i.id = :id")
+    int devolverEstoque(@Param("id") Long id, @Param("quantidade") int quantidade);
+
+    // 🔹 Itens cujo contador 'emprestados' difere da soma dos empréstimos em aberto
+    @Query("SELECT new com.locadora.api.dto.DivergenciaDisponibilidade(" +
+            "i.id, i.nome, i.emprestados, COALESCE(SUM(e.quantidade), 0)) " +
+            "FROM Item i LEFT JOIN Emprestimo e ON e.item = i AND e.dataDevolucao IS NULL " +
+            "GROUP BY i.id, i.nome, i.emprestados " +
+            "HAVING i.emprestados <> COALESCE(SUM(e.quantidade), 0)")
+    List<DivergenciaDisponibilidade> buscarDivergenciasDisponibilidade();
+
+    // 🔹 Recalcula o contador a partir dos empréstimos em aberto no próprio UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.emprestados = (" +
+            "SELECT COALESCE(SUM(e.quantidade), 0) FROM Emprestimo e " +
+            "WHERE e.item.id = i.id AND e.dataDevolucao IS NULL), i.versao = i.versao + 1 " +
+            "WHERE i.id = :id")
+    int recalcularEmprestados(@Param("id") Long id);
 }
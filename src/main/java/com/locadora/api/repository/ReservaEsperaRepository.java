@@ -0,0 +1,66 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.model.ReservaEspera;
+import com.locadora.api.model.ReservaEspera.StatusReserva;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// As alterações de status são UPDATEs condicionais ao status atual: quem altera a reserva já tem a
+// linha do item bloqueada, e a condição descarta transições feitas por outra transação antes do bloqueio.
+public interface ReservaEsperaRepository extends JpaRepository<ReservaEspera, Long> {
+
+    // 🔹 Próximas da fila do item, em ordem de chegada (keyset por criadaEm, id; criadaEm nulo = início)
+    @Query("SELECT r FROM ReservaEspera r WHERE r.item.id = :itemId AND r.status = :status " +
+            "AND (:criadaEm IS NULL OR r.criadaEm > :criadaEm OR (r.criadaEm = :criadaEm AND r.id > :after)) " +
+            "ORDER BY r.criadaEm, r.id")
+    List<ReservaEspera> buscarFila(@Param("itemId") Long itemId, @Param("status") StatusReserva status,
+                                   @Param("criadaEm") LocalDateTime criadaEm, @Param("after") long after,
+                                   Limit limit);
+
+    // 🔹 Posição na fila = reservas aguardando à frente + 1
+    @Query("SELECT COUNT(r) FROM ReservaEspera r WHERE r.item.id = :itemId AND r.status = :status " +
+            "AND (r.criadaEm < :criadaEm OR (r.criadaEm = :criadaEm AND r.id < :id))")
+    long contarAFrente(@Param("itemId") Long itemId, @Param("status") StatusReserva status,
+                       @Param("criadaEm") LocalDateTime criadaEm, @Param("id") Long id);
+
+    boolean existsByUsuarioIdAndItemIdAndStatusIn(Long usuarioId, Long itemId, Collection<StatusReserva> status);
+
+    boolean existsByItemIdAndStatusIn(Long itemId, Collection<StatusReserva> status);
+
+    boolean existsByUsuarioIdAndStatusIn(Long usuarioId, Collection<StatusReserva> status);
+
+    // 🔹 Unidades separadas para o usuário e ainda dentro da janela
+    @Query("SELECT r FROM ReservaEspera r WHERE r.usuario.id = :usuarioId AND r.item.id = :itemId " +
+            "AND r.status = :status AND r.expiraEm > :agora")
+    Optional<ReservaEspera> buscarSeparada(@Param("usuarioId") Long usuarioId, @Param("itemId") Long itemId,
+                                           @Param("status") StatusReserva status,
+                                           @Param("agora") LocalDateTime agora);
+
+    // 🔹 Separadas com a janela vencida (keyset por id)
+    @Query("SELECT r FROM ReservaEspera r WHERE r.status = :status AND r.expiraEm <= :agora " +
+            "AND r.id > :after ORDER BY r.id")
+    List<ReservaEspera> buscarVencidas(@Param("status") StatusReserva status, @Param("agora") LocalDateTime agora,
+                                       @Param("after") long after, Limit limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ReservaEspera r SET r.status = :novo, r.separadaEm = :agora, r.expiraEm = :expiraEm, " +
+            "r.versao = r.versao + 1 WHERE r.id IN :ids AND r.status = :esperado")
+    int separar(@Param("ids") Collection<Long> ids, @Param("esperado") StatusReserva esperado,
+                @Param("novo") StatusReserva novo, @Param("agora") LocalDateTime agora,
+                @Param("expiraEm") LocalDateTime expiraEm);
+
+    // 🔹 Muda o status se a reserva ainda estiver em um dos status esperados; retorna 0 caso contrário
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ReservaEspera r SET r.status = :novo, r.versao = r.versao + 1 " +
+            "WHERE r.id = :id AND r.status IN :esperados")
+    int alterarStatus(@Param("id") Long id, @Param("esperados") Collection<StatusReserva> esperados,
+                      @Param("novo") StatusReserva novo);
+}
@@ -0,0 +1,147 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.dto.ReceitaMultasMes;
+import com.locadora.api.dto.RelatorioCategoria;
+import com.locadora.api.dto.RelatorioItem;
+import com.locadora.api.model.CategoriaFaceta;
+import com.locadora.api.model.RollupItemDia;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Tabelas de totais diários (ROLLUP_ITEM_DIA e ROLLUP_CATEGORIA_DIA): ajustes incrementais,
+// reconstrução por intervalo de dias e consultas dos relatórios
+public interface RollupEmprestimoRepository extends JpaRepository<RollupItemDia, RollupItemDia.Chave> {
+
+    // Tabela viva + histórico, com as colunas usadas na reconstrução (multa_apurada: a quitação zera só a multa)
+    String EMPRESTIMOS = "(SELECT item_id, quantidade, data_emprestimo, data_prevista_devolucao, data_devolucao, " +
+            "renovacoes, multa_apurada FROM emprestimo UNION ALL " +
+            "SELECT item_id, quantidade, data_emprestimo, data_prevista_devolucao, data_devolucao, " +
+            "renovacoes, multa_apurada FROM emprestimo_historico) e";
+
+    // Fatia da categoria do item, a mesma dos ajustes incrementais (CategoriaFaceta.FATIAS)
+    String FATIA = "MOD(r.item_id, " + CategoriaFaceta.FATIAS + ")";
+
+    // 🔹 Soma deltas no dia do item; cria a linha na primeira ocorrência
+    @Modifying
+    @Query(value = "MERGE INTO rollup_item_dia r " +
+            "USING (VALUES (CAST(:dia AS DATE), CAST(:itemId AS BIGINT))) AS s(dia, item_id) " +
+            "ON r.dia = s.dia AND r.item_id = s.item_id " +
+            "WHEN MATCHED THEN UPDATE SET emprestimos = r.emprestimos + :emprestimos, " +
+            "unidades = r.unidades + :unidades, renovacoes = r.renovacoes + :renovacoes, " +
+            "devolucoes = r.devolucoes + :devolucoes, devolucoes_atrasadas = r.devolucoes_atrasadas + :atrasadas, " +
+            "multas = r.multas + :multas " +
+            "WHEN NOT MATCHED THEN INSERT (dia, item_id, emprestimos, unidades, renovacoes, devolucoes, " +
+            "devolucoes_atrasadas, multas) " +
+            "VALUES (s.dia, s.item_id, :emprestimos, :unidades, :renovacoes, :devolucoes, :atrasadas, :multas)",
+            nativeQuery = true)
+    int ajustarItem(@Param("dia") LocalDate dia,
+                    @Param("itemId") Long itemId,
+                    @Param("emprestimos") long emprestimos,
+                    @Param("unidades") long unidades,
+                    @Param("renovacoes") long renovacoes,
+                    @Param("devolucoes") long devolucoes,
+                    @Param("atrasadas") long atrasadas,
+                    @Param("multas") double multas);
+
+    // 🔹 Mesmo ajuste na fatia da categoria
+    @Modifying
+    @Query(value = "MERGE INTO rollup_categoria_dia r " +
+            "USING (VALUES (CAST(:dia AS DATE), CAST(:categoria AS VARCHAR(100)), CAST(:fatia AS INT))) " +
+            "AS s(dia, categoria, fatia) " +
+            "ON r.dia = s.dia AND r.categoria = s.categoria AND r.fatia = s.fatia " +
+            "WHEN MATCHED THEN UPDATE SET emprestimos = r.emprestimos + :emprestimos, " +
+            "unidades = r.unidades + :unidades, renovacoes = r.renovacoes + :renovacoes, " +
+            "devolucoes = r.devolucoes + :devolucoes, devolucoes_atrasadas = r.devolucoes_atrasadas + :atrasadas, " +
+            "multas = r.multas + :multas " +
+            "WHEN NOT MATCHED THEN INSERT (dia, categoria, fatia, emprestimos, unidades, renovacoes, devolucoes, " +
+            "devolucoes_atrasadas, multas) " +
+            "VALUES (s.dia, s.categoria, s.fatia, :emprestimos, :unidades, :renovacoes, :devolucoes, :atrasadas, :multas)",
+            nativeQuery = true)
+    int ajustarCategoria(@Param("dia") LocalDate dia,
+                         @Param("categoria") String categoria,
+                         @Param("fatia") int fatia,
+                         @Param("emprestimos") long emprestimos,
+                         @Param("unidades") long unidades,
+                         @Param("renovacoes") long renovacoes,
+                         @Param("devolucoes") long devolucoes,
+                         @Param("atrasadas") long atrasadas,
+                         @Param("multas") double multas);
+
+    // 🔹 Reconstrução de um intervalo de dias: bloqueia os empréstimos em aberto do intervalo (a renovação
+    // ajusta o dia do empréstimo e grava a linha do empréstimo antes)...
+    @Query(value = "SELECT id FROM emprestimo WHERE data_devolucao IS NULL AND data_emprestimo BETWEEN :de AND :ate " +
+            "ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> bloquearEmAberto(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    // ...apaga os totais...
+    @Modifying
+    @Query(value = "DELETE FROM rollup_item_dia WHERE dia BETWEEN :de AND :ate", nativeQuery = true)
+    int apagarItens(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    @Modifying
+    @Query(value = "DELETE FROM rollup_categoria_dia WHERE dia BETWEEN :de AND :ate", nativeQuery = true)
+    int apagarCategorias(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    // ...recalcula os do item a partir dos empréstimos (em aberto e arquivados)...
+    @Modifying
+    @Query(value = "INSERT INTO rollup_item_dia (dia, item_id, emprestimos, unidades, renovacoes, devolucoes, " +
+            "devolucoes_atrasadas, multas) " +
+            "SELECT dia, item_id, SUM(emprestimos), SUM(unidades), SUM(renovacoes), SUM(devolucoes), " +
+            "SUM(atrasadas), SUM(multas) FROM (" +
+            "SELECT data_emprestimo AS dia, item_id, COUNT(*) AS emprestimos, SUM(quantidade) AS unidades, " +
+            "SUM(renovacoes) AS renovacoes, 0 AS devolucoes, 0 AS atrasadas, 0 AS multas " +
+            "FROM " + EMPRESTIMOS + " WHERE data_emprestimo BETWEEN :de AND :ate GROUP BY data_emprestimo, item_id " +
+            "UNION ALL " +
+            "SELECT data_devolucao, item_id, 0, 0, 0, COUNT(*), " +
+            "SUM(CASE WHEN data_devolucao > data_prevista_devolucao THEN 1 ELSE 0 END), SUM(COALESCE(multa_apurada, 0)) " +
+            "FROM " + EMPRESTIMOS + " WHERE data_devolucao BETWEEN :de AND :ate GROUP BY data_devolucao, item_id" +
+            ") t GROUP BY dia, item_id", nativeQuery = true)
+    int recalcularItens(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    // ...e agrega as categorias a partir dos totais por item (categoria atual do item)
+    @Modifying
+    @Query(value = "INSERT INTO rollup_categoria_dia (dia, categoria, fatia, emprestimos, unidades, renovacoes, " +
+            "devolucoes, devolucoes_atrasadas, multas) " +
+            "SELECT r.dia, COALESCE(i.categoria, ''), " + FATIA + ", SUM(r.emprestimos), SUM(r.unidades), " +
+            "SUM(r.renovacoes), SUM(r.devolucoes), SUM(r.devolucoes_atrasadas), SUM(r.multas) " +
+            "FROM rollup_item_dia r JOIN item i ON i.id = r.item_id " +
+            "WHERE r.dia BETWEEN :de AND :ate " +
+            "GROUP BY r.dia, COALESCE(i.categoria, ''), " + FATIA, nativeQuery = true)
+    int recalcularCategorias(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    // 🔹 Período coberto pelo histórico (primeiro empréstimo até o último empréstimo/devolução)
+    @Query(value = "SELECT MIN(data_emprestimo) FROM " + EMPRESTIMOS, nativeQuery = true)
+    LocalDate primeiroDia();
+
+    @Query(value = "SELECT MAX(GREATEST(data_emprestimo, COALESCE(data_devolucao, data_emprestimo))) FROM " + EMPRESTIMOS,
+            nativeQuery = true)
+    LocalDate ultimoDia();
+
+    // 🔹 Relatórios
+    @Query("SELECT new com.locadora.api.dto.RelatorioItem(r.itemId, i.nome, SUM(r.emprestimos), SUM(r.unidades), " +
+            "SUM(r.renovacoes), SUM(r.devolucoes), SUM(r.devolucoesAtrasadas), SUM(r.multas)) " +
+            "FROM RollupItemDia r JOIN Item i ON i.id = r.itemId " +
+            "WHERE r.dia BETWEEN :de AND :ate " +
+            "GROUP BY r.itemId, i.nome ORDER BY SUM(r.emprestimos) DESC, r.itemId")
+    List<RelatorioItem> totaisPorItem(@Param("de") LocalDate de, @Param("ate") LocalDate ate, Limit limit);
+
+    List<RollupItemDia> findByItemIdAndDiaBetweenOrderByDia(Long itemId, LocalDate de, LocalDate ate);
+
+    @Query("SELECT new com.locadora.api.dto.RelatorioCategoria(r.categoria, SUM(r.emprestimos), SUM(r.unidades), " +
+            "SUM(r.renovacoes), SUM(r.devolucoes), SUM(r.devolucoesAtrasadas), SUM(r.multas)) " +
+            "FROM RollupCategoriaDia r WHERE r.dia BETWEEN :de AND :ate " +
+            "GROUP BY r.categoria ORDER BY r.categoria")
+    List<RelatorioCategoria> totaisPorCategoria(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    @Query("SELECT new com.locadora.api.dto.ReceitaMultasMes(YEAR(r.dia), MONTH(r.dia), SUM(r.devolucoes), " +
+            "SUM(r.multas)) " +
+            "FROM RollupCategoriaDia r WHERE r.dia BETWEEN :de AND :ate " +
+            "GROUP BY YEAR(r.dia), MONTH(r.dia) ORDER BY YEAR(r.dia), MONTH(r.dia)")
+    List<ReceitaMultasMes> multasPorMes(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+}
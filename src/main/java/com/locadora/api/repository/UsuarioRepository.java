@@ -1,8 +1,41 @@
 package com.locadora.api.repository;
 
+import com.locadora.api.dto.UsuarioResumo;
+import com.locadora.api.dto.VersaoRegistro;
 import com.locadora.api.model.Usuario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
-    // Consultas customizadas podem ser adicionadas aqui
+
+    // 🔹 Listagem por cursor (keyset) usando projeção
+    @Query("SELECT new com.locadora.api.dto.UsuarioResumo(u.id, u.nome, u.email, u.telefone, u.divida) " +
+            "FROM Usuario u WHERE u.id > :after ORDER BY u.id")
+    List<UsuarioResumo> listarResumos(@Param("after") long after, Limit limit);
+
+    // 🔹 Versões da mesma página da listagem (ETag da coleção sem carregar as linhas)
+    @Query("SELECT new com.locadora.api.dto.VersaoRegistro(u.id, u.versao) " +
+            "FROM Usuario u WHERE u.id > :after ORDER BY u.id")
+    List<VersaoRegistro> listarVersoes(@Param("after") long after, Limit limit);
+
+    @Query("SELECT u.versao FROM Usuario u WHERE u.id = :id")
+    Optional<Long> buscarVersao(@Param("id") Long id);
+
+    // 🔹 Soma um valor à dívida no próprio UPDATE (sem ler-modificar-gravar)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.divida = COALESCE(u.divida, 0) + :valor, u.versao = u.versao + 1 WHERE u.id = :id")
+    int acrescentarDivida(@Param("id") Long id, @Param("valor") BigDecimal valor);
+
+    // 🔹 Quitação: zera a dívida dos usuários informados; retorna quantos existiam
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.divida = 0, u.versao = u.versao + 1 WHERE u.id IN :ids")
+    int zerarDividas(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,107 @@
+package com.locadora.api.service;
+
+import com.locadora.api.repository.EmprestimoHistoricoRepository;
+import com.locadora.api.repository.EmprestimoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+// Arquivamento diário: empréstimos encerrados (devolvidos e sem multa pendente) há mais de
+// 'app.arquivamento.idade-dias' saem da tabela viva para EMPRESTIMO_HISTORICO, mantendo o id.
+// Cada lote copia e apaga na mesma transação, com as linhas bloqueadas; entre lotes há uma pausa
+// para não disputar o banco com o movimento. Encerrados não sofrem mais alterações (devolução,
+// renovação, varredura e quitação só tocam empréstimos em aberto ou com multa), então nada
+// precisa acompanhar a linha depois de arquivada.
+@Service
+public class ArquivamentoEmprestimoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArquivamentoEmprestimoService.class);
+
+    private final EmprestimoRepository emprestimoRepository;
+    private final EmprestimoHistoricoRepository historicoRepository;
+    private final TransactionTemplate transacao;
+    private final Counter arquivados;
+    private final int idadeDias;
+    private final int tamanhoLote;
+    private final Duration pausa;
+
+    public ArquivamentoEmprestimoService(EmprestimoRepository emprestimoRepository,
+                                         EmprestimoHistoricoRepository historicoRepository,
+                                         PlatformTransactionManager transactionManager,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${app.arquivamento.idade-dias:180}") int idadeDias,
+                                         @Value("${app.arquivamento.tamanho-lote:1000}") int tamanhoLote,
+                                         @Value("${app.arquivamento.pausa:200ms}") Duration pausa) {
+        this.emprestimoRepository = emprestimoRepository;
+        this.historicoRepository = historicoRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.arquivados = Counter.builder("locadora.emprestimos.arquivados")
+                .description("Empréstimos encerrados movidos para o histórico")
+                .register(meterRegistry);
+        this.idadeDias = idadeDias;
+        this.tamanhoLote = tamanhoLote;
+        this.pausa = pausa;
+    }
+
+    @Scheduled(cron = "${app.arquivamento.cron:0 30 1 * * *}")
+    public void arquivarAgendado() {
+        arquivar(LocalDate.now());
+    }
+
+    // 🔹 Arquiva os encerrados devolvidos há mais de idadeDias; retorna quantos foram movidos
+    public int arquivar(LocalDate hoje) {
+        LocalDate devolvidoAntes = hoje.minusDays(idadeDias);
+        long cursor = 0;
+        int total = 0;
+
+        while (true) {
+            long after = cursor;
+            List<Long> ids = transacao.execute(status -> arquivarLote(devolvidoAntes, after));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            total += ids.size();
+            arquivados.increment(ids.size());
+            cursor = ids.get(ids.size() - 1);
+            if (ids.size() < tamanhoLote || !pausar()) {
+                break;
+            }
+        }
+
+        log.info("Arquivamento de empréstimos devolvidos antes de {}: {} movido(s) para o histórico.",
+                devolvidoAntes, total);
+        return total;
+    }
+
+    private List<Long> arquivarLote(LocalDate devolvidoAntes, long after) {
+        List<Long> ids = emprestimoRepository.buscarLoteEncerrados(devolvidoAntes, after, tamanhoLote);
+        if (!ids.isEmpty()) {
+            historicoRepository.copiarLote(ids);
+            emprestimoRepository.apagarLote(ids);
+        }
+        return ids;
+    }
+
+    private boolean pausar() {
+        if (pausa.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausa.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
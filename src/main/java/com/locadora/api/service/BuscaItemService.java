@@ -0,0 +1,152 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.ItemResumo;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.dto.ResultadoBusca;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Busca no catálogo (nome, categoria, descrição) servida pelo IndiceInvertido em memória.
+// O índice é montado na subida da aplicação; itens criados, alterados, removidos ou com
+// empréstimo/devolução entram numa fila e são reindexados em lote logo após o commit.
+// Os itens da página são sempre relidos do banco, então os números exibidos estão em dia;
+// o filtro de disponibilidade pode atrasar até um ciclo de atualização.
+@Service
+public class BuscaItemService {
+
+    private static final Logger log = LoggerFactory.getLogger(BuscaItemService.class);
+
+    private static final int LOTE_CARGA = 5_000;
+    private static final int LOTE_ATUALIZACAO = 1_000;
+    // Profundidade máxima da paginação por relevância
+    private static final int MAXIMO_RESULTADOS = 10_000;
+    private static final int MINIMO_COMPACTACAO = 10_000;
+
+    private final ItemRepository itemRepository;
+    private final Set<Long> pendentes = ConcurrentHashMap.newKeySet();
+    private volatile IndiceInvertido indice = new IndiceInvertido();
+
+    public BuscaItemService(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        reconstruir();
+    }
+
+    // 🔹 Monta um índice novo a partir do banco e troca o atual
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        IndiceInvertido novo = new IndiceInvertido();
+        long cursor = 0;
+        while (true) {
+            List<ItemResumo> lote = itemRepository.listarResumos(cursor, Limit.of(LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+            for (ItemResumo item : lote) {
+                novo.indexar(item.id(), item.nome(), item.categoria(), item.descricao(), item.disponivel());
+            }
+            cursor = lote.get(lote.size() - 1).id();
+        }
+        indice = novo;
+        log.info("Índice de busca montado: {} item(ns) em {} ms.", novo.vivos(), System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarItem(ItemAlteradoEvent evento) {
+        pendentes.add(evento.itemId());
+    }
+
+    // 🔹 Reindexa os itens alterados desde o último ciclo (uma consulta por bloco de ids)
+    @Scheduled(fixedDelayString = "${app.busca.intervalo-atualizacao:500ms}")
+    public synchronized void aplicarAlteracoes() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pendentes);
+        pendentes.removeAll(ids);
+
+        IndiceInvertido atual = indice;
+        for (int i = 0; i < ids.size(); i += LOTE_ATUALIZACAO) {
+            List<Long> bloco = ids.subList(i, Math.min(i + LOTE_ATUALIZACAO, ids.size()));
+            Map<Long, ItemResumo> encontrados = new HashMap<>();
+            for (ItemResumo item : itemRepository.buscarResumosPorIds(bloco)) {
+                encontrados.put(item.id(), item);
+            }
+            for (Long id : bloco) {
+                ItemResumo item = encontrados.get(id);
+                if (item == null) {
+                    atual.remover(id);
+                } else {
+                    atual.indexar(item.id(), item.nome(), item.categoria(), item.descricao(), item.disponivel());
+                }
+            }
+        }
+
+        if (atual.inativos() > Math.max(atual.vivos(), MINIMO_COMPACTACAO)) {
+            atual.compactar();
+        }
+    }
+
+    public ResultadoBusca buscar(String consulta, boolean somenteDisponiveis, Integer pagina, Integer tamanho) {
+        if (consulta == null || IndiceInvertido.tokenizar(consulta).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe um termo de busca.");
+        }
+        int tam = PaginaCursor.normalizarLimite(tamanho);
+        int pag = pagina == null || pagina < 0 ? 0 : pagina;
+        if ((long) pag * tam + tam > MAXIMO_RESULTADOS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A busca permite navegar até os " + MAXIMO_RESULTADOS + " primeiros resultados; refine o termo.");
+        }
+
+        IndiceInvertido.Resultado resultado = indice.buscar(consulta, somenteDisponiveis, pag * tam, tam);
+        if (resultado.ids().length == 0) {
+            return new ResultadoBusca(List.of(), pag, tam, resultado.total());
+        }
+
+        List<Long> ids = new ArrayList<>(resultado.ids().length);
+        for (long id : resultado.ids()) {
+            ids.add(id);
+        }
+        Map<Long, ItemResumo> porId = new HashMap<>();
+        for (ItemResumo item : itemRepository.buscarResumosPorIds(ids)) {
+            porId.put(item.id(), item);
+        }
+
+        // Mantém a ordem de relevância; itens removidos desde a última atualização do índice são ignorados
+        List<ItemResumo> itens = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ItemResumo item = porId.get(id);
+            if (item != null) {
+                itens.add(item);
+            }
+        }
+        return new ResultadoBusca(itens, pag, tam, resultado.total());
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> dados = indice.estatisticas();
+        dados.put("pendentes", pendentes.size());
+        return dados;
+    }
+}
@@ -0,0 +1,112 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.model.CategoriaFaceta;
+import com.locadora.api.model.Item;
+import com.locadora.api.repository.CategoriaFacetaRepository;
+import com.locadora.api.repository.ItemRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Totais por categoria (títulos, cópias, emprestadas, disponíveis) mantidos de forma incremental:
+// cada alteração de item ou empréstimo aplica o delta na fatia da categoria dentro da mesma transação.
+// 'disponiveis' soma o mesmo valor de Item.getDisponivel(), então bate com a disponibilidade por item.
+@Service
+public class CategoriaFacetaService {
+
+    private final CategoriaFacetaRepository categoriaFacetaRepository;
+    private final ItemRepository itemRepository;
+
+    public CategoriaFacetaService(CategoriaFacetaRepository categoriaFacetaRepository,
+                                  ItemRepository itemRepository) {
+        this.categoriaFacetaRepository = categoriaFacetaRepository;
+        this.itemRepository = itemRepository;
+    }
+
+    // Contribuição de um item para os totais da sua categoria
+    public record Contagem(Long itemId, String categoria, int copias, int emprestadas, int disponiveis) {
+
+        public static Contagem de(Item item) {
+            return new Contagem(item.getId(), item.getCategoria(),
+                    item.getQuantidade() == null ? 0 : item.getQuantidade(),
+                    item.getEmprestados() == null ? 0 : item.getEmprestados(),
+                    item.getDisponivel());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<FacetaCategoria> listar() {
+        return categoriaFacetaRepository.listarTotais();
+    }
+
+    // 🔹 Cria ou atualiza um item e ajusta as facetas (antes == null para item novo)
+    @Transactional
+    public Item salvarItem(Item item, Contagem antes) {
+        Item salvo = itemRepository.saveAndFlush(item);
+        Contagem depois = Contagem.de(salvo);
+        if (antes != null) {
+            ajustar(antes.itemId(), antes.categoria(), -1, -antes.copias(), -antes.emprestadas(), -antes.disponiveis());
+        }
+        ajustar(depois.itemId(), depois.categoria(), 1, depois.copias(), depois.emprestadas(), depois.disponiveis());
+        return salvo;
+    }
+
+    @Transactional
+    public void removerItem(Item item) {
+        Contagem antes = Contagem.de(item);
+        itemRepository.delete(item);
+        ajustar(antes.itemId(), antes.categoria(), -1, -antes.copias(), -antes.emprestadas(), -antes.disponiveis());
+    }
+
+    // 🔹 Itens novos gravados em lote (importação): um ajuste por fatia em vez de um por item
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarNovos(List<Item> itens) {
+        Map<CategoriaFaceta.Chave, long[]> deltas = new LinkedHashMap<>();
+        for (Item item : itens) {
+            Contagem contagem = Contagem.de(item);
+            long[] delta = deltas.computeIfAbsent(chave(contagem.itemId(), contagem.categoria()), k -> new long[4]);
+            delta[0]++;
+            delta[1] += contagem.copias();
+            delta[2] += contagem.emprestadas();
+            delta[3] += contagem.disponiveis();
+        }
+        deltas.forEach((chave, delta) -> categoriaFacetaRepository.ajustar(
+                chave.getCategoria(), chave.getFatia(), delta[0], delta[1], delta[2], delta[3]));
+    }
+
+    // 🔹 Empréstimo/devolução: 'emprestadas' e 'disponiveis' variam na transação que alterou o estoque
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarMovimento(Long itemId, String categoria, int deltaEmprestadas, int deltaDisponiveis) {
+        ajustar(itemId, categoria, 0, 0, deltaEmprestadas, deltaDisponiveis);
+    }
+
+    // 🔹 Recalcula todas as fatias a partir da tabela de itens (correção de divergências).
+    // Os valores gravados são absolutos, então nenhum delta pode ficar entre a leitura dos itens e a gravação:
+    // bloqueia os itens (empréstimo, devolução, edição e exclusão alteram o item antes da faceta) e depois
+    // as fatias, o que também espera as importações em andamento. Importações que chegam depois aplicam
+    // o delta sobre o valor reconstruído.
+    @Transactional
+    public List<FacetaCategoria> reconstruir() {
+        itemRepository.bloquearTodos();
+        categoriaFacetaRepository.bloquearFatias();
+        categoriaFacetaRepository.recalcularFatias();
+        categoriaFacetaRepository.removerFatiasVazias();
+        return categoriaFacetaRepository.listarTotais();
+    }
+
+    private void ajustar(Long itemId, String categoria, long titulos, long copias, long emprestadas, long disponiveis) {
+        CategoriaFaceta.Chave chave = chave(itemId, categoria);
+        categoriaFacetaRepository.ajustar(chave.getCategoria(), chave.getFatia(),
+                titulos, copias, emprestadas, disponiveis);
+    }
+
+    private static CategoriaFaceta.Chave chave(Long itemId, String categoria) {
+        return new CategoriaFaceta.Chave(categoria == null ? "" : categoria,
+                (int) Math.floorMod(itemId, (long) CategoriaFaceta.FATIAS));
+    }
+}
@@ -0,0 +1,214 @@
+package com.locadora.api.service;
+
+import com.locadora.api.event.ConsumidorEventos;
+import com.locadora.api.event.EventoEmprestimo;
+import com.locadora.api.model.EventoOutbox;
+import com.locadora.api.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Entrega assíncrona dos eventos do outbox aos ConsumidorEventos registrados.
+//
+// A cada ciclo a instância recebe a concessão (UPDATE condicional em USUARIO, com validade
+// 'app.outbox.reserva') dos usuários com pendentes mais antigos, lê os pendentes deles em ordem de
+// sequência, agrupa por usuário e envia cada grupo para a partição (executor de uma única thread) de
+// usuarioId % particoes: eventos do mesmo usuário ficam sempre na mesma fila e são processados em
+// ordem. Outras instâncias não recebem um usuário concedido até a liberação ou o fim da validade. O ciclo espera o lote inteiro
+// antes de confirmar e ler o próximo, e as filas das partições são limitadas — se os consumidores
+// ficam para trás, o despachante para de ler e os eventos se acumulam na tabela, não na memória.
+//
+// Entrega "pelo menos uma vez": o evento só é marcado como processado depois que todos os
+// consumidores o aceitaram; uma falha interrompe o grupo do usuário e tudo é reentregue depois.
+// Após 'max-tentativas' falhas o evento é descartado (fica na tabela com o erro registrado).
+@Service
+public class DespachanteEventos {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachanteEventos.class);
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final List<ConsumidorEventos> consumidores;
+    private final TransactionTemplate transacao;
+    private final ThreadPoolExecutor[] particoes;
+    private final int tamanhoLote;
+    private final int maxTentativas;
+    private final Duration retencao;
+    private final Duration reserva;
+    private final Counter entregues;
+    private final Counter falhas;
+
+    public DespachanteEventos(EventoOutboxRepository eventoOutboxRepository,
+                              List<ConsumidorEventos> consumidores,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.outbox.particoes:4}") int particoes,
+                              @Value("${app.outbox.capacidade-fila:256}") int capacidadeFila,
+                              @Value("${app.outbox.tamanho-lote:500}") int tamanhoLote,
+                              @Value("${app.outbox.max-tentativas:10}") int maxTentativas,
+                              @Value("${app.outbox.retencao:7d}") Duration retencao,
+                              @Value("${app.outbox.reserva:5m}") Duration reserva) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.consumidores = consumidores;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+        this.maxTentativas = maxTentativas;
+        this.retencao = retencao;
+        this.reserva = reserva;
+        this.particoes = new ThreadPoolExecutor[particoes];
+        for (int i = 0; i < particoes; i++) {
+            int numero = i;
+            // Fila cheia: quem submete espera vaga (contrapressão sobre o ciclo de leitura)
+            this.particoes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacidadeFila),
+                    r -> {
+                        Thread t = new Thread(r, "outbox-particao-" + numero);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (tarefa, executor) -> {
+                        try {
+                            executor.getQueue().put(tarefa);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+        this.entregues = Counter.builder("locadora.outbox.entregues")
+                .description("Eventos do outbox entregues a todos os consumidores")
+                .register(meterRegistry);
+        this.falhas = Counter.builder("locadora.outbox.falhas")
+                .description("Falhas de consumidores ao processar eventos do outbox")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.intervalo:1s}", fixedDelayString = "${app.outbox.intervalo:1s}")
+    public void despacharAgendado() {
+        despachar();
+    }
+
+    // 🔹 Entrega os pendentes até esvaziar o outbox; retorna quantos eventos foram confirmados
+    public int despachar() {
+        if (consumidores.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        while (true) {
+            String chave = UUID.randomUUID().toString();
+            List<EventoOutbox> lote = transacao.execute(status -> {
+                LocalDateTime agora = LocalDateTime.now();
+                if (eventoOutboxRepository.reservarUsuarios(chave, agora, agora.plus(reserva), tamanhoLote) == 0) {
+                    return List.of();
+                }
+                List<EventoOutbox> reservados = eventoOutboxRepository.buscarReservados(chave, tamanhoLote);
+                if (reservados.isEmpty()) {
+                    eventoOutboxRepository.liberarUsuarios(chave);
+                }
+                return reservados;
+            });
+            if (lote == null || lote.isEmpty()) {
+                break;
+            }
+            int confirmados = entregar(lote, chave);
+            total += confirmados;
+            // Lote parcial ou com falhas: o restante fica para o próximo ciclo
+            if (lote.size() < tamanhoLote || confirmados < lote.size()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int entregar(List<EventoOutbox> lote, String chave) {
+        Map<Long, List<EventoEmprestimo>> porUsuario = new LinkedHashMap<>();
+        for (EventoOutbox evento : lote) {
+            porUsuario.computeIfAbsent(evento.getUsuarioId(), k -> new ArrayList<>()).add(EventoEmprestimo.de(evento));
+        }
+
+        ConcurrentLinkedQueue<Long> processados = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Falha> falhasLote = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> pendentes = new ArrayList<>(porUsuario.size());
+
+        for (Map.Entry<Long, List<EventoEmprestimo>> grupo : porUsuario.entrySet()) {
+            ThreadPoolExecutor particao = particoes[(int) Math.floorMod(grupo.getKey(), (long) particoes.length)];
+            pendentes.add(CompletableFuture.runAsync(
+                    () -> entregarEmOrdem(grupo.getValue(), processados, falhasLote), particao));
+        }
+        CompletableFuture.allOf(pendentes.toArray(new CompletableFuture[0])).join();
+
+        LocalDateTime agora = LocalDateTime.now();
+        transacao.executeWithoutResult(status -> {
+            eventoOutboxRepository.liberarUsuarios(chave);
+            if (!processados.isEmpty()) {
+                eventoOutboxRepository.marcarProcessados(new ArrayList<>(processados), agora);
+            }
+            for (Falha f : falhasLote) {
+                eventoOutboxRepository.registrarFalha(f.eventoId(), f.mensagem());
+                if (eventoOutboxRepository.descartarEsgotado(f.eventoId(), maxTentativas, agora) > 0) {
+                    log.error("Evento {} descartado após {} tentativas: {}", f.eventoId(), maxTentativas, f.mensagem());
+                }
+            }
+        });
+
+        entregues.increment(processados.size());
+        return processados.size();
+    }
+
+    private void entregarEmOrdem(List<EventoEmprestimo> eventos, ConcurrentLinkedQueue<Long> processados,
+                                 ConcurrentLinkedQueue<Falha> falhasLote) {
+        for (EventoEmprestimo evento : eventos) {
+            try {
+                for (ConsumidorEventos consumidor : consumidores) {
+                    consumidor.consumir(evento);
+                }
+            } catch (Exception e) {
+                // Os eventos seguintes do usuário aguardam a reentrega deste, preservando a ordem
+                falhas.increment();
+                log.warn("Falha ao entregar o evento {} ({}): {}", evento.id(), evento.tipo(), e.toString());
+                String mensagem = String.valueOf(e.getMessage());
+                falhasLote.add(new Falha(evento.id(), mensagem.length() > 500 ? mensagem.substring(0, 500) : mensagem));
+                return;
+            }
+            processados.add(evento.id());
+        }
+    }
+
+    // 🔹 Limpeza diária dos eventos já entregues (os descartados com erro são mantidos para análise)
+    @Scheduled(cron = "${app.outbox.limpeza.cron:0 30 3 * * *}")
+    public void limparProcessados() {
+        Integer apagados = transacao.execute(status ->
+                eventoOutboxRepository.apagarProcessadosAntes(LocalDateTime.now().minus(retencao)));
+        log.info("Limpeza do outbox: {} evento(s) entregue(s) removido(s).", apagados);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        for (ThreadPoolExecutor particao : particoes) {
+            particao.shutdown();
+        }
+    }
+
+    private record Falha(Long eventoId, String mensagem) {
+    }
+}
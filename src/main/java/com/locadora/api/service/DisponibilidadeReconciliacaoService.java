@@ -0,0 +1,53 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.DivergenciaDisponibilidade;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class DisponibilidadeReconciliacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(DisponibilidadeReconciliacaoService.class);
+
+    private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoriaFacetaService categoriaFacetaService;
+
+    public DisponibilidadeReconciliacaoService(ItemRepository itemRepository,
+                                               ApplicationEventPublisher eventPublisher,
+                                               CategoriaFacetaService categoriaFacetaService) {
+        this.itemRepository = itemRepository;
+        this.eventPublisher = eventPublisher;
+        this.categoriaFacetaService = categoriaFacetaService;
+    }
+
+    // 🔹 Recalcula 'emprestados' a partir dos empréstimos em aberto e corrige os itens divergentes
+    @Scheduled(cron = "${app.reconciliacao.cron:0 0 3 * * *}")
+    @Transactional
+    public List<DivergenciaDisponibilidade> reconciliar() {
+        List<DivergenciaDisponibilidade> divergencias = itemRepository.buscarDivergenciasDisponibilidade();
+
+        for (DivergenciaDisponibilidade d : divergencias) {
+            log.warn("Divergência no item {} ({}): emprestados={}, em aberto={}",
+                    d.itemId(), d.item(), d.emprestadosRegistrados(), d.emprestadosCalculados());
+            itemRepository.recalcularEmprestados(d.itemId());
+            eventPublisher.publishEvent(new ItemAlteradoEvent(d.itemId()));
+        }
+
+        // Contadores corrigidos mudam 'emprestadas'/'disponiveis' das categorias
+        if (!divergencias.isEmpty()) {
+            categoriaFacetaService.reconstruir();
+        }
+
+        log.info("Reconciliação de disponibilidade concluída: {} item(ns) corrigido(s).", divergencias.size());
+        return divergencias;
+    }
+}
@@ -0,0 +1,87 @@
+package com.locadora.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.locadora.api.dto.DisponibilidadeItem;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.model.Item;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Cache de leitura (read-through) da disponibilidade por item.
+// As entradas são invalidadas no commit de empréstimos, devoluções e alterações do item;
+// o tamanho máximo e a expiração servem apenas como limite de memória e rede de segurança.
+@Service
+public class DisponibilidadeService {
+
+    private final ItemRepository itemRepository;
+    private final EmprestimoRepository emprestimoRepository;
+    private final boolean habilitado;
+    private final Cache<Long, DisponibilidadeItem> cache;
+
+    public DisponibilidadeService(ItemRepository itemRepository,
+                                  EmprestimoRepository emprestimoRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.cache.disponibilidade.habilitado:true}") boolean habilitado,
+                                  @Value("${app.cache.disponibilidade.tamanho-maximo:10000}") long tamanhoMaximo,
+                                  @Value("${app.cache.disponibilidade.expiracao:10m}") Duration expiracao) {
+        this.itemRepository = itemRepository;
+        this.emprestimoRepository = emprestimoRepository;
+        this.habilitado = habilitado;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(expiracao)
+                .recordStats()
+                .build();
+        // Acertos, falhas e remoções expostos como cache_gets/cache_evictions{cache="disponibilidade"}
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "disponibilidade");
+    }
+
+    // 🔹 Disponibilidade do item (vazio quando o item não existe; ausências não são guardadas)
+    public Optional<DisponibilidadeItem> consultar(Long itemId) {
+        if (!habilitado) {
+            return Optional.ofNullable(carregar(itemId));
+        }
+        return Optional.ofNullable(cache.get(itemId, this::carregar));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarItem(ItemAlteradoEvent evento) {
+        cache.invalidate(evento.itemId());
+    }
+
+    public Map<String, Object> estatisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> dados = new LinkedHashMap<>();
+        dados.put("habilitado", habilitado);
+        dados.put("entradas", cache.estimatedSize());
+        dados.put("acertos", stats.hitCount());
+        dados.put("falhas", stats.missCount());
+        dados.put("remocoes", stats.evictionCount());
+        dados.put("taxaAcerto", stats.hitRate());
+        return dados;
+    }
+
+    private DisponibilidadeItem carregar(Long itemId) {
+        Item item = itemRepository.findById(itemId).orElse(null);
+        if (item == null) {
+            return null;
+        }
+        List<String> usuariosComItem = emprestimoRepository.findNomesUsuariosComItemEmAberto(itemId);
+        return new DisponibilidadeItem(item.getId(), item.getNome(), item.getQuantidade(),
+                List.copyOf(usuariosComItem), item.getDisponivel());
+    }
+}
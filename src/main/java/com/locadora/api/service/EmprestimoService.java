@@ -1,12 +1,27 @@
 package com.locadora.api.service;
 
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.EmprestimoRequest;
+import com.locadora.api.dto.EmprestimoResumo;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.dto.ResultadoLoteEmprestimo;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.metrics.EmprestimoMetricas;
+import com.locadora.api.metrics.EmprestimoMetricas.MotivoRejeicao;
 import com.locadora.api.model.Emprestimo;
 import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.model.EmprestimoHistorico;
+import com.locadora.api.model.EventoOutbox.TipoEvento;
 import com.locadora.api.model.Item;
+import com.locadora.api.model.ReservaEspera;
 import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoHistoricoRepository;
 import com.locadora.api.repository.EmprestimoRepository;
 import com.locadora.api.repository.ItemRepository;
 import com.locadora.api.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,23 +32,58 @@ import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 public class EmprestimoService {
 
+    private static final int LIMITE_LOTE = 500;
+
     private final EmprestimoRepository emprestimoRepository;
+    private final EmprestimoHistoricoRepository historicoRepository;
     private final UsuarioRepository usuarioRepository;
     private final ItemRepository itemRepository;
-
-    public EmprestimoService(EmprestimoRepository eRepo, UsuarioRepository uRepo, ItemRepository iRepo) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final EmprestimoMetricas metricas;
+    private final OutboxService outbox;
+    private final CategoriaFacetaService facetas;
+    private final RollupEmprestimoService rollups;
+    private final ReservaEsperaService reservas;
+    private final double multaDiaria;
+
+    public EmprestimoService(EmprestimoRepository eRepo, EmprestimoHistoricoRepository hRepo,
+                             UsuarioRepository uRepo, ItemRepository iRepo,
+                             ApplicationEventPublisher eventPublisher, EmprestimoMetricas metricas,
+                             OutboxService outbox, CategoriaFacetaService facetas,
+                             RollupEmprestimoService rollups, ReservaEsperaService reservas,
+                             @Value("${app.multa-diaria:2.5}") double multaDiaria) {
         this.emprestimoRepository = eRepo;
+        this.historicoRepository = hRepo;
         this.usuarioRepository = uRepo;
         this.itemRepository = iRepo;
+        this.eventPublisher = eventPublisher;
+        this.metricas = metricas;
+        this.outbox = outbox;
+        this.facetas = facetas;
+        this.rollups = rollups;
+        this.reservas = reservas;
+        this.multaDiaria = multaDiaria;
     }
 
-    public List<Emprestimo> listar() {
-        return emprestimoRepository.findAll();
+    // 🔹 Listagem paginada por cursor; o total só é contado quando solicitado
+    @Transactional(readOnly = true)
+    public PaginaCursor<EmprestimoResumo> listar(Long after, Integer limit, boolean comTotal) {
+        int limite = PaginaCursor.normalizarLimite(limit);
+        List<EmprestimoResumo> linhas = emprestimoRepository.listarResumos(
+                PaginaCursor.cursorInicial(after), Limit.of(limite + 1));
+        Long total = comTotal ? emprestimoRepository.count() : null;
+        return PaginaCursor.of(linhas, limite, EmprestimoResumo::id, total);
     }
 
     // 🔹 Cadastro de novo empréstimo
@@ -41,42 +91,212 @@ public class EmprestimoService {
     public Emprestimo emprestar(Long usuarioId, Long itemId, Integer quantidade, LocalDate dataPrevistaDevolucao) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado"));
-        Item item = itemRepository.findById(itemId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado"));
 
         // 🔒 Regra de bloqueio por dívida
         if (usuario.getDivida() != null && usuario.getDivida().doubleValue() > 0) {
+            metricas.rejeitado(MotivoRejeicao.DIVIDA);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Usuário com dívida pendente — empréstimo bloqueado.");
         }
 
-        // 🔸 Verifica estoque disponível
-        if (item.getQuantidade() == null || item.getQuantidade() < quantidade) {
+        if (quantidade == null || quantidade <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantidade inválida para empréstimo.");
+        }
+
+        // 🔸 Verifica e atualiza o estoque em um único UPDATE condicional, sem ler-modificar-gravar nem
+        // bloqueio prévio; as unidades separadas para a fila ficam fora da condição do UPDATE.
+        // Só quem tem unidades separadas bloqueia o item: expiração e cancelamento também o bloqueiam,
+        // então a reserva lida de novo sob o bloqueio continua SEPARADA até o fim desta transação.
+        ReservaEspera separada = reservas.separadaPara(usuarioId, itemId).orElse(null);
+        if (separada != null) {
+            itemRepository.bloquearPorId(itemId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado"));
+            separada = reservas.separadaPara(usuarioId, itemId).orElse(null);
+        }
+        int separados = separada == null ? 0 : separada.getQuantidade();
+        int atualizados = separada == null
+                ? itemRepository.reservarEstoque(itemId, quantidade)
+                : itemRepository.resgatarSeparados(itemId, separados, quantidade);
+        if (atualizados == 0) {
+            if (!itemRepository.existsById(itemId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado");
+            }
+            metricas.rejeitado(MotivoRejeicao.ESTOQUE);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Estoque insuficiente para este empréstimo.");
         }
 
-        // 🔹 Atualiza estoque
-        item.setQuantidade(item.getQuantidade() - quantidade);
-        itemRepository.save(item);
+        Item item = itemRepository.findById(itemId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado"));
+        LocalDate hoje = LocalDate.now();
+        facetas.registrarMovimento(itemId, item.getCategoria(), quantidade, separados - quantidade);
+        if (separada != null) {
+            reservas.concluir(separada, itemId, item.getCategoria(), quantidade);
+        }
+        rollups.registrarEmprestimos(itemId, item.getCategoria(), hoje, 1, quantidade);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(itemId));
 
         Emprestimo emprestimo = Emprestimo.builder()
                 .usuario(usuario)
                 .item(item)
                 .quantidade(quantidade)
-                .dataEmprestimo(LocalDate.now())
+                .dataEmprestimo(hoje)
                 .dataPrevistaDevolucao(dataPrevistaDevolucao)
                 .status(StatusEmprestimo.ACTIVE)
                 .renovacoes(0)
                 .multa(0.0)
                 .build();
 
-        return emprestimoRepository.save(emprestimo);
+        Emprestimo salvo = emprestimoRepository.save(emprestimo);
+        registrarCriacao(salvo);
+        metricas.criados(1);
+        return salvo;
+    }
+
+    // 🔹 Empréstimo em lote: valida dívida e estoque de todas as linhas de uma vez,
+    // reserva o estoque com um UPDATE condicional por item e insere os empréstimos via JDBC batch
+    @Transactional
+    public List<ResultadoLoteEmprestimo> emprestarEmLote(List<EmprestimoRequest> linhas) {
+        if (linhas == null || linhas.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nenhum empréstimo informado.");
+        }
+        if (linhas.size() > LIMITE_LOTE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "O lote aceita no máximo " + LIMITE_LOTE + " empréstimos.");
+        }
+
+        Set<Long> usuarioIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (EmprestimoRequest r : linhas) {
+            if (r != null && r.getUsuarioId() != null) usuarioIds.add(r.getUsuarioId());
+            if (r != null && r.getItemId() != null) itemIds.add(r.getItemId());
+        }
+
+        Map<Long, Usuario> usuarios = new HashMap<>();
+        for (Usuario u : usuarioRepository.findAllById(usuarioIds)) {
+            usuarios.put(u.getId(), u);
+        }
+        Map<Long, Item> itens = new HashMap<>();
+        Map<Long, Integer> saldo = new HashMap<>();
+        for (Item i : itemRepository.findAllById(itemIds)) {
+            itens.put(i.getId(), i);
+            saldo.put(i.getId(), i.getDisponivel());
+        }
+
+        ResultadoLoteEmprestimo[] resultados = new ResultadoLoteEmprestimo[linhas.size()];
+        LocalDate[] datasPrevistas = new LocalDate[linhas.size()];
+        // Itens em ordem de id: as reservas bloqueiam as linhas na mesma ordem que a reconstrução dos totais
+        Map<Long, List<Integer>> linhasPorItem = new TreeMap<>();
+
+        for (int i = 0; i < linhas.size(); i++) {
+            EmprestimoRequest r = linhas.get(i);
+            String erro = validarLinhaLote(r, usuarios, itens);
+            if (erro == null) {
+                try {
+                    datasPrevistas[i] = LocalDate.parse(r.getDataPrevistaDevolucao());
+                } catch (RuntimeException e) {
+                    erro = "Data prevista de devolução inválida.";
+                }
+            }
+            if (erro == null && saldo.get(r.getItemId()) < r.getQuantidade()) {
+                erro = "Estoque insuficiente para este empréstimo.";
+            }
+            if (erro != null) {
+                resultados[i] = ResultadoLoteEmprestimo.falha(i, erro);
+                continue;
+            }
+            saldo.merge(r.getItemId(), -r.getQuantidade(), Integer::sum);
+            linhasPorItem.computeIfAbsent(r.getItemId(), k -> new ArrayList<>()).add(i);
+        }
+
+        // 🔸 Uma reserva atômica por item com o total das linhas aceitas
+        List<Emprestimo> novos = new ArrayList<>();
+        List<Integer> linhasNovos = new ArrayList<>();
+        LocalDate hoje = LocalDate.now();
+
+        for (Map.Entry<Long, List<Integer>> entrada : linhasPorItem.entrySet()) {
+            int total = 0;
+            for (int i : entrada.getValue()) {
+                total += linhas.get(i).getQuantidade();
+            }
+
+            if (itemRepository.reservarEstoque(entrada.getKey(), total) == 0) {
+                // Estoque consumido por outra transação depois da leitura acima
+                metricas.contencaoEstoque();
+                for (int i : entrada.getValue()) {
+                    resultados[i] = ResultadoLoteEmprestimo.falha(i, "Estoque insuficiente para este empréstimo.");
+                }
+                continue;
+            }
+
+            String categoria = itens.get(entrada.getKey()).getCategoria();
+            facetas.registrarMovimento(entrada.getKey(), categoria, total, -total);
+            rollups.registrarEmprestimos(entrada.getKey(), categoria, hoje, entrada.getValue().size(), total);
+            eventPublisher.publishEvent(new ItemAlteradoEvent(entrada.getKey()));
+
+            for (int i : entrada.getValue()) {
+                EmprestimoRequest r = linhas.get(i);
+                novos.add(Emprestimo.builder()
+                        .usuario(usuarios.get(r.getUsuarioId()))
+                        .item(itens.get(r.getItemId()))
+                        .quantidade(r.getQuantidade())
+                        .dataEmprestimo(hoje)
+                        .dataPrevistaDevolucao(datasPrevistas[i])
+                        .status(StatusEmprestimo.ACTIVE)
+                        .renovacoes(0)
+                        .multa(0.0)
+                        .build());
+                linhasNovos.add(i);
+            }
+        }
+
+        // Ids vêm da sequência em blocos, então os INSERTs são agrupados no flush
+        emprestimoRepository.saveAll(novos);
+        novos.forEach(this::registrarCriacao);
+        metricas.criados(novos.size());
+
+        for (int k = 0; k < novos.size(); k++) {
+            int i = linhasNovos.get(k);
+            resultados[i] = ResultadoLoteEmprestimo.ok(i, novos.get(k).getId());
+        }
+
+        return Arrays.asList(resultados);
+    }
+
+    private void registrarCriacao(Emprestimo emprestimo) {
+        Map<String, Object> dados = new LinkedHashMap<>();
+        dados.put("itemId", emprestimo.getItem().getId());
+        dados.put("quantidade", emprestimo.getQuantidade());
+        dados.put("dataPrevistaDevolucao", String.valueOf(emprestimo.getDataPrevistaDevolucao()));
+        outbox.registrar(TipoEvento.LOAN_CREATED, emprestimo, dados);
+    }
+
+    private String validarLinhaLote(EmprestimoRequest r, Map<Long, Usuario> usuarios, Map<Long, Item> itens) {
+        if (r == null || r.getUsuarioId() == null || r.getItemId() == null) {
+            return "Os campos 'usuarioId' e 'itemId' são obrigatórios.";
+        }
+        Usuario usuario = usuarios.get(r.getUsuarioId());
+        if (usuario == null) {
+            return "Usuário não encontrado";
+        }
+        if (usuario.getDivida() != null && usuario.getDivida().doubleValue() > 0) {
+            return "Usuário com dívida pendente — empréstimo bloqueado.";
+        }
+        if (!itens.containsKey(r.getItemId())) {
+            return "Item não encontrado";
+        }
+        if (r.getQuantidade() == null || r.getQuantidade() <= 0) {
+            return "Quantidade inválida para empréstimo.";
+        }
+        return null;
     }
 
     // 🔹 Devolução de item
     @Transactional
     public Emprestimo devolver(Long id) {
-        Emprestimo emprestimo = emprestimoRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Empréstimo não encontrado."));
+        // 🔸 Bloqueia antes de ler: uma varredura de atrasos em andamento termina primeiro e a leitura já
+        // traz a multa e a versão que ela gravou (sem o bloqueio, a gravação abaixo falharia por versão)
+        emprestimoRepository.bloquear(id);
+        Emprestimo emprestimo = emprestimoRepository.findComDetalhesById(id)
+                .orElseThrow(() -> naoEncontradoOuArquivado(id, "Este empréstimo já foi devolvido anteriormente."));
 
         // 🔒 NOVA REGRA: impede devolução duplicada
         if (emprestimo.getStatus() == StatusEmprestimo.RETURNED) {
@@ -90,10 +310,6 @@ public class EmprestimoService {
                     "Devolução já registrada anteriormente.");
         }
 
-        Item item = emprestimo.getItem();
-        item.setQuantidade(item.getQuantidade() + emprestimo.getQuantidade());
-        itemRepository.save(item);
-
         LocalDate hoje = LocalDate.now();
         emprestimo.setDataDevolucao(hoje);
 
@@ -102,31 +318,71 @@ public class EmprestimoService {
                 ChronoUnit.DAYS.between(emprestimo.getDataPrevistaDevolucao(), hoje)
         );
 
-        Usuario usuario = emprestimo.getUsuario();
+        // Só cobra os dias que a varredura diária de atrasos ainda não lançou
+        LocalDate cobradoAte = emprestimo.getMultaCalculadaEm() != null
+                && emprestimo.getMultaCalculadaEm().isAfter(emprestimo.getDataPrevistaDevolucao())
+                ? emprestimo.getMultaCalculadaEm()
+                : emprestimo.getDataPrevistaDevolucao();
+        double acrescimo = Math.max(0, ChronoUnit.DAYS.between(cobradoAte, hoje)) * multaDiaria;
 
         if (diasAtraso > 0) {
-            double multa = diasAtraso * 2.50;
-            emprestimo.setMulta(multa);
+            emprestimo.setMulta(emprestimo.getMulta() + acrescimo);
+            emprestimo.setMultaApurada(emprestimo.getMultaApurada() + acrescimo);
+            emprestimo.setMultaCalculadaEm(hoje);
             emprestimo.setStatus(StatusEmprestimo.LATE);
-
-            if (usuario.getDivida() == null) {
-                usuario.setDivida(BigDecimal.ZERO);
-            }
-            usuario.setDivida(usuario.getDivida().add(BigDecimal.valueOf(multa)));
-            usuarioRepository.save(usuario);
         } else {
             emprestimo.setMulta(0.0);
             emprestimo.setStatus(StatusEmprestimo.RETURNED);
         }
 
-        return emprestimoRepository.save(emprestimo);
+        Emprestimo salvo = emprestimoRepository.save(emprestimo);
+
+        // 🔹 Devolve ao estoque e lança a multa na dívida com UPDATEs atômicos
+        // (as alterações acima são descarregadas antes; item e usuário retornados são atualizados em memória)
+        Item item = emprestimo.getItem();
+        Usuario usuario = emprestimo.getUsuario();
+        int disponivelAntes = item.getDisponivel();
+        itemRepository.devolverEstoque(item.getId(), emprestimo.getQuantidade());
+        item.setEmprestados(item.getEmprestados() - emprestimo.getQuantidade());
+        facetas.registrarMovimento(item.getId(), item.getCategoria(),
+                -emprestimo.getQuantidade(), item.getDisponivel() - disponivelAntes);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(item.getId()));
+
+        // 🔸 As unidades devolvidas vão primeiro para a fila de espera do item (o UPDATE acima mantém a
+        // linha do item bloqueada até o commit, então a fila não muda no meio da separação)
+        reservas.atribuir(item.getId(), item.getCategoria());
+
+        if (acrescimo > 0) {
+            usuarioRepository.acrescentarDivida(usuario.getId(), BigDecimal.valueOf(acrescimo));
+            usuario.setDivida((usuario.getDivida() == null ? BigDecimal.ZERO : usuario.getDivida())
+                    .add(BigDecimal.valueOf(acrescimo)));
+        }
+
+        Map<String, Object> devolucao = new LinkedHashMap<>();
+        devolucao.put("itemId", item.getId());
+        devolucao.put("quantidade", emprestimo.getQuantidade());
+        devolucao.put("dataDevolucao", hoje.toString());
+        devolucao.put("diasAtraso", diasAtraso);
+        devolucao.put("multa", salvo.getMulta());
+        outbox.registrar(TipoEvento.LOAN_RETURNED, salvo, devolucao);
+        if (acrescimo > 0) {
+            Map<String, Object> multa = new LinkedHashMap<>();
+            multa.put("valor", acrescimo);
+            multa.put("origem", "devolucao");
+            multa.put("data", hoje.toString());
+            outbox.registrar(TipoEvento.FINE_ACCRUED, salvo, multa);
+        }
+        rollups.registrarDevolucao(item.getId(), item.getCategoria(), hoje, diasAtraso > 0, salvo.getMultaApurada());
+
+        metricas.devolvido();
+        return salvo;
     }
 
     // 🔹 Renovação de empréstimo (máx. 2 renovações)
     @Transactional
     public Emprestimo renovar(Long id, Integer diasExtra) {
-        Emprestimo emprestimo = emprestimoRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Empréstimo não encontrado."));
+        Emprestimo emprestimo = emprestimoRepository.findComDetalhesById(id)
+                .orElseThrow(() -> naoEncontradoOuArquivado(id, "Somente empréstimos ativos podem ser renovados."));
 
         if (emprestimo.getStatus() != StatusEmprestimo.ACTIVE) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Somente empréstimos ativos podem ser renovados.");
@@ -136,12 +392,14 @@ public class EmprestimoService {
 
         // 🔒 Bloqueia se houver dívida
         if (usuario.getDivida() != null && usuario.getDivida().doubleValue() > 0) {
+            metricas.rejeitado(MotivoRejeicao.DIVIDA);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Usuário com dívida pendente — renovação bloqueada.");
         }
 
         // 🔒 Limite de renovações
         if (emprestimo.getRenovacoes() >= 2) {
+            metricas.rejeitado(MotivoRejeicao.LIMITE_RENOVACAO);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Limite máximo de 2 renovações atingido — devolução obrigatória.");
         }
@@ -151,32 +409,57 @@ public class EmprestimoService {
         );
         emprestimo.setRenovacoes(emprestimo.getRenovacoes() + 1);
 
-        return emprestimoRepository.save(emprestimo);
+        // Grava já e bloqueia o item antes de tocar nos totais diários: mesma ordem (empréstimo, item) da
+        // devolução e da reconstrução, que assim espera esta renovação ou é esperada por ela
+        Emprestimo salvo = emprestimoRepository.saveAndFlush(emprestimo);
+        itemRepository.bloquearPorId(salvo.getItem().getId());
+        Map<String, Object> renovacao = new LinkedHashMap<>();
+        renovacao.put("renovacoes", salvo.getRenovacoes());
+        renovacao.put("dataPrevistaDevolucao", salvo.getDataPrevistaDevolucao().toString());
+        outbox.registrar(TipoEvento.LOAN_RENEWED, salvo, renovacao);
+        rollups.registrarRenovacao(salvo.getItem().getId(), salvo.getItem().getCategoria(), salvo.getDataEmprestimo());
+        metricas.renovado();
+        return salvo;
     }
 
-    // 🔹 Consulta de dívidas de um usuário
+    // 🔹 Consulta de dívidas de um usuário: empréstimos ativos/atrasados ou com multa, em uma consulta
+    // por tabela (encerrados em atraso podem já estar no histórico), intercaladas por id
     @Transactional(readOnly = true)
-    public List<Emprestimo> consultarDividasUsuario(Long usuarioId) {
-        List<Emprestimo> pendentes = new ArrayList<>(emprestimoRepository.findByUsuarioIdAndStatusIn(
-                usuarioId,
-                Arrays.asList(StatusEmprestimo.ACTIVE.name(), StatusEmprestimo.LATE.name())
-        ));
-
-        List<Emprestimo> comMulta = emprestimoRepository.findByUsuarioIdAndMultaGreaterThan(usuarioId, 0.0);
-
-        for (Emprestimo e : comMulta) {
-            if (!pendentes.contains(e)) {
-                pendentes.add(e);
-            }
-        }
+    public PaginaCursor<DividaEmprestimo> consultarDividasUsuario(Long usuarioId, Long after, Integer limit) {
+        int limite = PaginaCursor.normalizarLimite(limit);
+        long cursor = PaginaCursor.cursorInicial(after);
+        List<StatusEmprestimo> pendentes = List.of(StatusEmprestimo.ACTIVE, StatusEmprestimo.LATE);
+        List<DividaEmprestimo> linhas = PaginaCursor.intercalar(
+                emprestimoRepository.buscarDividas(usuarioId, cursor, pendentes, Limit.of(limite + 1)),
+                historicoRepository.buscarDividas(usuarioId, cursor, pendentes, Limit.of(limite + 1)),
+                DividaEmprestimo::id);
+        return PaginaCursor.of(linhas, limite, DividaEmprestimo::id, null);
+    }
 
-        return pendentes;
+    // 🔹 Todos os empréstimos do usuário, em aberto e arquivados, em ordem de id
+    @Transactional(readOnly = true)
+    public PaginaCursor<EmprestimoResumo> historicoUsuario(Long usuarioId, Long after, Integer limit) {
+        int limite = PaginaCursor.normalizarLimite(limit);
+        long cursor = PaginaCursor.cursorInicial(after);
+        List<EmprestimoResumo> linhas = PaginaCursor.intercalar(
+                emprestimoRepository.listarPorUsuario(usuarioId, cursor, Limit.of(limite + 1)),
+                historicoRepository.listarPorUsuario(usuarioId, cursor, Limit.of(limite + 1)),
+                EmprestimoResumo::id);
+        return PaginaCursor.of(linhas, limite, EmprestimoResumo::id, null);
     }
 
-    // 🔹 Consulta de empréstimo específico
+    // 🔹 Consulta de empréstimo específico (arquivados voltam como cópia somente leitura)
     @Transactional(readOnly = true)
     public Emprestimo consultarEmprestimo(Long id) {
-        return emprestimoRepository.findById(id)
+        return emprestimoRepository.findComDetalhesById(id)
+                .or(() -> historicoRepository.findComDetalhesById(id).map(EmprestimoHistorico::paraEmprestimo))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Empréstimo não encontrado."));
     }
+
+    // Empréstimo arquivado já está encerrado: responde como a regra de encerrado, não como inexistente
+    private ResponseStatusException naoEncontradoOuArquivado(Long id, String mensagemEncerrado) {
+        return historicoRepository.existsById(id)
+                ? new ResponseStatusException(HttpStatus.BAD_REQUEST, mensagemEncerrado)
+                : new ResponseStatusException(HttpStatus.NOT_FOUND, "Empréstimo não encontrado.");
+    }
 }
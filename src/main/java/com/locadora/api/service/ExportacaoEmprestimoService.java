@@ -0,0 +1,137 @@
+package com.locadora.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.locadora.api.dto.EmprestimoResumo;
+import com.locadora.api.dto.FiltroExportacao;
+import com.locadora.api.repository.EmprestimoHistoricoRepository;
+import com.locadora.api.repository.EmprestimoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Exportação do histórico de empréstimos (arquivados e em aberto) em NDJSON ou CSV, escrita linha a linha direto do cursor
+// do banco: nada é acumulado em memória, seja qual for a quantidade de registros.
+@Service
+public class ExportacaoEmprestimoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacaoEmprestimoService.class);
+
+    private static final String CABECALHO_CSV = "id,usuarioId,usuario,itemId,item,quantidade,dataEmprestimo," +
+            "dataPrevistaDevolucao,dataDevolucao,renovacoes,status,multa";
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    private final EmprestimoRepository emprestimoRepository;
+    private final EmprestimoHistoricoRepository historicoRepository;
+    private final ObjectMapper objectMapper;
+
+    public ExportacaoEmprestimoService(EmprestimoRepository emprestimoRepository,
+                                       EmprestimoHistoricoRepository historicoRepository,
+                                       ObjectMapper objectMapper) {
+        this.emprestimoRepository = emprestimoRepository;
+        this.historicoRepository = historicoRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // 🔹 Escreve os empréstimos filtrados na saída; retorna quantos foram exportados
+    @Transactional(readOnly = true)
+    public long exportar(FiltroExportacao filtro, Formato formato, OutputStream saida) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long total = 0;
+
+        // 🔹 Arquivados primeiro, depois a tabela viva (cada parte em ordem de id)
+        try (Stream<EmprestimoResumo> emprestimos = Stream.concat(
+                historicoRepository.exportar(filtro.de(), filtro.ate(), filtro.status(), filtro.usuarioId()),
+                emprestimoRepository.exportar(filtro.de(), filtro.ate(), filtro.status(), filtro.usuarioId()))) {
+            Iterator<EmprestimoResumo> cursor = emprestimos.iterator();
+
+            if (formato == Formato.NDJSON) {
+                // A resposta HTTP é fechada pelo container, não pelo gerador
+                try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                     SequenceWriter escritor = objectMapper.writerFor(EmprestimoResumo.class)
+                        .withRootValueSeparator("\n")
+                        .writeValues(gerador)) {
+                    while (cursor.hasNext()) {
+                        escritor.write(cursor.next());
+                        total++;
+                    }
+                }
+                if (total > 0) {
+                    saida.write('\n');
+                }
+            } else {
+                Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+                escritor.write(CABECALHO_CSV);
+                escritor.write('\n');
+                while (cursor.hasNext()) {
+                    escreverCsv(escritor, cursor.next());
+                    total++;
+                }
+                escritor.flush();
+            }
+        }
+        saida.flush();
+
+        log.info("Exportação de empréstimos ({}): {} registro(s) em {} ms.",
+                formato, total, System.currentTimeMillis() - inicio);
+        return total;
+    }
+
+    private static void escreverCsv(Writer escritor, EmprestimoResumo e) throws IOException {
+        escritor.write(String.valueOf(e.id()));
+        escritor.write(',');
+        escritor.write(String.valueOf(e.usuarioId()));
+        escritor.write(',');
+        escritor.write(campoCsv(e.usuario()));
+        escritor.write(',');
+        escritor.write(String.valueOf(e.itemId()));
+        escritor.write(',');
+        escritor.write(campoCsv(e.item()));
+        escritor.write(',');
+        escritor.write(valor(e.quantidade()));
+        escritor.write(',');
+        escritor.write(valor(e.dataEmprestimo()));
+        escritor.write(',');
+        escritor.write(valor(e.dataPrevistaDevolucao()));
+        escritor.write(',');
+        escritor.write(valor(e.dataDevolucao()));
+        escritor.write(',');
+        escritor.write(valor(e.renovacoes()));
+        escritor.write(',');
+        escritor.write(valor(e.status()));
+        escritor.write(',');
+        escritor.write(valor(e.multa()));
+        escritor.write('\n');
+    }
+
+    private static String valor(Object valor) {
+        return valor == null ? "" : valor.toString();
+    }
+
+    // Aspas apenas quando o texto tem separador, aspas ou quebra de linha
+    private static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
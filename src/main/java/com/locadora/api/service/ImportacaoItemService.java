@@ -0,0 +1,311 @@
+package com.locadora.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.locadora.api.dto.ResultadoImportacao;
+import com.locadora.api.dto.ResultadoImportacao.ErroLinha;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.model.Item;
+import com.locadora.api.repository.ItemRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Importação de itens em massa a partir de CSV ou NDJSON, lida linha a linha do corpo da requisição.
+// As linhas válidas são gravadas em lotes de tamanho fixo, cada lote na sua transação (inserts em
+// JDBC batch + um ajuste de faceta por fatia); depois de cada lote o contexto de persistência é
+// limpo, então a memória usada não depende do tamanho do arquivo. Cada linha guarda no máximo
+// app.importacao.tamanho-maximo-linha caracteres; uma linha maior é rejeitada com erro de linha.
+@Service
+public class ImportacaoItemService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacaoItemService.class);
+
+    private static final List<String> COLUNAS = List.of("nome", "descricao", "categoria", "quantidade");
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    private final ItemRepository itemRepository;
+    private final CategoriaFacetaService categoriaFacetaService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final int tamanhoLote;
+    private final int maximoErros;
+    private final int tamanhoMaximoLinha;
+
+    public ImportacaoItemService(ItemRepository itemRepository,
+                                 CategoriaFacetaService categoriaFacetaService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 EntityManager entityManager,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.importacao.tamanho-lote:500}") int tamanhoLote,
+                                 @Value("${app.importacao.maximo-erros:1000}") int maximoErros,
+                                 @Value("${app.importacao.tamanho-maximo-linha:8192}") int tamanhoMaximoLinha) {
+        this.itemRepository = itemRepository;
+        this.categoriaFacetaService = categoriaFacetaService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+        this.maximoErros = maximoErros;
+        this.tamanhoMaximoLinha = tamanhoMaximoLinha;
+    }
+
+    public ResultadoImportacao importar(InputStream corpo, Formato formato) {
+        Importacao importacao = new Importacao();
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+
+        try {
+            int[] colunas = null;
+            Linha lida;
+            while ((lida = proximaLinha(leitor)) != null) {
+                importacao.numeroLinha++;
+                String linha = lida.texto();
+                if (!lida.excedida() && linha.isBlank()) {
+                    continue;
+                }
+                // 🔹 CSV: a primeira linha não vazia é o cabeçalho (colunas em qualquer ordem)
+                if (formato == Formato.CSV && colunas == null) {
+                    if (lida.excedida()) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Cabeçalho do CSV excede " + tamanhoMaximoLinha + " caracteres.");
+                    }
+                    colunas = lerCabecalho(linha);
+                    continue;
+                }
+                importacao.linhasLidas++;
+                if (lida.excedida()) {
+                    importacao.rejeitar(importacao.numeroLinha,
+                            List.of("Linha excede " + tamanhoMaximoLinha + " caracteres."));
+                    continue;
+                }
+                lerLinha(importacao, linha, formato, colunas);
+                if (importacao.lote.size() >= tamanhoLote) {
+                    gravarLote(importacao);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // Grava o que já foi validado mesmo se a leitura do corpo for interrompida
+            gravarLote(importacao);
+        }
+
+        log.info("Importação de itens ({}): {} linha(s), {} importada(s), {} rejeitada(s).",
+                formato, importacao.linhasLidas, importacao.importados, importacao.rejeitados);
+        return new ResultadoImportacao(importacao.linhasLidas, importacao.importados, importacao.rejeitados,
+                importacao.erros, importacao.errosOmitidos);
+    }
+
+    private void lerLinha(Importacao importacao, String linha, Formato formato, int[] colunas) {
+        Item item;
+        List<String> erros;
+        try {
+            item = formato == Formato.CSV ? itemCsv(linha, colunas) : itemJson(linha);
+            erros = ValidacaoItem.camposObrigatorios(item);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            item = null;
+            erros = List.of(formato == Formato.CSV ? e.getMessage() : "JSON inválido na linha.");
+        }
+
+        if (!erros.isEmpty()) {
+            importacao.rejeitar(importacao.numeroLinha, erros);
+            return;
+        }
+        importacao.lote.add(item);
+        importacao.linhasDoLote.add(importacao.numeroLinha);
+    }
+
+    private void gravarLote(Importacao importacao) {
+        List<Item> lote = importacao.lote;
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            transacao.executeWithoutResult(status -> {
+                itemRepository.saveAll(lote);
+                entityManager.flush();
+                categoriaFacetaService.registrarNovos(lote);
+                // O índice de busca reindexa os ids depois do commit
+                lote.forEach(item -> eventPublisher.publishEvent(new ItemAlteradoEvent(item.getId())));
+            });
+            importacao.importados += lote.size();
+        } catch (DataAccessException e) {
+            log.warn("Lote da importação de itens não gravado (linhas {} a {}): {}",
+                    importacao.linhasDoLote.get(0), importacao.linhasDoLote.get(importacao.linhasDoLote.size() - 1),
+                    e.getMostSpecificCause().getMessage());
+            for (Long numero : importacao.linhasDoLote) {
+                importacao.rejeitar(numero, List.of("Falha ao gravar o lote desta linha."));
+            }
+        } finally {
+            entityManager.clear();
+            lote.clear();
+            importacao.linhasDoLote.clear();
+        }
+    }
+
+    // 🔹 Como readLine ('\n', '\r' ou "\r\n" encerram a linha), mas guarda no máximo tamanhoMaximoLinha
+    // caracteres: o restante é descartado até a quebra, então uma linha sem fim não esgota a memória
+    private Linha proximaLinha(BufferedReader leitor) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        boolean excedida = false;
+        int c;
+        while ((c = leitor.read()) != -1) {
+            if (c == '\n') {
+                return new Linha(texto.toString(), excedida);
+            }
+            if (c == '\r') {
+                leitor.mark(1);
+                if (leitor.read() != '\n') {
+                    leitor.reset();
+                }
+                return new Linha(texto.toString(), excedida);
+            }
+            if (texto.length() < tamanhoMaximoLinha) {
+                texto.append((char) c);
+            } else {
+                excedida = true;
+            }
+        }
+        return texto.isEmpty() && !excedida ? null : new Linha(texto.toString(), excedida);
+    }
+
+    private record Linha(String texto, boolean excedida) {
+    }
+
+    private int[] lerCabecalho(String linha) {
+        List<String> cabecalho = dividirCsv(linha);
+        int[] colunas = new int[COLUNAS.size()];
+        for (int i = 0; i < COLUNAS.size(); i++) {
+            colunas[i] = indiceColuna(cabecalho, COLUNAS.get(i));
+            if (colunas[i] < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Cabeçalho do CSV sem a coluna '" + COLUNAS.get(i) + "'.");
+            }
+        }
+        return colunas;
+    }
+
+    private static int indiceColuna(List<String> cabecalho, String coluna) {
+        for (int i = 0; i < cabecalho.size(); i++) {
+            if (cabecalho.get(i).trim().equalsIgnoreCase(coluna)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Item itemCsv(String linha, int[] colunas) {
+        List<String> campos = dividirCsv(linha);
+        String quantidade = campo(campos, colunas[3]);
+        Integer valorQuantidade = null;
+        if (quantidade != null) {
+            try {
+                valorQuantidade = Integer.valueOf(quantidade);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("O campo 'quantidade' deve ser um número inteiro.");
+            }
+        }
+        return Item.builder()
+                .nome(campo(campos, colunas[0]))
+                .descricao(campo(campos, colunas[1]))
+                .categoria(campo(campos, colunas[2]))
+                .quantidade(valorQuantidade)
+                .emprestados(0)
+                .build();
+    }
+
+    private Item itemJson(String linha) throws JsonProcessingException {
+        Item item = objectMapper.readValue(linha, Item.class);
+        // 🔹 Sempre um item novo: id/versão/empréstimos do arquivo são ignorados
+        item.setId(null);
+        item.setVersao(null);
+        item.setEmprestados(0);
+        return item;
+    }
+
+    private static String campo(List<String> campos, int indice) {
+        if (indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // 🔹 Divide uma linha CSV (separador ',', aspas duplas com "" como escape; campos não quebram linha)
+    static List<String> dividirCsv(String linha) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        if (entreAspas) {
+            throw new IllegalArgumentException("Aspas não fechadas na linha.");
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    // Estado de uma importação em andamento (lote atual, contadores e erros limitados)
+    private final class Importacao {
+        long numeroLinha;
+        long linhasLidas;
+        long importados;
+        long rejeitados;
+        long errosOmitidos;
+        final List<Item> lote = new ArrayList<>();
+        final List<Long> linhasDoLote = new ArrayList<>();
+        final List<ErroLinha> erros = new ArrayList<>();
+
+        void rejeitar(long linha, List<String> mensagens) {
+            rejeitados++;
+            if (erros.size() < maximoErros) {
+                erros.add(new ErroLinha(linha, mensagens));
+            } else {
+                errosOmitidos++;
+            }
+        }
+    }
+}
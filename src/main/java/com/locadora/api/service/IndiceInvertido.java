@@ -0,0 +1,389 @@
+package com.locadora.api.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Índice invertido em memória sobre nome, categoria e descrição dos itens.
+//
+// Termos são normalizados sem acento e em minúsculas ("Máquina" -> "maquina") e ficam em um
+// TreeMap, de modo que a busca por prefixo é um intervalo ordenado do dicionário. Cada item
+// ocupa um "slot"; as listas de ocorrências guardam (slot, campos) em arrays primitivos.
+// Alterar ou remover um item só desativa o slot antigo; compactar() descarta os slots inativos.
+//
+// Orçamento de memória (JVM 64 bits, ponteiros comprimidos), por item indexado:
+//   ~12 bytes de slot (id + disponível) + ~24 bytes no mapa id -> slot
+//   + ~5 bytes por termo distinto do item (≈ 12 termos -> 60 bytes, ~80 com folga dos arrays)
+//   ≈ 128 bytes por item, mais ~100 bytes por termo distinto do catálogo (dicionário).
+// Ex.: 500 mil itens com 200 mil termos distintos ≈ 64 MB + 20 MB.
+final class IndiceInvertido {
+
+    static final int CAMPO_NOME = 1;
+    static final int CAMPO_CATEGORIA = 2;
+    static final int CAMPO_DESCRICAO = 4;
+
+    // Termos de uma letra só casam exatamente (evita expandir "a" para metade do dicionário)
+    private static final int PREFIXO_MINIMO = 2;
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Ocorrencias> termos = new TreeMap<>();
+    private final MapaIdSlot slotPorId = new MapaIdSlot();
+    private final BitSet ativos = new BitSet();
+    private long[] ids = new long[1024];
+    private int[] disponiveis = new int[1024];
+    private int slots;
+    private int vivos;
+    private long ocorrencias;
+    private long caracteresDicionario;
+
+    // 🔹 Normalização usada tanto na indexação quanto na consulta
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String semAcento = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String t : SEPARADORES.split(semAcento.toLowerCase(Locale.ROOT))) {
+            if (!t.isEmpty()) {
+                tokens.add(t);
+            }
+        }
+        return tokens;
+    }
+
+    // 🔹 Indexa (ou reindexa) um item
+    void indexar(long id, String nome, String categoria, String descricao, int disponivel) {
+        Map<String, Integer> campos = new HashMap<>();
+        for (String t : tokenizar(nome)) campos.merge(t, CAMPO_NOME, (a, b) -> a | b);
+        for (String t : tokenizar(categoria)) campos.merge(t, CAMPO_CATEGORIA, (a, b) -> a | b);
+        for (String t : tokenizar(descricao)) campos.merge(t, CAMPO_DESCRICAO, (a, b) -> a | b);
+
+        lock.writeLock().lock();
+        try {
+            desativar(id);
+            if (slots == ids.length) {
+                ids = Arrays.copyOf(ids, slots * 2);
+                disponiveis = Arrays.copyOf(disponiveis, slots * 2);
+            }
+            int slot = slots++;
+            ids[slot] = id;
+            disponiveis[slot] = disponivel;
+            ativos.set(slot);
+            slotPorId.put(id, slot);
+            vivos++;
+
+            for (Map.Entry<String, Integer> campo : campos.entrySet()) {
+                Ocorrencias o = termos.get(campo.getKey());
+                if (o == null) {
+                    o = new Ocorrencias();
+                    termos.put(campo.getKey(), o);
+                    caracteresDicionario += campo.getKey().length();
+                }
+                o.adicionar(slot, campo.getValue().byteValue());
+                ocorrencias++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remover(long id) {
+        lock.writeLock().lock();
+        try {
+            desativar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void desativar(long id) {
+        int slot = slotPorId.remove(id);
+        if (slot >= 0) {
+            ativos.clear(slot);
+            vivos--;
+        }
+    }
+
+    // 🔹 Busca: todos os termos da consulta precisam casar (por prefixo) em algum campo.
+    // Pontuação por termo = peso do melhor campo (nome 3, categoria 2, descrição 1), dobrado no termo exato.
+    Resultado buscar(String consulta, boolean somenteDisponiveis, int inicio, int quantidade) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenizar(consulta)));
+        if (tokens.isEmpty()) {
+            return new Resultado(new long[0], 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Map<Integer, Integer>> porToken = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Map<Integer, Integer> pontos = pontuar(token, somenteDisponiveis);
+                if (pontos.isEmpty()) {
+                    return new Resultado(new long[0], 0);
+                }
+                porToken.add(pontos);
+            }
+            porToken.sort(Comparator.comparingInt(Map::size));
+
+            // Top-k (inicio + quantidade) por pontuação desc, id asc
+            int k = inicio + quantidade;
+            Comparator<long[]> ordem = Comparator.<long[]>comparingLong(c -> c[1]).thenComparingLong(c -> -c[0]);
+            PriorityQueue<long[]> melhores = new PriorityQueue<>(Math.max(k, 1), ordem);
+            long total = 0;
+
+            candidatos:
+            for (Map.Entry<Integer, Integer> candidato : porToken.get(0).entrySet()) {
+                long pontuacao = candidato.getValue();
+                for (int i = 1; i < porToken.size(); i++) {
+                    Integer p = porToken.get(i).get(candidato.getKey());
+                    if (p == null) {
+                        continue candidatos;
+                    }
+                    pontuacao += p;
+                }
+                total++;
+                if (k == 0) {
+                    continue;
+                }
+                long[] c = {ids[candidato.getKey()], pontuacao};
+                if (melhores.size() < k) {
+                    melhores.add(c);
+                } else if (ordem.compare(c, melhores.peek()) > 0) {
+                    melhores.poll();
+                    melhores.add(c);
+                }
+            }
+
+            List<long[]> ordenados = new ArrayList<>(melhores);
+            ordenados.sort(ordem.reversed());
+            int fim = Math.min(ordenados.size(), k);
+            long[] pagina = new long[Math.max(fim - inicio, 0)];
+            for (int i = inicio; i < fim; i++) {
+                pagina[i - inicio] = ordenados.get(i)[0];
+            }
+            return new Resultado(pagina, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Integer> pontuar(String token, boolean somenteDisponiveis) {
+        NavigableMap<String, Ocorrencias> faixa = token.length() >= PREFIXO_MINIMO
+                ? termos.subMap(token, true, token + Character.MAX_VALUE, false)
+                : (termos.containsKey(token) ? termos.subMap(token, true, token, true) : new TreeMap<>());
+
+        Map<Integer, Integer> pontos = new HashMap<>();
+        for (Map.Entry<String, Ocorrencias> termo : faixa.entrySet()) {
+            int multiplicador = termo.getKey().equals(token) ? 2 : 1;
+            Ocorrencias o = termo.getValue();
+            for (int i = 0; i < o.tamanho; i++) {
+                int slot = o.slots[i];
+                if (!ativos.get(slot) || (somenteDisponiveis && disponiveis[slot] <= 0)) {
+                    continue;
+                }
+                pontos.merge(slot, peso(o.campos[i]) * multiplicador, Math::max);
+            }
+        }
+        return pontos;
+    }
+
+    private static int peso(byte campos) {
+        if ((campos & CAMPO_NOME) != 0) return 3;
+        if ((campos & CAMPO_CATEGORIA) != 0) return 2;
+        return 1;
+    }
+
+    int inativos() {
+        lock.readLock().lock();
+        try {
+            return slots - vivos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int vivos() {
+        lock.readLock().lock();
+        try {
+            return vivos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 🔹 Descarta os slots inativos, renumera os ativos e remove termos sem ocorrências
+    void compactar() {
+        lock.writeLock().lock();
+        try {
+            int[] novoSlot = new int[slots];
+            Arrays.fill(novoSlot, -1);
+            int n = 0;
+            for (int s = ativos.nextSetBit(0); s >= 0 && s < slots; s = ativos.nextSetBit(s + 1)) {
+                novoSlot[s] = n;
+                ids[n] = ids[s];
+                disponiveis[n] = disponiveis[s];
+                n++;
+            }
+
+            ocorrencias = 0;
+            caracteresDicionario = 0;
+            Iterator<Map.Entry<String, Ocorrencias>> it = termos.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Ocorrencias> termo = it.next();
+                Ocorrencias o = termo.getValue();
+                int m = 0;
+                for (int i = 0; i < o.tamanho; i++) {
+                    int destino = novoSlot[o.slots[i]];
+                    if (destino >= 0) {
+                        o.slots[m] = destino;
+                        o.campos[m] = o.campos[i];
+                        m++;
+                    }
+                }
+                if (m == 0) {
+                    it.remove();
+                    continue;
+                }
+                o.tamanho = m;
+                o.ajustar();
+                ocorrencias += m;
+                caracteresDicionario += termo.getKey().length();
+            }
+
+            ativos.clear();
+            ativos.set(0, n);
+            slots = n;
+            vivos = n;
+            ids = Arrays.copyOf(ids, Math.max(n * 3 / 2, 1024));
+            disponiveis = Arrays.copyOf(disponiveis, ids.length);
+            slotPorId.limpar();
+            for (int s = 0; s < n; s++) {
+                slotPorId.put(ids[s], s);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Map<String, Object> estatisticas() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> dados = new LinkedHashMap<>();
+            dados.put("itens", vivos);
+            dados.put("slotsInativos", slots - vivos);
+            dados.put("termos", termos.size());
+            dados.put("ocorrencias", ocorrencias);
+            long bytes = ids.length * 12L + slotPorId.capacidade() * 12L
+                    + ocorrencias * 5L + termos.size() * 96L + caracteresDicionario;
+            dados.put("bytesEstimados", bytes);
+            return dados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    record Resultado(long[] ids, long total) {
+    }
+
+    // Lista de ocorrências de um termo: slots e campos (bits) em arrays paralelos
+    private static final class Ocorrencias {
+        int[] slots = new int[2];
+        byte[] campos = new byte[2];
+        int tamanho;
+
+        void adicionar(int slot, byte campo) {
+            if (tamanho == slots.length) {
+                int novo = tamanho + (tamanho >> 1) + 1;
+                slots = Arrays.copyOf(slots, novo);
+                campos = Arrays.copyOf(campos, novo);
+            }
+            slots[tamanho] = slot;
+            campos[tamanho] = campo;
+            tamanho++;
+        }
+
+        void ajustar() {
+            if (slots.length > tamanho * 2) {
+                slots = Arrays.copyOf(slots, tamanho);
+                campos = Arrays.copyOf(campos, tamanho);
+            }
+        }
+    }
+
+    // Mapa id -> slot com endereçamento aberto (sem boxing de Long/Integer).
+    // Ids são sempre positivos; 0 marca posição livre e -1 no valor marca item removido.
+    private static final class MapaIdSlot {
+        private long[] chaves = new long[2048];
+        private int[] valores = new int[2048];
+        private int ocupadas;
+
+        void put(long id, int slot) {
+            if ((ocupadas + 1) * 2 > chaves.length) {
+                redimensionar(chaves.length * 2);
+            }
+            int i = posicao(id, chaves);
+            if (chaves[i] == 0) {
+                chaves[i] = id;
+                ocupadas++;
+            }
+            valores[i] = slot;
+        }
+
+        int remove(long id) {
+            int i = posicao(id, chaves);
+            if (chaves[i] == 0) {
+                return -1;
+            }
+            int slot = valores[i];
+            valores[i] = -1;
+            return slot;
+        }
+
+        int capacidade() {
+            return chaves.length;
+        }
+
+        void limpar() {
+            Arrays.fill(chaves, 0);
+            ocupadas = 0;
+        }
+
+        private static int posicao(long id, long[] chaves) {
+            int mascara = chaves.length - 1;
+            int i = Long.hashCode(id * 0x9E3779B97F4A7C15L) & mascara;
+            while (chaves[i] != 0 && chaves[i] != id) {
+                i = (i + 1) & mascara;
+            }
+            return i;
+        }
+
+        private void redimensionar(int capacidade) {
+            long[] antigasChaves = chaves;
+            int[] antigosValores = valores;
+            chaves = new long[capacidade];
+            valores = new int[capacidade];
+            for (int i = 0; i < antigasChaves.length; i++) {
+                if (antigasChaves[i] != 0) {
+                    int j = posicao(antigasChaves[i], chaves);
+                    chaves[j] = antigasChaves[i];
+                    valores[j] = antigosValores[i];
+                }
+            }
+        }
+    }
+}
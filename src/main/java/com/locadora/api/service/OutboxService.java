@@ -0,0 +1,51 @@
+package com.locadora.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.EventoOutbox;
+import com.locadora.api.model.EventoOutbox.TipoEvento;
+import com.locadora.api.repository.EventoOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Grava eventos de domínio no outbox. Só participa de uma transação já aberta: o evento
+// é confirmado ou descartado junto com a alteração que o originou.
+@Service
+public class OutboxService {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(EventoOutboxRepository eventoOutboxRepository, ObjectMapper objectMapper) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(TipoEvento tipo, Emprestimo emprestimo, Map<String, Object> dados) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(dados);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar o evento " + tipo, e);
+        }
+
+        // Número do evento entre os do usuário, na ordem de commit (ver EventoOutboxRepository.avancarSequencia)
+        Long usuarioId = emprestimo.getUsuario().getId();
+        eventoOutboxRepository.avancarSequencia(usuarioId, 1);
+        eventoOutboxRepository.save(EventoOutbox.builder()
+                .tipo(tipo)
+                .usuarioId(usuarioId)
+                .sequencia(eventoOutboxRepository.ultimaSequencia(usuarioId))
+                .emprestimoId(emprestimo.getId())
+                .payload(payload)
+                .criadoEm(LocalDateTime.now())
+                .tentativas(0)
+                .build());
+    }
+}
@@ -0,0 +1,289 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.ReservaEsperaDetalhe;
+import com.locadora.api.event.ItemAlteradoEvent;
+import com.locadora.api.metrics.EmprestimoMetricas;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.ReservaEspera;
+import com.locadora.api.model.ReservaEspera.StatusReserva;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.ReservaEsperaRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Fila de espera (FIFO) por item esgotado, gravada em RESERVA_ESPERA.
+// Quando unidades ficam livres (devolução, cancelamento, expiração, aumento da quantidade) elas são
+// separadas para a cabeça da fila: a reserva passa a SEPARADA e as unidades vão para Item.reservados,
+// fora da disponibilidade, até o empréstimo do usuário ou o fim da janela 'app.reservas.janela'.
+// Toda alteração da fila acontece com a linha do item bloqueada (UPDATE de estoque ou SELECT ... FOR
+// UPDATE), então devoluções e entradas concorrentes no mesmo item são serializadas pelo banco.
+@Service
+public class ReservaEsperaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservaEsperaService.class);
+
+    private static final int PAGINA_FILA = 50;
+
+    private final ReservaEsperaRepository reservaRepository;
+    private final ItemRepository itemRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final CategoriaFacetaService facetas;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EmprestimoMetricas metricas;
+    private final TransactionTemplate transacao;
+    private final Duration janela;
+    private final int tamanhoLote;
+
+    public ReservaEsperaService(ReservaEsperaRepository reservaRepository,
+                                ItemRepository itemRepository,
+                                UsuarioRepository usuarioRepository,
+                                CategoriaFacetaService facetas,
+                                ApplicationEventPublisher eventPublisher,
+                                EmprestimoMetricas metricas,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.reservas.janela:48h}") Duration janela,
+                                @Value("${app.reservas.tamanho-lote:500}") int tamanhoLote) {
+        this.reservaRepository = reservaRepository;
+        this.itemRepository = itemRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.facetas = facetas;
+        this.eventPublisher = eventPublisher;
+        this.metricas = metricas;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.janela = janela;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    // 🔹 Entrada na fila de espera do item
+    @Transactional
+    public ReservaEsperaDetalhe entrar(Long usuarioId, Long itemId, Integer quantidade) {
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado"));
+
+        // 🔒 Mesma regra de bloqueio por dívida do empréstimo
+        if (usuario.getDivida() != null && usuario.getDivida().doubleValue() > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Usuário com dívida pendente — reserva bloqueada.");
+        }
+
+        if (quantidade == null || quantidade <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantidade inválida para reserva.");
+        }
+
+        // 🔸 Bloqueia o item: a entrada não pode cruzar com uma devolução que já percorreu a fila
+        Item item = itemRepository.bloquearPorId(itemId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado"));
+
+        if (quantidade > item.getQuantidade()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Quantidade maior que o total de unidades do item (" + item.getQuantidade() + ").");
+        }
+        if (reservaRepository.existsByUsuarioIdAndItemIdAndStatusIn(usuarioId, itemId, ReservaEspera.ATIVAS)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Usuário já está na fila de espera deste item.");
+        }
+        if (item.getDisponivel() >= quantidade
+                && !reservaRepository.existsByItemIdAndStatusIn(itemId, List.of(StatusReserva.AGUARDANDO))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Item disponível — faça o empréstimo diretamente.");
+        }
+
+        ReservaEspera reserva = reservaRepository.saveAndFlush(ReservaEspera.builder()
+                .usuario(usuario)
+                .item(item)
+                .quantidade(quantidade)
+                .status(StatusReserva.AGUARDANDO)
+                // Na precisão da coluna (TIMESTAMP, microssegundos): a posição compara este valor com os gravados
+                .criadaEm(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build());
+        metricas.reservas(StatusReserva.AGUARDANDO, 1);
+
+        // Se a nova reserva for a cabeça da fila, as unidades livres já são separadas para ela
+        atribuir(itemId, item.getCategoria());
+        return consultar(reserva.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public ReservaEsperaDetalhe consultar(Long id) {
+        ReservaEspera reserva = reservaRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Reserva não encontrada."));
+        Long posicao = reserva.getStatus() == StatusReserva.AGUARDANDO
+                ? reservaRepository.contarAFrente(
+                        reserva.getItem().getId(), StatusReserva.AGUARDANDO, reserva.getCriadaEm(), id) + 1
+                : null;
+        return ReservaEsperaDetalhe.de(reserva, posicao);
+    }
+
+    // 🔹 Cancelamento pelo usuário; unidades já separadas seguem para o próximo da fila
+    @Transactional
+    public ReservaEsperaDetalhe cancelar(Long id) {
+        ReservaEspera reserva = reservaRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Reserva não encontrada."));
+        StatusReserva anterior = reserva.getStatus();
+        if (!ReservaEspera.ATIVAS.contains(anterior)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Somente reservas aguardando ou separadas podem ser canceladas.");
+        }
+
+        Long itemId = reserva.getItem().getId();
+        int quantidade = reserva.getQuantidade();
+        Item item = itemRepository.bloquearPorId(itemId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado"));
+        if (reservaRepository.alterarStatus(id, List.of(anterior), StatusReserva.CANCELADA) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A reserva foi alterada por outra operação. Tente novamente.");
+        }
+        metricas.reservas(StatusReserva.CANCELADA, 1);
+
+        if (anterior == StatusReserva.SEPARADA) {
+            liberar(itemId, item.getCategoria(), quantidade);
+        }
+        return consultar(id);
+    }
+
+    // 🔹 Separa as unidades livres para a cabeça da fila, em ordem estrita de chegada: para na primeira
+    // reserva que não cabe (um pedido menor não passa à frente). Quem chama já tem a linha do item
+    // bloqueada na transação. Retorna quantas reservas foram separadas.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int atribuir(Long itemId, String categoria) {
+        int livres = itemRepository.buscarLivres(itemId).orElse(0);
+        List<Long> ids = new ArrayList<>();
+        int unidades = 0;
+        LocalDateTime cursorCriadaEm = null;
+        long cursor = 0;
+
+        pagina:
+        while (livres - unidades > 0) {
+            List<ReservaEspera> fila = reservaRepository.buscarFila(
+                    itemId, StatusReserva.AGUARDANDO, cursorCriadaEm, cursor, Limit.of(PAGINA_FILA));
+            for (ReservaEspera reserva : fila) {
+                if (reserva.getQuantidade() > livres - unidades) {
+                    break pagina;
+                }
+                ids.add(reserva.getId());
+                unidades += reserva.getQuantidade();
+            }
+            if (fila.size() < PAGINA_FILA) {
+                break;
+            }
+            ReservaEspera ultima = fila.get(fila.size() - 1);
+            cursorCriadaEm = ultima.getCriadaEm();
+            cursor = ultima.getId();
+        }
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        reservaRepository.separar(ids, StatusReserva.AGUARDANDO, StatusReserva.SEPARADA, agora, agora.plus(janela));
+        itemRepository.separarEstoque(itemId, unidades);
+        facetas.registrarMovimento(itemId, categoria, 0, -unidades);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(itemId));
+        metricas.reservas(StatusReserva.SEPARADA, ids.size());
+        return ids.size();
+    }
+
+    // 🔹 Reserva separada para o usuário e ainda na janela (o empréstimo usa essas unidades primeiro)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<ReservaEspera> separadaPara(Long usuarioId, Long itemId) {
+        return reservaRepository.buscarSeparada(usuarioId, itemId, StatusReserva.SEPARADA, LocalDateTime.now());
+    }
+
+    // 🔹 Empréstimo feito com as unidades separadas (quem chama já as moveu de 'reservados' para
+    // 'emprestados' no item): a reserva é atendida e as que sobraram seguem para a fila
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void concluir(ReservaEspera reserva, Long itemId, String categoria, int emprestadas) {
+        if (reservaRepository.alterarStatus(reserva.getId(), List.of(StatusReserva.SEPARADA), StatusReserva.ATENDIDA) == 0) {
+            // Expirou ou foi cancelada antes do bloqueio do item: as unidades já tinham voltado ao estoque
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A reserva deste item expirou ou foi cancelada.");
+        }
+        metricas.reservas(StatusReserva.ATENDIDA, 1);
+        if (reserva.getQuantidade() > emprestadas) {
+            atribuir(itemId, categoria);
+        }
+    }
+
+    // 🔹 Novas unidades do item (quantidade aumentada) vão primeiro para a fila
+    @Transactional
+    public int atenderFila(Long itemId) {
+        return itemRepository.bloquearPorId(itemId)
+                .map(item -> atribuir(itemId, item.getCategoria()))
+                .orElse(0);
+    }
+
+    @Scheduled(initialDelayString = "${app.reservas.intervalo-expiracao:1m}",
+            fixedDelayString = "${app.reservas.intervalo-expiracao:1m}")
+    public void expirarAgendado() {
+        expirar(LocalDateTime.now());
+    }
+
+    // 🔹 Encerra as separadas com a janela vencida até 'agora', uma transação por reserva
+    // (bloqueia o item, devolve as unidades e a fila anda); retorna quantas expiraram
+    public int expirar(LocalDateTime agora) {
+        long cursor = 0;
+        int total = 0;
+
+        while (true) {
+            long after = cursor;
+            List<ReservaEspera> vencidas = transacao.execute(status -> reservaRepository.buscarVencidas(
+                    StatusReserva.SEPARADA, agora, after, Limit.of(tamanhoLote)));
+            if (vencidas == null || vencidas.isEmpty()) {
+                break;
+            }
+            for (ReservaEspera reserva : vencidas) {
+                Long itemId = reserva.getItem().getId();
+                if (Boolean.TRUE.equals(transacao.execute(status ->
+                        expirarReserva(reserva.getId(), itemId, reserva.getQuantidade())))) {
+                    total++;
+                }
+            }
+            if (vencidas.size() < tamanhoLote) {
+                break;
+            }
+            cursor = vencidas.get(vencidas.size() - 1).getId();
+        }
+
+        if (total > 0) {
+            log.info("Expiração da fila de espera: {} reserva(s) separada(s) sem empréstimo até {}.", total, agora);
+        }
+        return total;
+    }
+
+    private boolean expirarReserva(Long id, Long itemId, int quantidade) {
+        Item item = itemRepository.bloquearPorId(itemId).orElse(null);
+        if (item == null
+                || reservaRepository.alterarStatus(id, List.of(StatusReserva.SEPARADA), StatusReserva.EXPIRADA) == 0) {
+            // Emprestada ou cancelada depois da leitura
+            return false;
+        }
+        metricas.reservas(StatusReserva.EXPIRADA, 1);
+        liberar(itemId, item.getCategoria(), quantidade);
+        return true;
+    }
+
+    // Devolve unidades separadas à disponibilidade e passa para o próximo da fila
+    private void liberar(Long itemId, String categoria, int quantidade) {
+        itemRepository.separarEstoque(itemId, -quantidade);
+        facetas.registrarMovimento(itemId, categoria, 0, quantidade);
+        eventPublisher.publishEvent(new ItemAlteradoEvent(itemId));
+        atribuir(itemId, categoria);
+    }
+}
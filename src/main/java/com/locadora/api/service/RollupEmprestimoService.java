@@ -0,0 +1,181 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.ReceitaMultasMes;
+import com.locadora.api.dto.RelatorioCategoria;
+import com.locadora.api.dto.RelatorioItem;
+import com.locadora.api.model.CategoriaFaceta;
+import com.locadora.api.model.RollupItemDia;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.RollupEmprestimoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Totais diários de empréstimos por item e por categoria para os relatórios gerenciais.
+// Empréstimo, devolução e renovação aplicam o delta na mesma transação (então os totais só mudam
+// quando a operação confirma); a reconstrução recalcula intervalos de dias em paralelo a partir
+// do histórico, para a carga inicial ou para corrigir divergências.
+@Service
+public class RollupEmprestimoService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupEmprestimoService.class);
+
+    private static final int MAXIMO_ITENS = 1000;
+
+    private final RollupEmprestimoRepository rollupRepository;
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transacao;
+    private final int diasPorLote;
+    private final int paralelismo;
+
+    public RollupEmprestimoService(RollupEmprestimoRepository rollupRepository,
+                                   ItemRepository itemRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.rollup.dias-por-lote:31}") int diasPorLote,
+                                   @Value("${app.rollup.paralelismo:4}") int paralelismo) {
+        this.rollupRepository = rollupRepository;
+        this.itemRepository = itemRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.diasPorLote = diasPorLote;
+        this.paralelismo = paralelismo;
+    }
+
+    public record Reconstrucao(LocalDate de, LocalDate ate, int lotes, long linhasItem, long linhasCategoria,
+                               long duracaoMs) {
+    }
+
+    // 🔹 Empréstimos novos de um item (1 no empréstimo individual, N no lote)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarEmprestimos(Long itemId, String categoria, LocalDate dia, int emprestimos, int unidades) {
+        ajustar(dia, itemId, categoria, emprestimos, unidades, 0, 0, 0, 0.0);
+    }
+
+    // 🔹 Devolução: conta no dia da devolução com a multa apurada do empréstimo (total lançado, mesmo se já quitado)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarDevolucao(Long itemId, String categoria, LocalDate dia, boolean atrasada, double multa) {
+        ajustar(dia, itemId, categoria, 0, 0, 0, 1, atrasada ? 1 : 0, multa);
+    }
+
+    // 🔹 Renovação: conta no dia do empréstimo renovado (o histórico não guarda a data da renovação)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarRenovacao(Long itemId, String categoria, LocalDate diaEmprestimo) {
+        ajustar(diaEmprestimo, itemId, categoria, 0, 0, 1, 0, 0, 0.0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RelatorioItem> totaisPorItem(LocalDate de, LocalDate ate, Integer limit) {
+        validarPeriodo(de, ate);
+        int limite = limit == null ? 50 : Math.max(1, Math.min(limit, MAXIMO_ITENS));
+        return rollupRepository.totaisPorItem(de, ate, Limit.of(limite));
+    }
+
+    @Transactional(readOnly = true)
+    public List<RollupItemDia> serieDiaria(Long itemId, LocalDate de, LocalDate ate) {
+        validarPeriodo(de, ate);
+        return rollupRepository.findByItemIdAndDiaBetweenOrderByDia(itemId, de, ate);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RelatorioCategoria> totaisPorCategoria(LocalDate de, LocalDate ate) {
+        validarPeriodo(de, ate);
+        return rollupRepository.totaisPorCategoria(de, ate);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReceitaMultasMes> multasPorMes(LocalDate de, LocalDate ate) {
+        validarPeriodo(de, ate);
+        return rollupRepository.multasPorMes(de, ate);
+    }
+
+    // 🔹 Recalcula os totais do período (todo o histórico quando de/ate são nulos) em lotes de
+    // 'diasPorLote' dias, até 'paralelismo' lotes ao mesmo tempo, cada um em sua transação.
+    // Pode rodar com movimento: cada lote bloqueia antes o que ajusta os seus dias (ver recalcular).
+    public Reconstrucao reconstruir(LocalDate de, LocalDate ate) {
+        long inicio = System.currentTimeMillis();
+        LocalDate primeiro = de != null ? de : rollupRepository.primeiroDia();
+        LocalDate ultimo = ate != null ? ate : rollupRepository.ultimoDia();
+        if (primeiro == null || ultimo == null) {
+            return new Reconstrucao(de, ate, 0, 0, 0, 0);
+        }
+        validarPeriodo(primeiro, ultimo);
+
+        List<LocalDate[]> lotes = new ArrayList<>();
+        for (LocalDate dia = primeiro; !dia.isAfter(ultimo); dia = dia.plusDays(diasPorLote)) {
+            LocalDate fim = dia.plusDays(diasPorLote - 1L);
+            lotes.add(new LocalDate[]{dia, fim.isAfter(ultimo) ? ultimo : fim});
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(paralelismo, lotes.size()));
+        long linhasItem = 0;
+        long linhasCategoria = 0;
+        try {
+            List<Future<long[]>> resultados = new ArrayList<>();
+            for (LocalDate[] lote : lotes) {
+                resultados.add(executor.submit(() -> transacao.execute(status -> recalcular(lote[0], lote[1]))));
+            }
+            for (Future<long[]> resultado : resultados) {
+                long[] linhas = resultado.get();
+                linhasItem += linhas[0];
+                linhasCategoria += linhas[1];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrução dos totais interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na reconstrução dos totais.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long duracao = System.currentTimeMillis() - inicio;
+        log.info("Totais de empréstimos reconstruídos de {} a {}: {} lote(s), {} linha(s) por item em {} ms.",
+                primeiro, ultimo, lotes.size(), linhasItem, duracao);
+        return new Reconstrucao(primeiro, ultimo, lotes.size(), linhasItem, linhasCategoria, duracao);
+    }
+
+    // 🔸 Antes de apagar, bloqueia quem ajusta os dias do lote: renovações (linha do empréstimo em aberto,
+    // dia do empréstimo) e, no lote que alcança hoje, empréstimos, devoluções e renovações de empréstimos
+    // criados depois do primeiro bloqueio (linha do item, em ordem de id).
+    // Quem já ajustou confirma antes e entra no recálculo; quem chega depois espera e soma sobre o recalculado.
+    private long[] recalcular(LocalDate de, LocalDate ate) {
+        rollupRepository.bloquearEmAberto(de, ate);
+        if (!ate.isBefore(LocalDate.now().minusDays(1))) { // um dia de folga para a virada da data
+            itemRepository.bloquearTodos();
+        }
+        rollupRepository.apagarCategorias(de, ate);
+        rollupRepository.apagarItens(de, ate);
+        int itens = rollupRepository.recalcularItens(de, ate);
+        int categorias = rollupRepository.recalcularCategorias(de, ate);
+        return new long[]{itens, categorias};
+    }
+
+    private void ajustar(LocalDate dia, Long itemId, String categoria, long emprestimos, long unidades,
+                         long renovacoes, long devolucoes, long atrasadas, double multas) {
+        rollupRepository.ajustarItem(dia, itemId, emprestimos, unidades, renovacoes, devolucoes, atrasadas, multas);
+        rollupRepository.ajustarCategoria(dia, categoria == null ? "" : categoria,
+                (int) Math.floorMod(itemId, (long) CategoriaFaceta.FATIAS),
+                emprestimos, unidades, renovacoes, devolucoes, atrasadas, multas);
+    }
+
+    private static void validarPeriodo(LocalDate de, LocalDate ate) {
+        if (de.isAfter(ate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Período inválido: 'de' posterior a 'ate'.");
+        }
+    }
+}
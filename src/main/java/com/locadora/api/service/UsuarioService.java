@@ -1,46 +1,54 @@
 package com.locadora.api.service;
 
-import com.locadora.api.model.Emprestimo;
-import com.locadora.api.model.Usuario;
+import com.locadora.api.dto.QuitacaoLote;
 import com.locadora.api.repository.EmprestimoRepository;
 import com.locadora.api.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 public class UsuarioService {
 
+    // Tamanho máximo de cada lista IN enviada ao banco na quitação em lote
+    private static final int TAMANHO_BLOCO_IDS = 1000;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
     @Autowired
     private EmprestimoRepository emprestimoRepository;
 
+    // 🔹 Zera multas e dívida do usuário na mesma transação (dois UPDATEs, independente do histórico)
+    @Transactional
     public boolean quitarDividas(Long usuarioId) {
-
-        Optional<Usuario> usuarioOpt = usuarioRepository.findById(usuarioId);
-        if (!usuarioOpt.isPresent()) {
+        if (!usuarioRepository.existsById(usuarioId)) {
             return false;
         }
 
-        Usuario usuario = usuarioOpt.get();
-
-        // Zera dívida do usuário
-        usuario.setDivida(BigDecimal.ZERO);
-        usuarioRepository.save(usuario);
+        // Mesma ordem de bloqueio da varredura de atrasos: empréstimos, depois usuário
+        emprestimoRepository.zerarMultas(List.of(usuarioId));
+        usuarioRepository.zerarDividas(List.of(usuarioId));
 
-        // Zera multas de todos os empréstimos do usuário
-        List<Emprestimo> emprestimos = emprestimoRepository.findByUsuarioId(usuarioId);
+        return true;
+    }
 
-        for (Emprestimo emp : emprestimos) {
-            emp.setMulta(0.0);
-            emprestimoRepository.save(emp);
+    // 🔹 Quitação em lote (importação de pagamentos): tudo ou nada em uma única transação
+    @Transactional
+    public QuitacaoLote quitarDividas(List<Long> usuarioIds) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(usuarioIds));
+        int usuarios = 0;
+        int emprestimos = 0;
+
+        for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_BLOCO_IDS) {
+            List<Long> bloco = ids.subList(inicio, Math.min(inicio + TAMANHO_BLOCO_IDS, ids.size()));
+            emprestimos += emprestimoRepository.zerarMultas(bloco);
+            usuarios += usuarioRepository.zerarDividas(bloco);
         }
 
-        return true;
+        return new QuitacaoLote(usuarios, emprestimos);
     }
 }
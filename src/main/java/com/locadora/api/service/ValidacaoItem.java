@@ -0,0 +1,31 @@
+package com.locadora.api.service;
+
+import com.locadora.api.model.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Campos obrigatórios de um item novo (cadastro individual e importação em lote)
+public final class ValidacaoItem {
+
+    private ValidacaoItem() {
+    }
+
+    public static List<String> camposObrigatorios(Item item) {
+        List<String> erros = new ArrayList<>();
+
+        if (item.getNome() == null || item.getNome().trim().isEmpty()) {
+            erros.add("O campo 'nome' é obrigatório.");
+        }
+        if (item.getDescricao() == null || item.getDescricao().trim().isEmpty()) {
+            erros.add("O campo 'descricao' é obrigatório.");
+        }
+        if (item.getCategoria() == null || item.getCategoria().trim().isEmpty()) {
+            erros.add("O campo 'categoria' é obrigatório.");
+        }
+        if (item.getQuantidade() == null) {
+            erros.add("O campo 'quantidade' é obrigatório.");
+        }
+        return erros;
+    }
+}
@@ -0,0 +1,76 @@
+package com.locadora.api.service;
+
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.EventoOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Varredura diária: empréstimos vencidos e não devolvidos passam a LATE e acumulam multa.
+// Cada lote roda em sua própria transação e grava 'multa_calculada_em', então a varredura
+// pode ser interrompida e reexecutada no mesmo dia sem lançar a multa duas vezes.
+@Service
+public class VarreduraAtrasoService {
+
+    private static final Logger log = LoggerFactory.getLogger(VarreduraAtrasoService.class);
+
+    private final EmprestimoRepository emprestimoRepository;
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final TransactionTemplate transacao;
+    private final double multaDiaria;
+    private final int tamanhoLote;
+
+    public VarreduraAtrasoService(EmprestimoRepository emprestimoRepository,
+                                  EventoOutboxRepository eventoOutboxRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.multa-diaria:2.5}") double multaDiaria,
+                                  @Value("${app.atraso.tamanho-lote:1000}") int tamanhoLote) {
+        this.emprestimoRepository = emprestimoRepository;
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.multaDiaria = multaDiaria;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @Scheduled(cron = "${app.atraso.cron:0 15 0 * * *}")
+    public void varrerAgendado() {
+        varrer(LocalDate.now());
+    }
+
+    // 🔹 Processa todos os atrasados até 'hoje' em lotes; retorna quantos empréstimos foram atualizados
+    public int varrer(LocalDate hoje) {
+        long cursor = 0;
+        int total = 0;
+
+        while (true) {
+            long after = cursor;
+            List<Long> ids = transacao.execute(status -> processarLote(hoje, after));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            total += ids.size();
+            cursor = ids.get(ids.size() - 1);
+        }
+
+        log.info("Varredura de atrasos de {} concluída: {} empréstimo(s) atualizado(s).", hoje, total);
+        return total;
+    }
+
+    private List<Long> processarLote(LocalDate hoje, long after) {
+        List<Long> ids = emprestimoRepository.buscarLoteAtrasados(hoje, after, tamanhoLote);
+        if (!ids.isEmpty()) {
+            emprestimoRepository.acrescentarDividaLote(ids, hoje, multaDiaria);
+            eventoOutboxRepository.avancarSequenciaMultasLote(ids, hoje);
+            eventoOutboxRepository.registrarMultasLote(ids, hoje, multaDiaria);
+            emprestimoRepository.aplicarMultaLote(ids, hoje, multaDiaria);
+        }
+        return ids;
+    }
+}
@@ -35,6 +35,8 @@ CREATE TABLE IF NOT EXISTS EMPRESTIMO (
     );
 
 -- changeset tawaf:004 insert-dados-iniciais
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM USUARIO
 INSERT INTO USUARIO (nome, email, telefone, divida) VALUES
                                                         ('João da Silva', 'joao@email.com', '51999999999', 0),
                                                         ('Maria Oliveira', 'maria@email.com', '51988888888', 0),
@@ -44,3 +46,236 @@ INSERT INTO ITEM (nome, descricao, categoria, quantidade) VALUES
                                                               ('Cortador de Grama', 'Equipamento de jardim', 'Jardinagem', 5),
                                                               ('Motocultivador', 'Máquina agrícola leve', 'Agrícola', 3),
                                                               ('Furadeira', 'Furadeira elétrica', 'Ferramentas', 10);
+
+-- changeset tawaf:005 create-sequence-emprestimo
+-- Ids de empréstimo passam a vir de sequência (incremento = allocationSize do Hibernate),
+-- iniciando após o maior id já existente.
+CREATE SEQUENCE IF NOT EXISTS EMPRESTIMO_SEQ START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE EMPRESTIMO_SEQ RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM EMPRESTIMO);
+
+-- changeset tawaf:006 colunas-contadores-e-versao
+ALTER TABLE ITEM ADD COLUMN IF NOT EXISTS emprestados INT DEFAULT 0 NOT NULL;
+ALTER TABLE ITEM ADD COLUMN IF NOT EXISTS versao BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE EMPRESTIMO ADD COLUMN IF NOT EXISTS multa_calculada_em DATE;
+ALTER TABLE EMPRESTIMO ADD COLUMN IF NOT EXISTS versao BIGINT DEFAULT 0 NOT NULL;
+
+-- changeset tawaf:007 indices-emprestimo
+-- Um índice por padrão de acesso do EmprestimoRepository:
+-- findByItemId / existsByItemId / nomes com o item em aberto
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_ITEM_ABERTO ON EMPRESTIMO (item_id, data_devolucao);
+-- findByUsuarioIdAndStatusIn / buscarDividas (status pendente ou multa > 0)
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_USUARIO_STATUS ON EMPRESTIMO (usuario_id, status, multa);
+-- findByStatus
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_STATUS ON EMPRESTIMO (status);
+-- findByMultaGreaterThan (o H2 não tem índice parcial; as multas zeradas ficam agrupadas no início)
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_MULTA ON EMPRESTIMO (multa);
+-- varredura de atrasos: em aberto e vencidos
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_EM_ABERTO ON EMPRESTIMO (data_devolucao, data_prevista_devolucao);
+
+-- changeset tawaf:008 create-table-evento-outbox
+-- Eventos de domínio gravados na mesma transação do empréstimo e entregues de forma assíncrona
+CREATE SEQUENCE IF NOT EXISTS EVENTO_OUTBOX_SEQ START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS EVENTO_OUTBOX (
+                                             id BIGINT PRIMARY KEY,
+                                             tipo VARCHAR(20) NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    emprestimo_id BIGINT NOT NULL,
+    payload VARCHAR(1000),
+    criado_em TIMESTAMP NOT NULL,
+    processado_em TIMESTAMP,
+    tentativas INT DEFAULT 0 NOT NULL,
+    erro VARCHAR(500)
+    );
+-- leitura dos pendentes em ordem de gravação / limpeza dos já entregues
+CREATE INDEX IF NOT EXISTS IDX_EVENTO_OUTBOX_PENDENTE ON EVENTO_OUTBOX (processado_em, id);
+
+-- changeset tawaf:009 create-table-categoria-faceta
+-- Totais por categoria mantidos a cada alteração de item/empréstimo. Cada categoria é dividida em
+-- 8 fatias (MOD(item_id, 8)) para que empréstimos concorrentes da mesma categoria não disputem uma única linha.
+CREATE TABLE IF NOT EXISTS CATEGORIA_FACETA (
+                                                categoria VARCHAR(100) NOT NULL,
+                                                fatia INT NOT NULL,
+                                                titulos BIGINT DEFAULT 0 NOT NULL,
+                                                copias BIGINT DEFAULT 0 NOT NULL,
+                                                emprestadas BIGINT DEFAULT 0 NOT NULL,
+                                                disponiveis BIGINT DEFAULT 0 NOT NULL,
+                                                PRIMARY KEY (categoria, fatia)
+    );
+INSERT INTO CATEGORIA_FACETA (categoria, fatia, titulos, copias, emprestadas, disponiveis)
+SELECT COALESCE(categoria, ''), MOD(id, 8), COUNT(*), SUM(COALESCE(quantidade, 0)), SUM(emprestados),
+       SUM(GREATEST(COALESCE(quantidade, 0) - emprestados, 0))
+FROM ITEM
+GROUP BY COALESCE(categoria, ''), MOD(id, 8);
+
+-- changeset tawaf:010 coluna-versao-usuario
+ALTER TABLE USUARIO ADD COLUMN IF NOT EXISTS versao BIGINT DEFAULT 0 NOT NULL;
+
+-- changeset tawaf:011 create-sequence-item
+-- Ids de item passam a vir de sequência (pooled, incremento = allocationSize) para permitir
+-- inserts em lote na importação; inicia após o maior id já existente.
+CREATE SEQUENCE IF NOT EXISTS ITEM_SEQ START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE ITEM_SEQ RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM ITEM);
+
+-- changeset tawaf:012 create-tables-rollup-emprestimo
+-- Totais diários de empréstimos por item e por categoria, atualizados na transação de cada
+-- empréstimo/devolução/renovação. Empréstimos e renovações contam no dia do empréstimo;
+-- devoluções, devoluções em atraso e multas (valor final do empréstimo) no dia da devolução.
+-- A categoria é dividida em 8 fatias (MOD(item_id, 8)), como em CATEGORIA_FACETA.
+CREATE TABLE IF NOT EXISTS ROLLUP_ITEM_DIA (
+                                               dia DATE NOT NULL,
+                                               item_id BIGINT NOT NULL,
+                                               emprestimos BIGINT DEFAULT 0 NOT NULL,
+                                               unidades BIGINT DEFAULT 0 NOT NULL,
+                                               renovacoes BIGINT DEFAULT 0 NOT NULL,
+                                               devolucoes BIGINT DEFAULT 0 NOT NULL,
+                                               devolucoes_atrasadas BIGINT DEFAULT 0 NOT NULL,
+                                               multas DOUBLE PRECISION DEFAULT 0 NOT NULL,
+                                               PRIMARY KEY (dia, item_id)
+    );
+CREATE TABLE IF NOT EXISTS ROLLUP_CATEGORIA_DIA (
+                                                    dia DATE NOT NULL,
+                                                    categoria VARCHAR(100) NOT NULL,
+                                                    fatia INT NOT NULL,
+                                                    emprestimos BIGINT DEFAULT 0 NOT NULL,
+                                                    unidades BIGINT DEFAULT 0 NOT NULL,
+                                                    renovacoes BIGINT DEFAULT 0 NOT NULL,
+                                                    devolucoes BIGINT DEFAULT 0 NOT NULL,
+                                                    devolucoes_atrasadas BIGINT DEFAULT 0 NOT NULL,
+                                                    multas DOUBLE PRECISION DEFAULT 0 NOT NULL,
+                                                    PRIMARY KEY (dia, categoria, fatia)
+    );
+-- série diária de um item
+CREATE INDEX IF NOT EXISTS IDX_ROLLUP_ITEM_DIA_ITEM ON ROLLUP_ITEM_DIA (item_id, dia);
+
+-- changeset tawaf:013 create-table-emprestimo-historico
+-- Empréstimos encerrados (devolvidos e sem multa pendente) saem da tabela viva para cá
+-- pelo ArquivamentoEmprestimoService; os ids são mantidos.
+CREATE TABLE IF NOT EXISTS EMPRESTIMO_HISTORICO (
+                                                    id BIGINT PRIMARY KEY,
+                                                    usuario_id BIGINT,
+                                                    item_id BIGINT,
+                                                    quantidade INT,
+                                                    data_emprestimo DATE,
+                                                    data_prevista_devolucao DATE,
+                                                    data_devolucao DATE,
+                                                    renovacoes INT DEFAULT 0,
+                                                    status VARCHAR(20),
+    multa DECIMAL(10,2),
+    multa_calculada_em DATE,
+    versao BIGINT DEFAULT 0 NOT NULL,
+    arquivado_em TIMESTAMP NOT NULL,
+    FOREIGN KEY (usuario_id) REFERENCES USUARIO(id),
+    FOREIGN KEY (item_id) REFERENCES ITEM(id)
+    );
+-- histórico e dívidas do usuário / exclusão de item / reconstrução dos totais diários
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_HISTORICO_USUARIO ON EMPRESTIMO_HISTORICO (usuario_id, id);
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_HISTORICO_ITEM ON EMPRESTIMO_HISTORICO (item_id);
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_HISTORICO_EMPRESTIMO ON EMPRESTIMO_HISTORICO (data_emprestimo);
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_HISTORICO_DEVOLUCAO ON EMPRESTIMO_HISTORICO (data_devolucao);
+
+-- changeset tawaf:014 create-table-reserva-espera
+-- Fila de espera por item (FIFO pelo id). Na devolução, as unidades livres vão para a cabeça da fila:
+-- a reserva passa a SEPARADA e as unidades saem da disponibilidade (ITEM.reservados) até o
+-- empréstimo ou o fim da janela (expira_em).
+ALTER TABLE ITEM ADD COLUMN IF NOT EXISTS reservados INT DEFAULT 0 NOT NULL;
+CREATE SEQUENCE IF NOT EXISTS RESERVA_ESPERA_SEQ START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS RESERVA_ESPERA (
+                                              id BIGINT PRIMARY KEY,
+                                              usuario_id BIGINT NOT NULL,
+                                              item_id BIGINT NOT NULL,
+                                              quantidade INT NOT NULL,
+                                              status VARCHAR(15) NOT NULL,
+    criada_em TIMESTAMP NOT NULL,
+    separada_em TIMESTAMP,
+    expira_em TIMESTAMP,
+    versao BIGINT DEFAULT 0 NOT NULL,
+    FOREIGN KEY (usuario_id) REFERENCES USUARIO(id) ON DELETE CASCADE,
+    FOREIGN KEY (item_id) REFERENCES ITEM(id) ON DELETE CASCADE
+    );
+-- fila do item / reserva do usuário no empréstimo / expiração das separadas
+CREATE INDEX IF NOT EXISTS IDX_RESERVA_ESPERA_FILA ON RESERVA_ESPERA (item_id, status, id);
+CREATE INDEX IF NOT EXISTS IDX_RESERVA_ESPERA_USUARIO ON RESERVA_ESPERA (usuario_id, item_id, status);
+CREATE INDEX IF NOT EXISTS IDX_RESERVA_ESPERA_EXPIRACAO ON RESERVA_ESPERA (status, expira_em);
+
+-- changeset tawaf:015 outbox-ordem-por-usuario
+-- Ordem de entrega por usuário: cada evento recebe o próximo número do contador do usuário
+-- (USUARIO.eventos_outbox), incrementado na transação que grava o evento. O UPDATE bloqueia a linha
+-- do usuário até o commit, então a sequência segue a ordem de commit (o id, alocado em blocos, não).
+-- outbox_reserva/outbox_reservado_ate: concessão temporária dos eventos do usuário a uma instância do
+-- despachante, para que duas instâncias não entreguem o mesmo usuário ao mesmo tempo.
+ALTER TABLE USUARIO ADD COLUMN IF NOT EXISTS eventos_outbox BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE USUARIO ADD COLUMN IF NOT EXISTS outbox_reserva VARCHAR(36);
+ALTER TABLE USUARIO ADD COLUMN IF NOT EXISTS outbox_reservado_ate TIMESTAMP;
+ALTER TABLE EVENTO_OUTBOX ADD COLUMN IF NOT EXISTS sequencia BIGINT;
+UPDATE EVENTO_OUTBOX e SET sequencia = (
+    SELECT COUNT(*) FROM EVENTO_OUTBOX o WHERE o.usuario_id = e.usuario_id AND o.id <= e.id);
+UPDATE USUARIO u SET eventos_outbox = (
+    SELECT COALESCE(MAX(e.sequencia), 0) FROM EVENTO_OUTBOX e WHERE e.usuario_id = u.id);
+ALTER TABLE EVENTO_OUTBOX ALTER COLUMN sequencia SET NOT NULL;
+-- pendentes de um usuário em ordem de sequência
+CREATE INDEX IF NOT EXISTS IDX_EVENTO_OUTBOX_USUARIO ON EVENTO_OUTBOX (usuario_id, processado_em, sequencia);
+
+-- changeset tawaf:016 coluna-multa-apurada
+-- Total de multa lançado no empréstimo (varredura + devolução). A quitação zera EMPRESTIMO.multa,
+-- mas não multa_apurada, que é a base da receita de multas nos totais diários; copiada no arquivamento.
+ALTER TABLE EMPRESTIMO ADD COLUMN IF NOT EXISTS multa_apurada DECIMAL(10,2) DEFAULT 0 NOT NULL;
+ALTER TABLE EMPRESTIMO_HISTORICO ADD COLUMN IF NOT EXISTS multa_apurada DECIMAL(10,2) DEFAULT 0 NOT NULL;
+UPDATE EMPRESTIMO SET multa_apurada = COALESCE(multa, 0);
+UPDATE EMPRESTIMO_HISTORICO SET multa_apurada = COALESCE(multa, 0);
+-- Carga inicial dos totais diários a partir de todo o histórico (mesmo cálculo da reconstrução)
+DELETE FROM ROLLUP_CATEGORIA_DIA;
+DELETE FROM ROLLUP_ITEM_DIA;
+INSERT INTO ROLLUP_ITEM_DIA (dia, item_id, emprestimos, unidades, renovacoes, devolucoes, devolucoes_atrasadas, multas)
+SELECT dia, item_id, SUM(emprestimos), SUM(unidades), SUM(renovacoes), SUM(devolucoes), SUM(atrasadas), SUM(multas)
+FROM (
+         SELECT data_emprestimo AS dia, item_id, COUNT(*) AS emprestimos, SUM(quantidade) AS unidades,
+                SUM(renovacoes) AS renovacoes, 0 AS devolucoes, 0 AS atrasadas, 0 AS multas
+         FROM (SELECT item_id, quantidade, data_emprestimo, renovacoes FROM EMPRESTIMO
+               UNION ALL SELECT item_id, quantidade, data_emprestimo, renovacoes FROM EMPRESTIMO_HISTORICO) e
+         WHERE data_emprestimo IS NOT NULL
+         GROUP BY data_emprestimo, item_id
+         UNION ALL
+         SELECT data_devolucao, item_id, 0, 0, 0, COUNT(*),
+                SUM(CASE WHEN data_devolucao > data_prevista_devolucao THEN 1 ELSE 0 END), SUM(COALESCE(multa_apurada, 0))
+         FROM (SELECT item_id, data_prevista_devolucao, data_devolucao, multa_apurada FROM EMPRESTIMO
+               UNION ALL SELECT item_id, data_prevista_devolucao, data_devolucao, multa_apurada FROM EMPRESTIMO_HISTORICO) e
+         WHERE data_devolucao IS NOT NULL
+         GROUP BY data_devolucao, item_id
+     ) t
+GROUP BY dia, item_id;
+INSERT INTO ROLLUP_CATEGORIA_DIA (dia, categoria, fatia, emprestimos, unidades, renovacoes, devolucoes,
+                                  devolucoes_atrasadas, multas)
+SELECT r.dia, COALESCE(i.categoria, ''), MOD(r.item_id, 8), SUM(r.emprestimos), SUM(r.unidades), SUM(r.renovacoes),
+       SUM(r.devolucoes), SUM(r.devolucoes_atrasadas), SUM(r.multas)
+FROM ROLLUP_ITEM_DIA r JOIN ITEM i ON i.id = r.item_id
+GROUP BY r.dia, COALESCE(i.categoria, ''), MOD(r.item_id, 8);
+
+-- changeset tawaf:017 fila-espera-ordem-de-chegada
+-- A fila passa a ser ordenada por (criada_em, id). A sequência deixa de alocar em blocos: com blocos,
+-- duas instâncias entregam ids fora da ordem de chegada.
+ALTER SEQUENCE RESERVA_ESPERA_SEQ INCREMENT BY 1;
+DROP INDEX IF EXISTS IDX_RESERVA_ESPERA_FILA;
+CREATE INDEX IF NOT EXISTS IDX_RESERVA_ESPERA_FILA ON RESERVA_ESPERA (item_id, status, criada_em, id);
+
+-- changeset tawaf:018 item-quantidade-total
+-- Até a 006, 'quantidade' era o estoque restante (o empréstimo subtraía dela); desde então é o total
+-- cadastrado e 'emprestados' guarda o que está fora. Itens com empréstimos em aberto de antes da
+-- migração recebem os dois valores a partir desses empréstimos, e as facetas são recalculadas.
+UPDATE ITEM i SET
+    emprestados = (SELECT COALESCE(SUM(e.quantidade), 0) FROM EMPRESTIMO e
+                   WHERE e.item_id = i.id AND e.data_devolucao IS NULL),
+    quantidade = COALESCE(i.quantidade, 0) + (SELECT COALESCE(SUM(e.quantidade), 0) FROM EMPRESTIMO e
+                                              WHERE e.item_id = i.id AND e.data_devolucao IS NULL);
+DELETE FROM CATEGORIA_FACETA;
+INSERT INTO CATEGORIA_FACETA (categoria, fatia, titulos, copias, emprestadas, disponiveis)
+SELECT COALESCE(categoria, ''), MOD(id, 8), COUNT(*), SUM(COALESCE(quantidade, 0)), SUM(emprestados),
+       SUM(GREATEST(COALESCE(quantidade, 0) - emprestados - reservados, 0))
+FROM ITEM
+GROUP BY COALESCE(categoria, ''), MOD(id, 8);
+
+-- changeset tawaf:019 indice-emprestimo-usuario-cursor
+-- buscarDividas filtra o usuário e pagina por id (id > :after ORDER BY id): com (usuario_id, id) na frente o
+-- índice atende a igualdade, o cursor e a ordenação; status e multa seguem no índice para o filtro de dívida.
+-- Com (usuario_id, status, multa) o H2 preferia o índice da chave estrangeira, que só cobre usuario_id.
+DROP INDEX IF EXISTS IDX_EMPRESTIMO_USUARIO_STATUS;
+CREATE INDEX IF NOT EXISTS IDX_EMPRESTIMO_USUARIO_STATUS ON EMPRESTIMO (usuario_id, id, status, multa);
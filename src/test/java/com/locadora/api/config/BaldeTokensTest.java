@@ -0,0 +1,71 @@
+package com.locadora.api.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaldeTokensTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    @Test
+    void permiteRajadaEDepoisRejeitaAteRepor() {
+        long agora = 0;
+        BaldeTokens balde = new BaldeTokens(2, 5, agora);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, balde.tentar(agora));
+        }
+        long espera = balde.tentar(agora);
+        assertEquals(SEGUNDO / 2, espera);
+
+        // 🔹 Meio segundo repõe exatamente um token
+        assertEquals(0, balde.tentar(agora + SEGUNDO / 2));
+        assertTrue(balde.tentar(agora + SEGUNDO / 2) > 0);
+    }
+
+    @Test
+    void baldeOciosoVoltaCheioSemAcumularAlemDaRajada() {
+        BaldeTokens balde = new BaldeTokens(10, 3, 0);
+        assertEquals(0, balde.tentar(0));
+
+        long depois = 60 * SEGUNDO;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, balde.tentar(depois));
+        }
+        assertTrue(balde.tentar(depois) > 0);
+    }
+
+    @Test
+    void concorrenciaNaoConcedeMaisQueARajada() throws Exception {
+        long agora = System.nanoTime();
+        BaldeTokens balde = new BaldeTokens(0.001, 100, agora);
+        AtomicInteger concedidos = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tarefas.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    if (balde.tentar(agora) == 0) {
+                        concedidos.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+
+        assertEquals(100, concedidos.get());
+    }
+}
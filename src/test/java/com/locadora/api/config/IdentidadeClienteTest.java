@@ -0,0 +1,45 @@
+package com.locadora.api.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdentidadeClienteTest {
+
+    private final IdentidadeCliente identidade = new IdentidadeCliente(List.of("10.0.0.10", "10.0.0.11"));
+
+    @Test
+    void cabecalhosDoClienteNaoMudamAChave() {
+        MockHttpServletRequest request = requisicao("203.0.113.5");
+        request.addHeader("X-Client-Id", "outro-cliente");
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+
+        assertEquals("ip:203.0.113.5", identidade.de(request));
+    }
+
+    @Test
+    void atrasDeProxyConfiavelUsaOPrimeiroEnderecoDesconhecidoDaDireita() {
+        MockHttpServletRequest request = requisicao("10.0.0.11");
+        // O primeiro valor foi forjado pelo cliente; 10.0.0.10 é o proxy de borda
+        request.addHeader("X-Forwarded-For", "198.51.100.1, 203.0.113.5, 10.0.0.10");
+
+        assertEquals("ip:203.0.113.5", identidade.de(request));
+    }
+
+    @Test
+    void usuarioAutenticadoTemPrioridade() {
+        MockHttpServletRequest request = requisicao("203.0.113.5");
+        request.setUserPrincipal(() -> "ana");
+
+        assertEquals("usuario:ana", identidade.de(request));
+    }
+
+    private static MockHttpServletRequest requisicao(String remoto) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/emprestimos");
+        request.setRemoteAddr(remoto);
+        return request;
+    }
+}
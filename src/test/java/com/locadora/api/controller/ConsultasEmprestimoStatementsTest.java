@@ -0,0 +1,128 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Garante um número fixo de comandos SQL por requisição, independente da quantidade de linhas (sem N+1).
+// O cache de disponibilidade fica desligado para medir as consultas em si.
+@SpringBootTest(properties = "app.cache.disponibilidade.habilitado=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConsultasEmprestimoStatementsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listarDividasAtivasUsaUmaConsulta() throws Exception {
+        Item item = novoItem(100);
+        popular(item, 1, 5.0);
+        assertEquals(1, contarComandos("/usuarios/dividas"));
+
+        popular(item, 25, 5.0);
+        assertEquals(1, contarComandos("/usuarios/dividas"));
+    }
+
+    @Test
+    void verificarDisponibilidadeNaoDependeDosEmprestimos() throws Exception {
+        Item item = novoItem(100);
+        popular(item, 1, 0.0);
+        long comUm = contarComandos("/itens/" + item.getId() + "/disponibilidade");
+
+        popular(item, 25, 0.0);
+        assertEquals(comUm, contarComandos("/itens/" + item.getId() + "/disponibilidade"));
+        assertEquals(2, comUm);
+    }
+
+    @Test
+    void consultarEmprestimoCarregaUsuarioEItemJuntos() throws Exception {
+        Item item = novoItem(10);
+        Emprestimo emprestimo = popular(item, 1, 0.0);
+
+        assertEquals(1, contarComandos("/api/v1/emprestimos/" + emprestimo.getId()));
+    }
+
+    private long contarComandos(String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Item novoItem(int quantidade) {
+        return itemRepository.save(Item.builder()
+                .nome("Cortador de Grama")
+                .descricao("Equipamento de jardim")
+                .categoria("Jardinagem")
+                .quantidade(quantidade)
+                .emprestados(0)
+                .build());
+    }
+
+    // Cria 'quantos' empréstimos em aberto, cada um de um usuário diferente
+    private Emprestimo popular(Item item, int quantos, double multa) {
+        Emprestimo ultimo = null;
+        for (int i = 0; i < quantos; i++) {
+            Usuario usuario = usuarioRepository.save(Usuario.builder()
+                    .nome("Usuário " + i)
+                    .email("usuario" + i + "@email.com")
+                    .telefone("51900000000")
+                    .divida(BigDecimal.valueOf(multa))
+                    .build());
+            ultimo = emprestimoRepository.save(Emprestimo.builder()
+                    .usuario(usuario)
+                    .item(item)
+                    .quantidade(1)
+                    .dataEmprestimo(LocalDate.now().minusDays(10))
+                    .dataPrevistaDevolucao(LocalDate.now().minusDays(3))
+                    .status(multa > 0 ? StatusEmprestimo.LATE : StatusEmprestimo.ACTIVE)
+                    .renovacoes(0)
+                    .multa(multa)
+                    .build());
+        }
+        return ultimo;
+    }
+}
@@ -0,0 +1,86 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import com.locadora.api.service.EmprestimoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// O cache de disponibilidade guarda o nome de quem está com o item; alterar o usuário descarta a entrada
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DisponibilidadeUsuarioTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void renomearUsuarioAtualizaOEmprestadoPara() throws Exception {
+        Usuario usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Ana")
+                .email("ana@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+        Item item = itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(3)
+                .emprestados(0)
+                .build());
+        emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+        String url = "/itens/" + item.getId() + "/disponibilidade";
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emprestado_para[0]").value("Ana"));
+
+        mockMvc.perform(put("/usuarios/" + usuario.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nome\":\"Ana Souza\",\"email\":\"ana@email.com\","
+                                + "\"telefone\":\"51900000000\",\"divida\":null}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emprestado_para[0]").value("Ana Souza"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.config.IdempotenciaFilter;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotenciaEmprestimoTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private Usuario usuario;
+    private Item item;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Mobile")
+                .email("mobile@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+        item = itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(5)
+                .emprestados(0)
+                .build());
+    }
+
+    @Test
+    void repeticaoDevolveARespostaOriginalSemNovoEmprestimo() throws Exception {
+        String corpo = corpo(1);
+
+        String primeira = mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String repetida = mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(primeira, repetida);
+        assertEquals(1, emprestimoRepository.count());
+        assertEquals(1, itemRepository.findById(item.getId()).orElseThrow().getEmprestados());
+    }
+
+    @Test
+    void mesmaChaveComOutroCorpoEhRecusada() throws Exception {
+        mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-2")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo(1)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-2")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo(2)))
+                .andExpect(status().isUnprocessableEntity());
+        assertEquals(1, emprestimoRepository.count());
+    }
+
+    @Test
+    void falhaLiberaAChave() throws Exception {
+        mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo(50)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/v1/emprestimos")
+                        .header(IdempotenciaFilter.CABECALHO, "chave-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo(50)))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, emprestimoRepository.count());
+    }
+
+    @Test
+    void requisicoesSimultaneasComAMesmaChaveCriamUmSoEmprestimo() throws Exception {
+        int requisicoes = 8;
+        String corpo = corpo(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requisicoes);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<MvcResult>> tarefas = new ArrayList<>();
+        try {
+            for (int i = 0; i < requisicoes; i++) {
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    return mockMvc.perform(post("/api/v1/emprestimos")
+                                    .header(IdempotenciaFilter.CABECALHO, "chave-4")
+                                    .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                            .andReturn();
+                }));
+            }
+            largada.countDown();
+
+            List<String> respostas = new ArrayList<>();
+            int repetidas = 0;
+            for (Future<MvcResult> tarefa : tarefas) {
+                MvcResult resultado = tarefa.get();
+                assertEquals(200, resultado.getResponse().getStatus());
+                respostas.add(resultado.getResponse().getContentAsString());
+                if ("true".equals(resultado.getResponse().getHeader("Idempotent-Replayed"))) {
+                    repetidas++;
+                }
+            }
+
+            // Uma executou; as demais esperaram por ela (ou chegaram depois) e receberam a mesma resposta
+            assertEquals(requisicoes - 1, repetidas);
+            assertEquals(1, respostas.stream().distinct().count());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, emprestimoRepository.count());
+        assertEquals(1, itemRepository.findById(item.getId()).orElseThrow().getEmprestados());
+    }
+
+    @Test
+    void mesmaChaveDeOutroClienteEhOutraOperacao() throws Exception {
+        for (String endereco : List.of("203.0.113.1", "203.0.113.2")) {
+            mockMvc.perform(post("/api/v1/emprestimos")
+                            .with(request -> {
+                                request.setRemoteAddr(endereco);
+                                return request;
+                            })
+                            .header(IdempotenciaFilter.CABECALHO, "chave-5")
+                            .contentType(MediaType.APPLICATION_JSON).content(corpo(1)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        }
+        assertEquals(2, emprestimoRepository.count());
+    }
+
+    private String corpo(int quantidade) {
+        return "{\"usuarioId\":" + usuario.getId() + ",\"itemId\":" + item.getId()
+                + ",\"quantidade\":" + quantidade
+                + ",\"dataPrevistaDevolucao\":\"" + LocalDate.now().plusDays(7) + "\"}";
+    }
+}
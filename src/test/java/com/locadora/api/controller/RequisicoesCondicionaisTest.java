@@ -0,0 +1,123 @@
+package com.locadora.api.controller;
+
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RequisicoesCondicionaisTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void itemNaoModificadoRespondeSemCarregarAEntidade() throws Exception {
+        Item item = novoItem();
+        String url = "/itens/" + item.getId();
+        String etag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void escritaComVersaoAntigaFalhaComPreconditionFailed() throws Exception {
+        Item item = novoItem();
+        String url = "/itens/" + item.getId();
+        String etag = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String corpo = "{\"nome\":\"Serra\",\"descricao\":\"Serra circular\",\"categoria\":\"Ferramentas\",\"quantidade\":5}";
+
+        String novoEtag = mockMvc.perform(put(url).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, novoEtag);
+
+        mockMvc.perform(put(url).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void etagDaListagemMudaQuandoUmaLinhaMuda() throws Exception {
+        Usuario usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Quiosque")
+                .email("quiosque@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+        String etag = mockMvc.perform(get("/usuarios")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/usuarios").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        Usuario alterado = usuarioRepository.findById(usuario.getId()).orElseThrow();
+        alterado.setTelefone("51911111111");
+        usuarioRepository.save(alterado);
+
+        mockMvc.perform(get("/usuarios").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private Item novoItem() {
+        return itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(3)
+                .emprestados(0)
+                .build());
+    }
+}
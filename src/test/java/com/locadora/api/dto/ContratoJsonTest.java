@@ -0,0 +1,66 @@
+package com.locadora.api.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// JSON exato (nomes, ordem e formato dos campos) das respostas publicadas como records,
+// serializado pelo ObjectMapper configurado pelo Spring Boot
+@JsonTest
+class ContratoJsonTest {
+
+    private static final LocalDate EMPRESTIMO = LocalDate.of(2024, 3, 1);
+    private static final LocalDate PREVISTA = LocalDate.of(2024, 3, 8);
+    private static final LocalDate DEVOLUCAO = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void emprestimoDetalhe() throws Exception {
+        assertJson("{\"id\":7,\"status\":\"ATRASADO\",\"multa\":5.0,\"dataEmprestimo\":\"2024-03-01\","
+                        + "\"dataPrevistaDevolucao\":\"2024-03-08\",\"dataDevolucao\":\"2024-03-10\","
+                        + "\"usuario\":\"Ana\",\"item\":\"Furadeira\"}",
+                new EmprestimoDetalhe(7L, "ATRASADO", 5.0, EMPRESTIMO, PREVISTA, DEVOLUCAO, "Ana", "Furadeira"));
+    }
+
+    @Test
+    void renovacaoEmprestimo() throws Exception {
+        assertJson("{\"id\":7,\"status\":\"ACTIVE\",\"renovacoes\":1,\"novaDataPrevistaDevolucao\":\"2024-03-08\","
+                        + "\"mensagem\":\"Renovação realizada com sucesso.\"}",
+                new RenovacaoEmprestimo(7L, "ACTIVE", 1, PREVISTA, "Renovação realizada com sucesso."));
+    }
+
+    @Test
+    void disponibilidadeResposta() throws Exception {
+        assertJson("{\"item\":\"Furadeira\",\"quantidade_total\":3,\"emprestado_para\":[\"Ana\",\"Bruno\"],"
+                        + "\"empréstimos_ativos\":2,\"disponivel\":1,"
+                        + "\"mensagem\":\"Item disponível para empréstimo\"}",
+                DisponibilidadeResposta.de(new DisponibilidadeItem(7L, "Furadeira", 3, List.of("Ana", "Bruno"), 1)));
+    }
+
+    @Test
+    void disponibilidadeGeralItem() throws Exception {
+        assertJson("{\"id\":7,\"item\":\"Furadeira\",\"quantidade_total\":5,\"emprestados\":2,\"reservados\":1,"
+                        + "\"disponivel\":2}",
+                new DisponibilidadeGeralItem(7L, "Furadeira", 5, 2, 1));
+    }
+
+    @Test
+    void dividaAtiva() throws Exception {
+        assertJson("{\"emprestimoId\":7,\"usuarioId\":3,\"nome\":\"Ana\",\"email\":\"ana@email.com\",\"divida\":5.0,"
+                        + "\"statusEmprestimo\":\"LATE\",\"dataPrevista\":\"2024-03-08\",\"dataDevolucao\":null}",
+                new DividaAtiva(7L, 3L, "Ana", "ana@email.com", 5.0, StatusEmprestimo.LATE, PREVISTA, null));
+    }
+
+    private void assertJson(String esperado, Object resposta) throws Exception {
+        assertEquals(esperado, objectMapper.writeValueAsString(resposta));
+    }
+}
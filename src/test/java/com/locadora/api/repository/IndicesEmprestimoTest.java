@@ -0,0 +1,134 @@
+package com.locadora.api.repository;
+
+import com.locadora.api.metrics.ContadorStatements;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Captura o SQL que o Hibernate gera para cada consulta do EmprestimoRepository (ContadorStatements),
+// roda EXPLAIN sobre ele e garante que o esquema das migrações oferece um índice (sem varredura da tabela).
+@SpringBootTest
+@ActiveProfiles("test")
+class IndicesEmprestimoTest {
+
+    private static final int USUARIOS = 50;
+    private static final int ITENS = 50;
+    private static final int EMPRESTIMOS = 5000;
+
+    // Ids explícitos bem acima dos gerados pelas sequências/identidades usadas nos outros testes
+    private static final long BASE = 1_000_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void popular() {
+        jdbcTemplate.update("DELETE FROM EMPRESTIMO");
+        jdbcTemplate.update("DELETE FROM ITEM");
+        jdbcTemplate.update("DELETE FROM USUARIO");
+
+        jdbcTemplate.update("INSERT INTO USUARIO (id, nome, email, telefone, divida) " +
+                "SELECT " + BASE + " + X, 'Usuário ' || X, 'u' || X || '@email.com', '51900000000', 0 " +
+                "FROM SYSTEM_RANGE(1, " + USUARIOS + ")");
+        jdbcTemplate.update("INSERT INTO ITEM (id, nome, descricao, categoria, quantidade, emprestados) " +
+                "SELECT " + BASE + " + X, 'Item ' || X, 'Descrição', 'Ferramentas', 100, 0 " +
+                "FROM SYSTEM_RANGE(1, " + ITENS + ")");
+        jdbcTemplate.update("INSERT INTO EMPRESTIMO (id, usuario_id, item_id, quantidade, data_emprestimo, " +
+                "data_prevista_devolucao, data_devolucao, renovacoes, status, multa) " +
+                "SELECT " + BASE + " + X, " + BASE + " + MOD(X, " + USUARIOS + ") + 1, " +
+                BASE + " + MOD(X, " + ITENS + ") + 1, 1, " +
+                "DATE '2024-01-01', DATE '2024-01-08', " +
+                "CASE WHEN MOD(X, 20) = 0 THEN NULL ELSE DATE '2024-01-07' END, 0, " +
+                "CASE WHEN MOD(X, 20) = 0 THEN 'ACTIVE' ELSE 'RETURNED' END, " +
+                "CASE WHEN MOD(X, 97) = 0 THEN 5 ELSE 0 END " +
+                "FROM SYSTEM_RANGE(1, " + EMPRESTIMOS + ")");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void findByItemIdEExistsByItemIdUsamIndice() {
+        assertSemVarredura(sqlDe(() -> emprestimoRepository.findByItemId(BASE + 7)), BASE + 7);
+        assertSemVarredura(sqlDe(() -> emprestimoRepository.existsByItemId(BASE + 7)), BASE + 7, 1);
+    }
+
+    @Test
+    void nomesComItemEmAbertoUsamIndiceDeItem() {
+        assertUsa("IDX_EMPRESTIMO_ITEM_ABERTO",
+                sqlDe(() -> emprestimoRepository.findNomesUsuariosComItemEmAberto(BASE + 7)), BASE + 7);
+    }
+
+    @Test
+    void buscarDividasUsaIndiceComposto() {
+        assertUsa("IDX_EMPRESTIMO_USUARIO_STATUS",
+                sqlDe(() -> emprestimoRepository.buscarDividas(BASE + 3, 0,
+                        List.of(StatusEmprestimo.ACTIVE, StatusEmprestimo.LATE), Limit.of(20))),
+                BASE + 3, 0L, "ACTIVE", "LATE", 20);
+    }
+
+    @Test
+    void findByStatusUsaIndice() {
+        assertUsa("IDX_EMPRESTIMO_STATUS",
+                sqlDe(() -> emprestimoRepository.findByStatus(StatusEmprestimo.ACTIVE)), "ACTIVE");
+    }
+
+    @Test
+    void findByMultaGreaterThanUsaIndice() {
+        assertUsa("IDX_EMPRESTIMO_MULTA",
+                sqlDe(() -> emprestimoRepository.findByMultaGreaterThan(0.0)), 0.0);
+    }
+
+    @Test
+    void varreduraDeAtrasosUsaIndiceEmAberto() {
+        LocalDate hoje = LocalDate.of(2024, 2, 1);
+        String sql = sqlDe(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> emprestimoRepository.buscarLoteAtrasados(hoje, 0, 100)));
+        assertUsa("IDX_EMPRESTIMO_EM_ABERTO", sql, hoje, hoje, 0L, 100);
+    }
+
+    // SQL que o Hibernate gerou para a chamada (o primeiro comando sobre EMPRESTIMO)
+    private static String sqlDe(Runnable chamada) {
+        List<String> comandos = ContadorStatements.capturar(chamada);
+        return comandos.stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).contains("emprestimo"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Nenhum SQL sobre EMPRESTIMO capturado: " + comandos));
+    }
+
+    private void assertUsa(String indice, String sql, Object... parametros) {
+        String plano = explicar(sql, parametros);
+        assertTrue(plano.contains(indice), () -> "Esperava " + indice + " no plano de\n" + sql + "\n" + plano);
+    }
+
+    private void assertSemVarredura(String sql, Object... parametros) {
+        String plano = explicar(sql, parametros);
+        assertFalse(plano.contains("tableScan"), () -> "Varredura completa no plano de\n" + sql + "\n" + plano);
+    }
+
+    // Os parâmetros são os da chamada, na ordem em que aparecem no SQL gerado
+    private String explicar(String sql, Object... parametros) {
+        long marcadores = sql.chars().filter(c -> c == '?').count();
+        assertEquals(parametros.length, marcadores, () -> "Parâmetros não batem com o SQL gerado:\n" + sql);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parametros));
+    }
+}
@@ -0,0 +1,132 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.DividaEmprestimo;
+import com.locadora.api.dto.EmprestimoResumo;
+import com.locadora.api.dto.PaginaCursor;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.EmprestimoHistorico;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoHistoricoRepository;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"app.arquivamento.tamanho-lote=1", "app.arquivamento.pausa=0ms"})
+@ActiveProfiles("test")
+class ArquivamentoEmprestimoServiceTest {
+
+    @Autowired
+    private ArquivamentoEmprestimoService arquivamentoService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private EmprestimoHistoricoRepository historicoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario usuario;
+    private Item item;
+
+    @BeforeEach
+    void preparar() {
+        limpar();
+        usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Histórico")
+                .email("historico@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+        item = itemRepository.save(Item.builder()
+                .nome("Betoneira")
+                .descricao("Betoneira 400L")
+                .categoria("Construção")
+                .quantidade(10)
+                .emprestados(0)
+                .build());
+    }
+
+    // O histórico referencia usuário e item: precisa sair antes da limpeza dos outros testes
+    @AfterEach
+    void limpar() {
+        historicoRepository.deleteAllInBatch();
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void moveSoEncerradosAntigosEConsultasEnxergamAsDuasTabelas() {
+        LocalDate hoje = LocalDate.now();
+        Emprestimo devolvido = emprestar();
+        Emprestimo atrasadoQuitado = emprestar();
+        Emprestimo atrasadoComMulta = emprestar();
+        Emprestimo ativo = emprestar();
+        encerrar(devolvido, "RETURNED", 0, hoje.minusDays(200));
+        encerrar(atrasadoQuitado, "LATE", 0, hoje.minusDays(200));
+        encerrar(atrasadoComMulta, "LATE", 5, hoje.minusDays(200));
+
+        assertEquals(2, arquivamentoService.arquivar(hoje));
+        assertEquals(0, arquivamentoService.arquivar(hoje));
+        assertEquals(2, emprestimoRepository.count());
+        assertEquals(List.of(devolvido.getId(), atrasadoQuitado.getId()),
+                historicoRepository.findAll().stream().map(EmprestimoHistorico::getId).sorted().toList());
+
+        // Dívidas: o atrasado arquivado continua aparecendo, intercalado por id com os vivos
+        PaginaCursor<DividaEmprestimo> primeira = emprestimoService.consultarDividasUsuario(usuario.getId(), null, 2);
+        assertEquals(List.of(atrasadoQuitado.getId(), atrasadoComMulta.getId()),
+                primeira.itens().stream().map(DividaEmprestimo::id).toList());
+        PaginaCursor<DividaEmprestimo> segunda = emprestimoService.consultarDividasUsuario(
+                usuario.getId(), primeira.proximoCursor(), 2);
+        assertEquals(List.of(ativo.getId()), segunda.itens().stream().map(DividaEmprestimo::id).toList());
+
+        PaginaCursor<EmprestimoResumo> historico = emprestimoService.historicoUsuario(usuario.getId(), null, null);
+        assertEquals(List.of(devolvido.getId(), atrasadoQuitado.getId(), atrasadoComMulta.getId(), ativo.getId()),
+                historico.itens().stream().map(EmprestimoResumo::id).toList());
+
+        Emprestimo arquivado = emprestimoService.consultarEmprestimo(devolvido.getId());
+        assertEquals(Emprestimo.StatusEmprestimo.RETURNED, arquivado.getStatus());
+        assertEquals("Betoneira", arquivado.getItem().getNome());
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> emprestimoService.devolver(devolvido.getId()));
+        assertEquals(HttpStatus.BAD_REQUEST, erro.getStatusCode());
+    }
+
+    private Emprestimo emprestar() {
+        return emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+    }
+
+    private void encerrar(Emprestimo emprestimo, String status, double multa, LocalDate devolucao) {
+        jdbcTemplate.update("UPDATE EMPRESTIMO SET status = ?, multa = ?, data_devolucao = ? WHERE id = ?",
+                status, multa, devolucao, emprestimo.getId());
+    }
+}
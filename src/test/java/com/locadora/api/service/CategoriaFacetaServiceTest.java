@@ -0,0 +1,182 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.CategoriaFacetaRepository;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CategoriaFacetaServiceTest {
+
+    @Autowired
+    private CategoriaFacetaService categoriaFacetaService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private CategoriaFacetaRepository categoriaFacetaRepository;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        categoriaFacetaService.reconstruir();
+        usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Facetas")
+                .email("facetas@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    @Test
+    void totaisAcompanhamItensEEmprestimos() {
+        Item furadeira = categoriaFacetaService.salvarItem(novoItem("Furadeira", "Ferramentas", 4), null);
+        Item serra = categoriaFacetaService.salvarItem(novoItem("Serra", "Ferramentas", 2), null);
+        categoriaFacetaService.salvarItem(novoItem("Roçadeira", "Jardinagem", 1), null);
+
+        Emprestimo emprestimo = emprestimoService.emprestar(usuario.getId(), furadeira.getId(), 3, LocalDate.now().plusDays(7));
+        emprestimoService.emprestar(usuario.getId(), serra.getId(), 2, LocalDate.now().plusDays(7));
+        emprestimoService.devolver(emprestimo.getId());
+
+        Item alterado = itemRepository.findById(serra.getId()).orElseThrow();
+        CategoriaFacetaService.Contagem antes = CategoriaFacetaService.Contagem.de(alterado);
+        alterado.setCategoria("Jardinagem");
+        categoriaFacetaService.salvarItem(alterado, antes);
+
+        List<FacetaCategoria> incremental = categoriaFacetaService.listar();
+        assertEquals(List.of(
+                new FacetaCategoria("Ferramentas", 1L, 4L, 0L, 4L),
+                new FacetaCategoria("Jardinagem", 2L, 3L, 2L, 1L)), incremental);
+        assertEquals(incremental, categoriaFacetaService.reconstruir());
+    }
+
+    @Test
+    void exclusaoERecategorizacaoBatemComAReconstrucao() {
+        categoriaFacetaService.salvarItem(novoItem("Furadeira", "Ferramentas", 4), null);
+        Item serra = categoriaFacetaService.salvarItem(novoItem("Serra", "Ferramentas", 2), null);
+        Item rocadeira = categoriaFacetaService.salvarItem(novoItem("Roçadeira", "Jardinagem", 1), null);
+        emprestimoService.emprestar(usuario.getId(), serra.getId(), 1, LocalDate.now().plusDays(7));
+
+        categoriaFacetaService.removerItem(itemRepository.findById(rocadeira.getId()).orElseThrow());
+        Item alterado = itemRepository.findById(serra.getId()).orElseThrow();
+        CategoriaFacetaService.Contagem antes = CategoriaFacetaService.Contagem.de(alterado);
+        alterado.setCategoria("Marcenaria");
+        categoriaFacetaService.salvarItem(alterado, antes);
+
+        List<FacetaCategoria> incremental = categoriaFacetaService.listar();
+        assertEquals(List.of(
+                new FacetaCategoria("Ferramentas", 1L, 4L, 0L, 4L),
+                new FacetaCategoria("Marcenaria", 1L, 2L, 1L, 1L)), incremental);
+        assertEquals(incremental, categoriaFacetaService.reconstruir());
+    }
+
+    @Test
+    void reconstrucaoRemoveFatiasSemItens() {
+        Item rocadeira = categoriaFacetaService.salvarItem(novoItem("Roçadeira", "Jardinagem", 1), null);
+        categoriaFacetaService.removerItem(itemRepository.findById(rocadeira.getId()).orElseThrow());
+
+        // O ajuste incremental deixa a fatia zerada (oculta na listagem); a reconstrução a apaga
+        assertTrue(categoriaFacetaRepository.findAll().stream()
+                .anyMatch(f -> f.getCategoria().equals("Jardinagem") && f.getTitulos() == 0));
+        assertEquals(List.of(), categoriaFacetaService.listar());
+
+        categoriaFacetaService.reconstruir();
+        assertTrue(categoriaFacetaRepository.findAll().stream()
+                .noneMatch(f -> f.getCategoria().equals("Jardinagem")));
+    }
+
+    @Test
+    void reconstrucaoConcorrenteComEmprestimosNaoPerdeAjustes() throws Exception {
+        List<Item> itens = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            itens.add(categoriaFacetaService.salvarItem(novoItem("Item " + i, "Ferramentas", 5), null));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (int t = 0; t < 3; t++) {
+                List<Item> proprios = itens.subList(t * 2, t * 2 + 2);
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < 5; i++) {
+                        for (Item item : proprios) {
+                            Emprestimo emprestimo = emprestimoService.emprestar(
+                                    usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+                            emprestimoService.devolver(emprestimo.getId());
+                        }
+                    }
+                    for (Item item : proprios) {
+                        emprestimoService.emprestar(usuario.getId(), item.getId(), 2, LocalDate.now().plusDays(7));
+                    }
+                    return null;
+                }));
+            }
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 10; i++) {
+                    categoriaFacetaService.reconstruir();
+                }
+                return null;
+            }));
+            largada.countDown();
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Seis itens com 2 unidades em aberto cada; os ciclos de empréstimo e devolução se anulam
+        List<FacetaCategoria> incremental = categoriaFacetaService.listar();
+        assertEquals(List.of(new FacetaCategoria("Ferramentas", 8L, 40L, 12L, 28L)), incremental);
+        assertEquals(incremental, categoriaFacetaService.reconstruir());
+    }
+
+    private Item novoItem(String nome, String categoria, int quantidade) {
+        return Item.builder()
+                .nome(nome)
+                .descricao(nome + " para locação")
+                .categoria(categoria)
+                .quantidade(quantidade)
+                .emprestados(0)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.locadora.api.service;
+
+import com.locadora.api.event.ConsumidorEventos;
+import com.locadora.api.event.EventoEmprestimo;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.EventoOutbox.TipoEvento;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.EventoOutboxRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DespachanteEventosTest.ConsumidorTeste.class)
+class DespachanteEventosTest {
+
+    @Autowired
+    private DespachanteEventos despachante;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private Registro registro;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        despachante.despachar();
+        eventoOutboxRepository.deleteAll();
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        registro.recebidos.clear();
+        registro.falharProximaDevolucao.set(false);
+    }
+
+    @Test
+    void entregaEmOrdemPorUsuario() {
+        Usuario usuario = novoUsuario();
+        Item item = novoItem();
+        Emprestimo emprestimo = emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+        emprestimoService.renovar(emprestimo.getId(), 3);
+        emprestimoService.devolver(emprestimo.getId());
+
+        assertEquals(3, despachante.despachar());
+        assertEquals(List.of(TipoEvento.LOAN_CREATED, TipoEvento.LOAN_RENEWED, TipoEvento.LOAN_RETURNED),
+                registro.recebidos.stream().map(EventoEmprestimo::tipo).toList());
+        assertEquals(0, despachante.despachar());
+    }
+
+    @Test
+    void falhaReentregaOEventoSemPularAOrdem() {
+        Usuario usuario = novoUsuario();
+        Item item = novoItem();
+        Emprestimo primeiro = emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+        emprestimoService.devolver(primeiro.getId());
+        Emprestimo segundo = emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+
+        registro.falharProximaDevolucao.set(true);
+        // A devolução falha: o empréstimo seguinte do mesmo usuário não é entregue antes dela
+        assertEquals(1, despachante.despachar());
+        assertEquals(2, despachante.despachar());
+
+        List<Long> emprestimos = registro.recebidos.stream().map(EventoEmprestimo::emprestimoId).toList();
+        assertEquals(List.of(primeiro.getId(), primeiro.getId(), segundo.getId()), emprestimos);
+    }
+
+    @Test
+    void ordemSegueASequenciaDoUsuarioENaoOId() {
+        Usuario usuario = novoUsuario();
+        Item item = novoItem();
+        Emprestimo emprestimo = emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+        emprestimoService.renovar(emprestimo.getId(), 3);
+
+        // Ids alocados em blocos por instâncias diferentes podem inverter a ordem de commit
+        jdbcTemplate.update("UPDATE evento_outbox SET id = id + 1000000 WHERE usuario_id = ? AND tipo = 'LOAN_CREATED'",
+                usuario.getId());
+
+        assertEquals(2, despachante.despachar());
+        assertEquals(List.of(TipoEvento.LOAN_CREATED, TipoEvento.LOAN_RENEWED),
+                registro.recebidos.stream().map(EventoEmprestimo::tipo).toList());
+    }
+
+    @Test
+    void usuarioConcedidoAOutraInstanciaNaoEEntregueAteAValidadeAcabar() {
+        Usuario usuario = novoUsuario();
+        Item item = novoItem();
+        emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+
+        jdbcTemplate.update("UPDATE usuario SET outbox_reserva = 'outra-instancia', outbox_reservado_ate = ? WHERE id = ?",
+                LocalDateTime.now().plusMinutes(5), usuario.getId());
+        assertEquals(0, despachante.despachar());
+        assertEquals(List.of(), registro.recebidos);
+
+        // Instância que caiu sem liberar: a concessão vence e outra assume
+        jdbcTemplate.update("UPDATE usuario SET outbox_reservado_ate = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), usuario.getId());
+        assertEquals(1, despachante.despachar());
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usuario WHERE outbox_reserva IS NOT NULL", Long.class));
+    }
+
+    private Usuario novoUsuario() {
+        return usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Eventos")
+                .email("eventos@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    private Item novoItem() {
+        return itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(10)
+                .emprestados(0)
+                .build());
+    }
+
+    static class Registro {
+        final List<EventoEmprestimo> recebidos = new CopyOnWriteArrayList<>();
+        final AtomicBoolean falharProximaDevolucao = new AtomicBoolean();
+    }
+
+    @TestConfiguration
+    static class ConsumidorTeste {
+
+        @Bean
+        Registro registro() {
+            return new Registro();
+        }
+
+        @Bean
+        ConsumidorEventos consumidorTeste(Registro registro) {
+            return evento -> {
+                if (evento.tipo() == TipoEvento.LOAN_RETURNED && registro.falharProximaDevolucao.getAndSet(false)) {
+                    throw new IllegalStateException("consumidor indisponível");
+                }
+                registro.recebidos.add(evento);
+            };
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.locadora.api.service;
+
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EmprestimoServiceConcorrenciaTest {
+
+    private static final int THREADS = 16;
+    private static final int TENTATIVAS_POR_THREAD = 25;
+    private static final int ESTOQUE = 200;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Teste")
+                .email("cliente@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    @Test
+    void reservaAtomicaNaoEmprestaAlemDoEstoque() throws Exception {
+        Item item = novoItem(ESTOQUE / 2);
+
+        Resultado resultado = executarConcorrente(() ->
+                emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7)));
+
+        Item atualizado = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(ESTOQUE / 2, resultado.sucessos());
+        assertEquals(ESTOQUE / 2, atualizado.getEmprestados());
+        assertEquals(0, atualizado.getDisponivel());
+        assertEquals(ESTOQUE / 2, emprestimoRepository.count());
+    }
+
+    @Test
+    void reservaAtomicaComEstoqueSuficienteAtendeTodas() throws Exception {
+        Item item = novoItem(THREADS * TENTATIVAS_POR_THREAD);
+
+        Resultado resultado = executarConcorrente(() ->
+                emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7)));
+
+        Item atualizado = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(THREADS * TENTATIVAS_POR_THREAD, resultado.sucessos());
+        assertEquals(0, resultado.falhas());
+        assertEquals(THREADS * TENTATIVAS_POR_THREAD, atualizado.getEmprestados());
+        assertEquals(0, atualizado.getDisponivel());
+    }
+
+    private Item novoItem(int quantidade) {
+        return itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(quantidade)
+                .emprestados(0)
+                .build());
+    }
+
+    private Resultado executarConcorrente(Runnable operacao) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger();
+        AtomicInteger falhas = new AtomicInteger();
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    try {
+                        operacao.run();
+                        sucessos.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        falhas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+
+        return new Resultado(sucessos.get(), falhas.get());
+    }
+
+    private record Resultado(int sucessos, int falhas) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.FiltroExportacao;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportacaoEmprestimoServiceTest {
+
+    private static final int EMPRESTIMOS = 1_000_000;
+    private static final int EMPRESTIMOS_MENOR = 100_000;
+    private static final int AMOSTRA = 20_000;
+    private static final long CRESCIMENTO_MAXIMO = 32L * 1024 * 1024;
+    // Diferença aceita entre o pico com 1M e com 100k linhas (ruído do GC, não proporcional às linhas)
+    private static final long DIFERENCA_MAXIMA = 8L * 1024 * 1024;
+
+    // Ids explícitos bem acima dos gerados pelas sequências usadas nos outros testes
+    private static final long BASE = 2_000_000L;
+
+    @Autowired
+    private ExportacaoEmprestimoService exportacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        limpar();
+    }
+
+    private void popular(int emprestimos) {
+        popularCadastros();
+        popularEmprestimos(1, emprestimos);
+    }
+
+    private void popularCadastros() {
+        jdbcTemplate.update("INSERT INTO USUARIO (id, nome, email, telefone, divida) " +
+                "SELECT " + BASE + " + X, 'Usuário ' || X, 'u' || X || '@email.com', '51900000000', 0 " +
+                "FROM SYSTEM_RANGE(1, 100)");
+        jdbcTemplate.update("INSERT INTO ITEM (id, nome, descricao, categoria, quantidade, emprestados) " +
+                "SELECT " + BASE + " + X, 'Item, ' || X, 'Descrição', 'Ferramentas', 100, 0 " +
+                "FROM SYSTEM_RANGE(1, 100)");
+    }
+
+    private void popularEmprestimos(int de, int ate) {
+        jdbcTemplate.update("INSERT INTO EMPRESTIMO (id, usuario_id, item_id, quantidade, data_emprestimo, " +
+                "data_prevista_devolucao, data_devolucao, renovacoes, status, multa) " +
+                "SELECT " + BASE + " + X, " + BASE + " + MOD(X, 100) + 1, " + BASE + " + MOD(X, 100) + 1, 1, " +
+                "DATEADD(DAY, MOD(X, 365), DATE '2024-01-01'), DATEADD(DAY, MOD(X, 365) + 7, DATE '2024-01-01'), " +
+                "CASE WHEN MOD(X, 20) = 0 THEN NULL ELSE DATEADD(DAY, MOD(X, 365) + 6, DATE '2024-01-01') END, 0, " +
+                "CASE WHEN MOD(X, 20) = 0 THEN 'ACTIVE' ELSE 'RETURNED' END, 0 " +
+                "FROM SYSTEM_RANGE(" + de + ", " + ate + ")");
+    }
+
+    @AfterEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM EMPRESTIMO");
+        jdbcTemplate.update("DELETE FROM ITEM WHERE id > " + BASE);
+        jdbcTemplate.update("DELETE FROM USUARIO WHERE id > " + BASE);
+    }
+
+    @Test
+    void csvAplicaFiltrosEEscapaTexto() throws Exception {
+        popular(10_000);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        FiltroExportacao filtro = new FiltroExportacao(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                StatusEmprestimo.ACTIVE, BASE + 1);
+
+        long total = exportacaoService.exportar(filtro, ExportacaoEmprestimoService.Formato.CSV, saida);
+
+        // usuário BASE+1 = MOD(X, 100) = 0 (sempre ativo, pois MOD(X, 20) = 0); janeiro = MOD(X, 365) <= 30
+        long esperado = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SYSTEM_RANGE(1, 10000) " +
+                "WHERE MOD(X, 100) = 0 AND MOD(X, 365) <= 30", Long.class);
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(esperado, total);
+        assertEquals(total + 1, linhas.length);
+        assertTrue(linhas[0].startsWith("id,usuarioId,usuario,itemId,item,"));
+        assertTrue(total > 0);
+        assertTrue(linhas[1].contains(",\"Item, 1\","));
+        assertTrue(linhas[1].endsWith(",ACTIVE,0.0"));
+    }
+
+    // Fora da suíte padrão (popula 1M linhas): mvn test -Plentos
+    @Test
+    @Tag("lento")
+    void heapDaExportacaoNaoCresceComONumeroDeLinhas() throws Exception {
+        popular(EMPRESTIMOS_MENOR);
+        long crescimentoMenor = crescimentoDoHeap(EMPRESTIMOS_MENOR);
+
+        popularEmprestimos(EMPRESTIMOS_MENOR + 1, EMPRESTIMOS);
+        long crescimento = crescimentoDoHeap(EMPRESTIMOS);
+
+        assertTrue(crescimento < CRESCIMENTO_MAXIMO,
+                "Heap cresceu " + crescimento / 1024 + " KB exportando " + EMPRESTIMOS + " linhas");
+        assertTrue(crescimento - crescimentoMenor < DIFERENCA_MAXIMA,
+                "Heap cresceu " + crescimentoMenor / 1024 + " KB com " + EMPRESTIMOS_MENOR + " linhas e "
+                        + crescimento / 1024 + " KB com " + EMPRESTIMOS);
+    }
+
+    // Pico do heap ocupado durante a exportação, medido contra o heap antes de o streaming começar
+    private long crescimentoDoHeap(int emprestimos) throws Exception {
+        MedidorHeap saida = new MedidorHeap();
+        long base = MedidorHeap.heapOcupado();
+
+        long total = exportacaoService.exportar(new FiltroExportacao(null, null, null, null),
+                ExportacaoEmprestimoService.Formato.NDJSON, saida);
+
+        assertEquals(emprestimos, total);
+        assertEquals(emprestimos, saida.linhas);
+        assertEquals(emprestimos / AMOSTRA, saida.amostras.size());
+        long pico = saida.amostras.stream().mapToLong(Long::longValue).max().orElseThrow();
+        return Math.max(0, pico - base);
+    }
+
+    // Descarta a saída e mede o heap ocupado (após GC) a cada AMOSTRA linhas escritas
+    private static final class MedidorHeap extends OutputStream {
+        long linhas;
+        final List<Long> amostras = new ArrayList<>();
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++linhas % AMOSTRA == 0) {
+                amostras.add(heapOcupado());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        private static long heapOcupado() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.dto.ResultadoImportacao;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest(properties = {"app.importacao.tamanho-lote=2", "app.importacao.maximo-erros=2",
+        "app.importacao.tamanho-maximo-linha=200"})
+@ActiveProfiles("test")
+class ImportacaoItemServiceTest {
+
+    @Autowired
+    private ImportacaoItemService importacaoItemService;
+
+    @Autowired
+    private CategoriaFacetaService categoriaFacetaService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoriaFacetaService.reconstruir();
+    }
+
+    @Test
+    void csvGravaLinhasValidasEmLotesEReportaErrosPorLinha() {
+        String csv = """
+                categoria,nome,descricao,quantidade
+                Ferramentas,Furadeira,"Furadeira elétrica, 500W",4
+                Ferramentas,Serra,,2
+                Jardinagem,Roçadeira,Roçadeira a gasolina,1
+
+                Jardinagem,Cortador,Cortador de grama,dois
+                Ferramentas,Lixadeira,Lixadeira orbital,3
+                ,,,
+                Ferramentas,Esmerilhadeira,Esmerilhadeira angular,1
+                """;
+
+        ResultadoImportacao resultado = importar(csv, ImportacaoItemService.Formato.CSV);
+
+        assertEquals(7, resultado.linhasLidas());
+        assertEquals(4, resultado.importados());
+        assertEquals(3, resultado.rejeitados());
+        assertEquals(List.of(
+                new ResultadoImportacao.ErroLinha(3, List.of("O campo 'descricao' é obrigatório.")),
+                new ResultadoImportacao.ErroLinha(6, List.of("O campo 'quantidade' deve ser um número inteiro."))),
+                resultado.erros());
+        assertEquals(1, resultado.errosOmitidos());
+
+        assertEquals(4, itemRepository.count());
+        assertEquals("Furadeira elétrica, 500W", itemRepository.findAll().stream()
+                .filter(item -> item.getNome().equals("Furadeira")).findFirst().orElseThrow().getDescricao());
+
+        List<FacetaCategoria> incremental = categoriaFacetaService.listar();
+        assertEquals(List.of(
+                new FacetaCategoria("Ferramentas", 3L, 8L, 0L, 8L),
+                new FacetaCategoria("Jardinagem", 1L, 1L, 0L, 1L)), incremental);
+        assertEquals(incremental, categoriaFacetaService.reconstruir());
+    }
+
+    @Test
+    void ndjsonIgnoraIdEnviadoESempreCriaItemNovo() {
+        String ndjson = """
+                {"id": 999999, "nome": "Betoneira", "descricao": "Betoneira 400L", "categoria": "Construção", "quantidade": 2}
+                {"nome": "Andaime", "categoria": "Construção", "quantidade": 5}
+                {"nome": "Martelete"
+                """;
+
+        ResultadoImportacao resultado = importar(ndjson, ImportacaoItemService.Formato.NDJSON);
+
+        assertEquals(3, resultado.linhasLidas());
+        assertEquals(1, resultado.importados());
+        assertEquals(List.of(
+                new ResultadoImportacao.ErroLinha(2, List.of("O campo 'descricao' é obrigatório.")),
+                new ResultadoImportacao.ErroLinha(3, List.of("JSON inválido na linha."))), resultado.erros());
+        assertEquals(1, itemRepository.count());
+        assertFalse(itemRepository.existsById(999999L));
+    }
+
+    @Test
+    void linhaAcimaDoLimiteEhRejeitadaEAsSeguintesContinuam() {
+        String ndjson = "{\"nome\": \"Betoneira\", \"descricao\": \"Betoneira 400L\", \"categoria\": \"Construção\", "
+                + "\"quantidade\": 2}\r\n"
+                + "{\"nome\": \"Andaime\", \"descricao\": \"" + "x".repeat(100_000) + "\"}\r\n"
+                + "{\"nome\": \"Martelete\", \"descricao\": \"Martelete SDS\", \"categoria\": \"Construção\", "
+                + "\"quantidade\": 1}";
+
+        ResultadoImportacao resultado = importar(ndjson, ImportacaoItemService.Formato.NDJSON);
+
+        assertEquals(3, resultado.linhasLidas());
+        assertEquals(2, resultado.importados());
+        assertEquals(List.of(new ResultadoImportacao.ErroLinha(2, List.of("Linha excede 200 caracteres."))),
+                resultado.erros());
+        assertEquals(2, itemRepository.count());
+    }
+
+    private ResultadoImportacao importar(String conteudo, ImportacaoItemService.Formato formato) {
+        return importacaoItemService.importar(
+                new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8)), formato);
+    }
+}
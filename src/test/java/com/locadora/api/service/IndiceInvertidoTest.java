@@ -0,0 +1,48 @@
+package com.locadora.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndiceInvertidoTest {
+
+    @Test
+    void buscaSemAcentoEPorPrefixo() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.indexar(1, "Máquina de Cortar Grama", "Jardinagem", "Equipamento elétrico", 2);
+        indice.indexar(2, "Furadeira", "Ferramentas", "Furadeira elétrica de impacto", 1);
+
+        assertArrayEquals(new long[]{1}, indice.buscar("maquina", false, 0, 10).ids());
+        assertArrayEquals(new long[]{1}, indice.buscar("MÁQ", false, 0, 10).ids());
+        assertEquals(2, indice.buscar("eletr", false, 0, 10).total());
+        assertEquals(0, indice.buscar("furadeira jardim", false, 0, 10).total());
+    }
+
+    @Test
+    void nomePesaMaisQueDescricao() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.indexar(1, "Kit de ferramentas", "Ferramentas", "Inclui uma serra manual", 1);
+        indice.indexar(2, "Serra circular", "Ferramentas", "Serra elétrica", 1);
+
+        assertArrayEquals(new long[]{2, 1}, indice.buscar("serra", false, 0, 10).ids());
+        assertArrayEquals(new long[]{1}, indice.buscar("serra", false, 1, 10).ids());
+    }
+
+    @Test
+    void filtraIndisponiveisEAplicaAlteracoes() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.indexar(1, "Betoneira", "Construção", "Betoneira 400 litros", 0);
+        indice.indexar(2, "Betoneira pequena", "Construção", "Betoneira 150 litros", 3);
+
+        assertArrayEquals(new long[]{2}, indice.buscar("betoneira", true, 0, 10).ids());
+
+        indice.indexar(1, "Betoneira", "Construção", "Betoneira 400 litros", 1);
+        indice.remover(2);
+        assertArrayEquals(new long[]{1}, indice.buscar("betoneira", true, 0, 10).ids());
+
+        indice.compactar();
+        assertEquals(0, indice.inativos());
+        assertArrayEquals(new long[]{1}, indice.buscar("constru", false, 0, 10).ids());
+    }
+}
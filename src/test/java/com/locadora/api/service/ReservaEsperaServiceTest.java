@@ -0,0 +1,275 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.FacetaCategoria;
+import com.locadora.api.dto.ReservaEsperaDetalhe;
+import com.locadora.api.metrics.ContadorStatements;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.ReservaEspera;
+import com.locadora.api.model.ReservaEspera.StatusReserva;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.ReservaEsperaRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.reservas.janela=1h")
+@ActiveProfiles("test")
+class ReservaEsperaServiceTest {
+
+    @Autowired
+    private ReservaEsperaService reservaService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private CategoriaFacetaService categoriaFacetaService;
+
+    @Autowired
+    private ReservaEsperaRepository reservaRepository;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        limpar();
+    }
+
+    @AfterEach
+    void limpar() {
+        reservaRepository.deleteAllInBatch();
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        categoriaFacetaService.reconstruir();
+    }
+
+    @Test
+    void devolucaoSeparaParaACabecaDaFilaQueEmprestaAsUnidades() {
+        Usuario ana = novoUsuario("ana");
+        Usuario bruno = novoUsuario("bruno");
+        Usuario carla = novoUsuario("carla");
+        Item item = novoItem(1);
+        Emprestimo emprestimo = emprestar(ana, item);
+
+        ReservaEsperaDetalhe primeira = reservaService.entrar(bruno.getId(), item.getId(), 1);
+        ReservaEsperaDetalhe segunda = reservaService.entrar(carla.getId(), item.getId(), 1);
+        assertEquals(1L, primeira.posicao());
+        assertEquals(2L, segunda.posicao());
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> reservaService.entrar(bruno.getId(), item.getId(), 1)).getStatusCode());
+
+        emprestimoService.devolver(emprestimo.getId());
+
+        ReservaEsperaDetalhe separada = reservaService.consultar(primeira.id());
+        assertEquals("SEPARADA", separada.status());
+        assertNull(separada.posicao());
+        assertEquals(1L, reservaService.consultar(segunda.id()).posicao());
+        Item depois = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(1, depois.getReservados());
+        assertEquals(0, depois.getDisponivel());
+        assertEquals(0L, faceta().disponiveis());
+
+        // A unidade separada só sai para quem está na cabeça da fila
+        assertThrows(ResponseStatusException.class, () -> emprestar(carla, item));
+        emprestar(bruno, item);
+
+        assertEquals("ATENDIDA", reservaService.consultar(primeira.id()).status());
+        Item emprestado = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(0, emprestado.getReservados());
+        assertEquals(1, emprestado.getEmprestados());
+        assertEquals(1L, faceta().emprestadas());
+    }
+
+    @Test
+    void janelaVencidaPassaAsUnidadesParaOProximo() {
+        Usuario ana = novoUsuario("ana");
+        Usuario bruno = novoUsuario("bruno");
+        Usuario carla = novoUsuario("carla");
+        Item item = novoItem(1);
+        Emprestimo emprestimo = emprestar(ana, item);
+        ReservaEsperaDetalhe primeira = reservaService.entrar(bruno.getId(), item.getId(), 1);
+        ReservaEsperaDetalhe segunda = reservaService.entrar(carla.getId(), item.getId(), 1);
+        emprestimoService.devolver(emprestimo.getId());
+
+        assertEquals(0, reservaService.expirar(LocalDateTime.now()));
+        assertEquals(1, reservaService.expirar(LocalDateTime.now().plusHours(2)));
+
+        assertEquals("EXPIRADA", reservaService.consultar(primeira.id()).status());
+        assertEquals("SEPARADA", reservaService.consultar(segunda.id()).status());
+        assertEquals(1, itemRepository.findById(item.getId()).orElseThrow().getReservados());
+
+        // Cancelar a separada devolve a unidade ao estoque (fila vazia)
+        reservaService.cancelar(segunda.id());
+        Item depois = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(0, depois.getReservados());
+        assertEquals(1, depois.getDisponivel());
+        assertEquals(1L, faceta().disponiveis());
+    }
+
+    @Test
+    void devolucoesEEntradasConcorrentesNaoSeparamAlemDoEstoque() throws Exception {
+        int unidades = 8;
+        Item item = novoItem(unidades);
+        Usuario dono = novoUsuario("dono");
+        List<Emprestimo> emprestimos = new ArrayList<>();
+        for (int i = 0; i < unidades; i++) {
+            emprestimos.add(emprestar(dono, item));
+        }
+        List<Usuario> fila = new ArrayList<>();
+        for (int i = 0; i < unidades; i++) {
+            fila.add(novoUsuario("fila" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2 * unidades);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (int i = 0; i < unidades; i++) {
+                Long emprestimoId = emprestimos.get(i).getId();
+                Long usuarioId = fila.get(i).getId();
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    return emprestimoService.devolver(emprestimoId);
+                }));
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    try {
+                        return reservaService.entrar(usuarioId, item.getId(), 1);
+                    } catch (ResponseStatusException e) {
+                        // Chegou depois da devolução e encontrou unidade livre sem fila
+                        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+                        return null;
+                    }
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Item depois = itemRepository.findById(item.getId()).orElseThrow();
+        List<ReservaEspera> reservas = reservaRepository.findAll();
+        long separadas = reservas.stream().filter(r -> r.getStatus() == StatusReserva.SEPARADA).count();
+        long aguardando = reservas.stream().filter(r -> r.getStatus() == StatusReserva.AGUARDANDO).count();
+        assertEquals(0, depois.getEmprestados());
+        assertEquals(separadas, depois.getReservados().longValue());
+        assertEquals(unidades, depois.getReservados() + depois.getDisponivel());
+        // Ninguém fica aguardando com unidade livre
+        assertTrue(aguardando == 0 || depois.getDisponivel() == 0);
+        assertEquals(depois.getDisponivel().longValue(), faceta().disponiveis());
+    }
+
+    @Test
+    void filaSegueAHoraDeChegadaENaoOId() {
+        Usuario ana = novoUsuario("ana");
+        Usuario bruno = novoUsuario("bruno");
+        Usuario carla = novoUsuario("carla");
+        Item item = novoItem(1);
+        Emprestimo emprestimo = emprestar(ana, item);
+        ReservaEsperaDetalhe primeira = reservaService.entrar(bruno.getId(), item.getId(), 1);
+        ReservaEsperaDetalhe segunda = reservaService.entrar(carla.getId(), item.getId(), 1);
+
+        // Id menor com chegada posterior (ids alocados fora de ordem por outra instância)
+        jdbcTemplate.update("UPDATE reserva_espera SET criada_em = DATEADD('SECOND', 1, " +
+                "(SELECT criada_em FROM reserva_espera WHERE id = ?)) WHERE id = ?", segunda.id(), primeira.id());
+        assertEquals(1L, reservaService.consultar(segunda.id()).posicao());
+        assertEquals(2L, reservaService.consultar(primeira.id()).posicao());
+
+        emprestimoService.devolver(emprestimo.getId());
+
+        assertEquals("SEPARADA", reservaService.consultar(segunda.id()).status());
+        assertEquals(1L, reservaService.consultar(primeira.id()).posicao());
+    }
+
+    @Test
+    void soEmprestimoComUnidadesSeparadasBloqueiaOItem() {
+        Usuario ana = novoUsuario("ana");
+        Usuario bruno = novoUsuario("bruno");
+        Item item = novoItem(1);
+
+        List<String> semReserva = ContadorStatements.capturar(() -> emprestar(ana, item));
+        assertTrue(semReserva.stream().noneMatch(ReservaEsperaServiceTest::bloqueia), String.join("\n", semReserva));
+
+        Emprestimo emprestimo = emprestimoRepository.findAll().get(0);
+        ReservaEsperaDetalhe reserva = reservaService.entrar(bruno.getId(), item.getId(), 1);
+        emprestimoService.devolver(emprestimo.getId());
+        assertEquals("SEPARADA", reservaService.consultar(reserva.id()).status());
+
+        List<String> comReserva = ContadorStatements.capturar(() -> emprestar(bruno, item));
+        assertTrue(comReserva.stream().anyMatch(ReservaEsperaServiceTest::bloqueia), String.join("\n", comReserva));
+        assertEquals("ATENDIDA", reservaService.consultar(reserva.id()).status());
+    }
+
+    private static boolean bloqueia(String sql) {
+        return sql.toLowerCase().contains("for update");
+    }
+
+    private FacetaCategoria faceta() {
+        return categoriaFacetaService.listar().stream()
+                .filter(f -> f.categoria().equals("Jardinagem"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Emprestimo emprestar(Usuario usuario, Item item) {
+        return emprestimoService.emprestar(usuario.getId(), item.getId(), 1, LocalDate.now().plusDays(7));
+    }
+
+    private Usuario novoUsuario(String nome) {
+        return usuarioRepository.save(Usuario.builder()
+                .nome(nome)
+                .email(nome + "@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    private Item novoItem(int quantidade) {
+        return categoriaFacetaService.salvarItem(Item.builder()
+                .nome("Cortador de grama")
+                .descricao("Cortador elétrico")
+                .categoria("Jardinagem")
+                .quantidade(quantidade)
+                .emprestados(0)
+                .build(), null);
+    }
+}
@@ -0,0 +1,191 @@
+package com.locadora.api.service;
+
+import com.locadora.api.dto.EmprestimoRequest;
+import com.locadora.api.dto.ReceitaMultasMes;
+import com.locadora.api.dto.RelatorioCategoria;
+import com.locadora.api.dto.RelatorioItem;
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RollupEmprestimoServiceTest {
+
+    @Autowired
+    private RollupEmprestimoService rollupService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM ROLLUP_ITEM_DIA");
+        jdbcTemplate.update("DELETE FROM ROLLUP_CATEGORIA_DIA");
+    }
+
+    @Test
+    void totaisIncrementaisBatemComAReconstrucao() {
+        Usuario ana = novoUsuario("ana@email.com");
+        Usuario bruno = novoUsuario("bruno@email.com");
+        Item furadeira = itemRepository.save(novoItem("Furadeira", "Ferramentas"));
+        Item rocadeira = itemRepository.save(novoItem("Roçadeira", "Jardinagem"));
+        LocalDate hoje = LocalDate.now();
+
+        Emprestimo renovado = emprestimoService.emprestar(ana.getId(), furadeira.getId(), 2, hoje.plusDays(7));
+        emprestimoService.emprestarEmLote(List.of(
+                linhaLote(ana.getId(), furadeira.getId(), hoje.plusDays(7)),
+                linhaLote(ana.getId(), furadeira.getId(), hoje.plusDays(7))));
+        emprestimoService.renovar(renovado.getId(), 7);
+        Emprestimo atrasado = emprestimoService.emprestar(bruno.getId(), rocadeira.getId(), 1, hoje.minusDays(3));
+        emprestimoService.devolver(atrasado.getId());
+
+        List<RelatorioCategoria> categorias = rollupService.totaisPorCategoria(hoje, hoje);
+        assertEquals(List.of(
+                new RelatorioCategoria("Ferramentas", 3L, 4L, 1L, 0L, 0L, 0.0),
+                new RelatorioCategoria("Jardinagem", 1L, 1L, 0L, 1L, 1L, 7.5)), categorias);
+        assertEquals(1.0, categorias.get(1).getTaxaAtraso());
+
+        List<RelatorioItem> itens = rollupService.totaisPorItem(hoje, hoje, null);
+        assertEquals(furadeira.getId(), itens.get(0).itemId());
+        List<ReceitaMultasMes> multas = rollupService.multasPorMes(hoje.withDayOfMonth(1), hoje);
+        assertEquals(List.of(new ReceitaMultasMes(hoje.getYear(), hoje.getMonthValue(), 1L, 7.5)), multas);
+
+        RollupEmprestimoService.Reconstrucao reconstrucao = rollupService.reconstruir(null, null);
+        assertEquals(hoje, reconstrucao.de());
+        assertEquals(2, reconstrucao.linhasItem());
+
+        assertEquals(categorias, rollupService.totaisPorCategoria(hoje, hoje));
+        assertEquals(itens, rollupService.totaisPorItem(hoje, hoje, null));
+        assertEquals(multas, rollupService.multasPorMes(hoje.withDayOfMonth(1), hoje));
+    }
+
+    @Test
+    void quitacaoNaoApagaAReceitaDeMultasNaReconstrucao() {
+        Usuario ana = novoUsuario("ana@email.com");
+        Item furadeira = itemRepository.save(novoItem("Furadeira", "Ferramentas"));
+        LocalDate hoje = LocalDate.now();
+        Emprestimo atrasado = emprestimoService.emprestar(ana.getId(), furadeira.getId(), 1, hoje.minusDays(2));
+        emprestimoService.devolver(atrasado.getId());
+
+        usuarioService.quitarDividas(ana.getId());
+        assertEquals(0.0, emprestimoRepository.findById(atrasado.getId()).orElseThrow().getMulta());
+
+        List<ReceitaMultasMes> esperado = List.of(new ReceitaMultasMes(hoje.getYear(), hoje.getMonthValue(), 1L, 5.0));
+        assertEquals(esperado, rollupService.multasPorMes(hoje.withDayOfMonth(1), hoje));
+        rollupService.reconstruir(null, null);
+        assertEquals(esperado, rollupService.multasPorMes(hoje.withDayOfMonth(1), hoje));
+    }
+
+    @Test
+    void reconstrucaoConcorrenteComMovimentoNaoPerdeNemDuplicaAjustes() throws Exception {
+        Usuario ana = novoUsuario("ana@email.com");
+        List<Item> itens = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            itens.add(itemRepository.save(novoItem("Item " + i, "Ferramentas")));
+        }
+        LocalDate hoje = LocalDate.now();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (Item item : itens) {
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < 5; i++) {
+                        Emprestimo emprestimo = emprestimoService.emprestar(
+                                ana.getId(), item.getId(), 2, hoje.plusDays(7));
+                        emprestimoService.renovar(emprestimo.getId(), 7);
+                        emprestimoService.devolver(emprestimo.getId());
+                    }
+                    return null;
+                }));
+            }
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 10; i++) {
+                    rollupService.reconstruir(null, null);
+                }
+                return null;
+            }));
+            largada.countDown();
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<RelatorioCategoria> esperado = List.of(new RelatorioCategoria("Ferramentas", 15L, 30L, 15L, 15L, 0L, 0.0));
+        assertEquals(esperado, rollupService.totaisPorCategoria(hoje, hoje));
+        rollupService.reconstruir(null, null);
+        assertEquals(esperado, rollupService.totaisPorCategoria(hoje, hoje));
+    }
+
+    private Usuario novoUsuario(String email) {
+        return usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Relatórios")
+                .email(email)
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+    }
+
+    private Item novoItem(String nome, String categoria) {
+        return Item.builder()
+                .nome(nome)
+                .descricao(nome)
+                .categoria(categoria)
+                .quantidade(10)
+                .emprestados(0)
+                .build();
+    }
+
+    private EmprestimoRequest linhaLote(Long usuarioId, Long itemId, LocalDate prevista) {
+        EmprestimoRequest request = new EmprestimoRequest();
+        request.setUsuarioId(usuarioId);
+        request.setItemId(itemId);
+        request.setQuantidade(1);
+        request.setDataPrevistaDevolucao(prevista.toString());
+        return request;
+    }
+}
@@ -0,0 +1,209 @@
+package com.locadora.api.service;
+
+import com.locadora.api.model.Emprestimo;
+import com.locadora.api.model.Emprestimo.StatusEmprestimo;
+import com.locadora.api.model.Item;
+import com.locadora.api.model.Usuario;
+import com.locadora.api.repository.EmprestimoRepository;
+import com.locadora.api.repository.EventoOutboxRepository;
+import com.locadora.api.repository.ItemRepository;
+import com.locadora.api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class VarreduraAtrasoServiceTest {
+
+    private static final double MULTA_DIARIA = 2.5;
+
+    @Autowired
+    private VarreduraAtrasoService varreduraService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate hoje = LocalDate.now();
+    private Usuario usuario;
+    private Item item;
+
+    @BeforeEach
+    void preparar() {
+        eventoOutboxRepository.deleteAllInBatch();
+        emprestimoRepository.deleteAll();
+        itemRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        usuario = usuarioRepository.save(Usuario.builder()
+                .nome("Cliente Atrasado")
+                .email("atrasado@email.com")
+                .telefone("51900000000")
+                .divida(BigDecimal.ZERO)
+                .build());
+        item = itemRepository.save(Item.builder()
+                .nome("Furadeira")
+                .descricao("Furadeira elétrica")
+                .categoria("Ferramentas")
+                .quantidade(10)
+                .emprestados(0)
+                .build());
+    }
+
+    @Test
+    void segundaVarreduraNoMesmoDiaNaoCobraDeNovo() {
+        atrasados(3);
+
+        assertEquals(3, varreduraService.varrer(hoje));
+        assertEquals(0, varreduraService.varrer(hoje));
+
+        assertDivida(3 * 2 * MULTA_DIARIA);
+        emprestimoRepository.findAll().forEach(e -> {
+            assertEquals(StatusEmprestimo.LATE, e.getStatus());
+            assertEquals(2 * MULTA_DIARIA, e.getMulta());
+            assertEquals(hoje, e.getMultaCalculadaEm());
+        });
+    }
+
+    @Test
+    void varreduraInterrompidaRetomaSemDuplicarMultas() {
+        atrasados(5);
+        // Falha no segundo lote: o primeiro já foi confirmado, o segundo é desfeito
+        AtomicInteger lotes = new AtomicInteger();
+        EventoOutboxRepository falhaNoSegundoLote = proxy(EventoOutboxRepository.class, eventoOutboxRepository,
+                (nome, resultado) -> {
+                    if (nome.equals("registrarMultasLote") && lotes.incrementAndGet() == 2) {
+                        throw new IllegalStateException("queda simulada");
+                    }
+                });
+        VarreduraAtrasoService interrompida = new VarreduraAtrasoService(
+                emprestimoRepository, falhaNoSegundoLote, transactionManager, MULTA_DIARIA, 2);
+
+        assertThrows(IllegalStateException.class, () -> interrompida.varrer(hoje));
+        assertDivida(2 * 2 * MULTA_DIARIA);
+
+        assertEquals(3, varreduraService.varrer(hoje));
+        assertDivida(5 * 2 * MULTA_DIARIA);
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM evento_outbox WHERE tipo = 'FINE_ACCRUED'", Integer.class));
+    }
+
+    @Test
+    void lotesRespeitamOTamanhoConfigurado() {
+        atrasados(5);
+        List<Integer> tamanhos = new ArrayList<>();
+        EmprestimoRepository contador = proxy(EmprestimoRepository.class, emprestimoRepository,
+                (nome, resultado) -> {
+                    if (nome.equals("buscarLoteAtrasados")) {
+                        tamanhos.add(((List<?>) resultado).size());
+                    }
+                });
+        VarreduraAtrasoService varredura = new VarreduraAtrasoService(
+                contador, eventoOutboxRepository, transactionManager, MULTA_DIARIA, 2);
+
+        assertEquals(5, varredura.varrer(hoje));
+        assertEquals(List.of(2, 2, 1, 0), tamanhos);
+        assertDivida(5 * 2 * MULTA_DIARIA);
+    }
+
+    @Test
+    void devolucaoDuranteAVarreduraEsperaEContaAMultaUmaVez() throws Exception {
+        Long id = atrasados(1).get(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Emprestimo> devolucao = new TransactionTemplate(transactionManager).execute(status -> {
+                // Mesmos passos de um lote da varredura, com a devolução chegando no meio
+                List<Long> ids = emprestimoRepository.buscarLoteAtrasados(hoje, 0, 10);
+                Future<Emprestimo> tarefa = executor.submit(() -> emprestimoService.devolver(id));
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertFalse(tarefa.isDone());
+                emprestimoRepository.acrescentarDividaLote(ids, hoje, MULTA_DIARIA);
+                emprestimoRepository.aplicarMultaLote(ids, hoje, MULTA_DIARIA);
+                return tarefa;
+            });
+
+            Emprestimo devolvido = devolucao.get();
+            assertEquals(2 * MULTA_DIARIA, devolvido.getMulta());
+            assertTrue(devolvido.getDataDevolucao() != null);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertDivida(2 * MULTA_DIARIA);
+        assertEquals(0, itemRepository.findById(item.getId()).orElseThrow().getEmprestados());
+    }
+
+    private List<Long> atrasados(int quantidade) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            ids.add(emprestimoService.emprestar(usuario.getId(), item.getId(), 1, hoje.minusDays(2)).getId());
+        }
+        return ids;
+    }
+
+    private void assertDivida(double esperada) {
+        BigDecimal divida = usuarioRepository.findById(usuario.getId()).orElseThrow().getDivida();
+        assertEquals(0, BigDecimal.valueOf(esperada).compareTo(divida), "dívida " + divida);
+    }
+
+    // Repassa as chamadas ao repositório real; 'observar' vê o nome do método e o resultado (ou lança)
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, T real, Observador observar) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, metodo, args) -> {
+            Object resultado;
+            try {
+                resultado = metodo.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            observar.chamada(metodo.getName(), resultado);
+            return resultado;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Observador {
+        void chamada(String metodo, Object resultado);
+    }
+}